@@ -0,0 +1,211 @@
+package com.importservice.benchmark;
+
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic contacts export with the real 100-column header of
+ * {@link ContactCSVMapper#headers()}. The same options always produce the same bytes.
+ * <p>
+ * Values follow the shape of the column: emails, phones, dates, small numbers, yes/no flags,
+ * a few repeating values for the low-cardinality columns (office, user, status, ...) and free
+ * text for the notes. Optionally some rows carry quoted multi-line notes, wide text values,
+ * or an error that makes the row fail on insert (a middle initial longer than its column).
+ */
+public final class ContactCsvGenerator {
+
+    /**
+     * @param rows           number of data rows
+     * @param seed           seed of the value generator
+     * @param errorRatio     share of rows that fail on insert, {@code 0..1}
+     * @param multilineRatio share of rows whose notes are quoted and span several lines, {@code 0..1}
+     * @param wideTextLength length of the text written to the {@code TEXT} columns; {@code 0} for short notes
+     */
+    public record Options(long rows, long seed, double errorRatio, double multilineRatio, int wideTextLength) {
+
+        public static Options rows(long rows) {
+            return new Options(rows, 42, 0, 0, 0);
+        }
+    }
+
+    private enum Kind { EMAIL, PHONE, DATE, NUMBER, FLAG, INITIAL, LOOKUP, TEXT, WORDS }
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer",
+            "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica"};
+
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+            "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson"};
+
+    private static final String[] WORDS = {"lake", "view", "north", "park", "oak", "main", "hill", "river",
+            "garden", "station", "cedar", "maple", "bay", "ridge", "spring", "meadow", "court", "harbor"};
+
+    private static final String[] LOOKUPS = {"Active", "Inactive", "New", "Hot", "Warm", "Cold", "Referral",
+            "Website", "Open House", "Zillow", "High", "Medium", "Low", "Lead", "Prospect", "Under Contract"};
+
+    private static final String[] STATES = {"CA", "NY", "TX", "FL", "WA", "IL", "CO", "MA"};
+
+    private final Options options;
+
+    private final List<String> headers = ContactCSVMapper.headers();
+
+    private final Kind[] kinds;
+
+    public ContactCsvGenerator(Options options) {
+        this.options = options;
+        this.kinds = headers.stream().map(ContactCsvGenerator::kindOf).toArray(Kind[]::new);
+    }
+
+    public List<String> headers() {
+        return headers;
+    }
+
+    /**
+     * Writes the header and every row; the writer is flushed but not closed.
+     */
+    public void write(Writer out) throws IOException {
+        SplittableRandom random = new SplittableRandom(options.seed());
+        StringBuilder line = new StringBuilder(4096);
+        for (int i = 0; i < headers.size(); i++) {
+            appendField(line, i, headers.get(i));
+        }
+        out.append(line).append("\r\n");
+        for (long row = 1; row <= options.rows(); row++) {
+            line.setLength(0);
+            boolean error = random.nextDouble() < options.errorRatio();
+            boolean multiline = random.nextDouble() < options.multilineRatio();
+            String first = pick(random, FIRST_NAMES);
+            String last = pick(random, LAST_NAMES);
+            for (int column = 0; column < kinds.length; column++) {
+                appendField(line, column, value(random, column, row, first, last, error, multiline));
+            }
+            out.append(line).append("\r\n");
+        }
+        out.flush();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(1024, options.rows() * 600)));
+        try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private String value(SplittableRandom random, int column, long row, String first, String last,
+                         boolean error, boolean multiline) {
+        String header = headers.get(column);
+        return switch (kinds[column]) {
+            case EMAIL -> header.equals("Email")
+                    ? first.toLowerCase() + '.' + last.toLowerCase() + '.' + row + "@example.com"
+                    : (random.nextInt(4) == 0 ? first.toLowerCase() + row + "@example.org" : "");
+            case PHONE -> String.format("(%03d) %03d-%04d", 200 + random.nextInt(800), random.nextInt(1000),
+                    random.nextInt(10000));
+            case DATE -> String.format("%02d/%02d/%04d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    1950 + random.nextInt(75));
+            case NUMBER -> Integer.toString(1 + random.nextInt(header.contains("Sq. Feet") ? 5000 : 6));
+            case FLAG -> random.nextBoolean() ? "Yes" : "No";
+            case INITIAL -> error && header.equals("MI") ? "INVALID-MIDDLE-INITIAL" : String.valueOf(
+                    (char) ('A' + random.nextInt(26)));
+            case LOOKUP -> lookup(random, header);
+            case TEXT -> text(random, first, multiline && header.equals("Notes"));
+            case WORDS -> switch (header) {
+                case "First Name" -> first;
+                case "Last Name" -> last;
+                case "Full Name" -> first + ' ' + last;
+                case "User ID" -> "U" + (1000 + random.nextInt(50));
+                default -> pick(random, WORDS) + ' ' + pick(random, WORDS);
+            };
+        };
+    }
+
+    private static String lookup(SplittableRandom random, String header) {
+        return switch (header) {
+            case "Office Name" -> "Office " + (1 + random.nextInt(8));
+            case "User Name" -> "Agent " + (1 + random.nextInt(50));
+            case "State/Province" -> pick(random, STATES);
+            case "Country" -> random.nextInt(20) == 0 ? "Canada" : "United States";
+            default -> pick(random, LOOKUPS);
+        };
+    }
+
+    private String text(SplittableRandom random, String first, boolean multiline) {
+        int length = options.wideTextLength() > 0 ? options.wideTextLength() : 40 + random.nextInt(80);
+        StringBuilder text = new StringBuilder(length + 16);
+        text.append("Called ").append(first).append(", said \"call back\"");
+        while (text.length() < length) {
+            text.append(multiline && random.nextInt(8) == 0 ? "\n" : ", ").append(pick(random, WORDS));
+        }
+        if (multiline) {
+            text.append('\n').append("Follow up");
+        }
+        return text.toString();
+    }
+
+    private static Kind kindOf(String header) {
+        if (header.contains("Email")) {
+            return Kind.EMAIL;
+        }
+        if (header.contains("Phone") || header.contains("Fax")) {
+            return Kind.PHONE;
+        }
+        if (header.contains("Date") || header.contains("Birthday") || header.contains("Anniversary")) {
+            return Kind.DATE;
+        }
+        if (header.contains("Bedrooms") || header.contains("Baths") || header.contains("Sq. Feet")
+                || header.contains("Garage")) {
+            return Kind.NUMBER;
+        }
+        if (header.contains("Pool") || header.equals("Do Not Mail") || header.equals("Prequalified")
+                || header.equals("Owns Current Residence")) {
+            return Kind.FLAG;
+        }
+        if (header.equals("MI") || header.equals("Spouse MI")) {
+            return Kind.INITIAL;
+        }
+        if (header.contains("Notes") || header.contains("Requirements") || header.equals("Dead Lead Reason")
+                || header.equals("Full Address")) {
+            return Kind.TEXT;
+        }
+        return switch (header) {
+            case "Office Name", "User Name", "Status", "Lead Source", "State/Province", "Country", "Priority",
+                 "Sales Pipeline Stage", "Secondary Source", "Time Frame", "Price Range" -> Kind.LOOKUP;
+            default -> Kind.WORDS;
+        };
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void appendField(StringBuilder line, int column, String value) {
+        if (column > 0) {
+            line.append(',');
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+}
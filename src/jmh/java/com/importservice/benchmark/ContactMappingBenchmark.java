@@ -0,0 +1,90 @@
+package com.importservice.benchmark;
+
+import com.importservice.entity.Contact;
+import com.importservice.model.CsvRecord;
+import com.importservice.model.CsvRow;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import com.importservice.utils.cvsrecord.MappingPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping parsed rows to {@link Contact}: {@code Method.invoke} per column looked up by header
+ * name, as mappers did before plans were compiled, against the compiled {@link MappingPlan}
+ * of {@link ContactCSVMapper} with index access and {@code LambdaMetafactory} setters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContactMappingBenchmark {
+
+    private List<CsvRow> rows;
+
+    private List<CsvRecord> records;
+
+    private final Map<String, Method> reflectiveSetters = new HashMap<>();
+
+    private final ContactCSVMapper mapper = new ContactCSVMapper();
+
+    @Setup(Level.Trial)
+    public void prepare(ContactsCsv csv) throws NoSuchMethodException {
+        rows = csv.parse();
+        records = rows.stream().map(row -> new CsvRecord(row.toMap())).toList();
+        for (Map.Entry<String, String> entry : new ExposedMapper().headerToFieldMap().entrySet()) {
+            reflectiveSetters.put(entry.getKey(), Contact.class.getMethod(entry.getValue(), String.class));
+        }
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws ReflectiveOperationException {
+        for (CsvRecord record : records) {
+            Contact contact = new Contact();
+            for (Map.Entry<String, String> value : record.getAll().entrySet()) {
+                Method setter = reflectiveSetters.get(value.getKey());
+                if (setter != null) {
+                    setter.invoke(contact, value.getValue());
+                }
+            }
+            blackhole.consume(contact);
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (CsvRow row : rows) {
+            blackhole.consume(mapper.map(row));
+        }
+    }
+
+    @Benchmark
+    public void compiledPlanOnly(Blackhole blackhole) {
+        MappingPlan<Contact> plan = mapper.planFor(rows.get(0).header());
+        for (CsvRow row : rows) {
+            blackhole.consume(plan.map(row.values()));
+        }
+    }
+
+    /**
+     * Gives the benchmark the header-to-setter names the reflective variant resolves.
+     */
+    private static final class ExposedMapper extends ContactCSVMapper {
+
+        Map<String, String> headerToFieldMap() {
+            return getHeaderToFieldMap();
+        }
+    }
+
+}
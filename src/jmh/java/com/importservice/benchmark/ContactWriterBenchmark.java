@@ -0,0 +1,132 @@
+package com.importservice.benchmark;
+
+import com.importservice.ImportServiceApplication;
+import com.importservice.entity.Contact;
+import com.importservice.model.CsvRow;
+import com.importservice.service.partition.ContactPartitions;
+import com.importservice.service.writer.ContactBatchWriter;
+import com.importservice.service.writer.ContactWriter;
+import com.importservice.service.writer.CopyContactWriter;
+import com.importservice.service.writer.JpaContactWriter;
+import com.importservice.service.writer.WriteResult;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one chunk of mapped contacts in its own transaction, as {@code BisectingChunkWriter}
+ * does: {@code JPA} through the persistence context against {@code JDBC_BATCH} with batched
+ * prepared statements, rewritten by the driver to multi-row inserts, and {@code COPY} for
+ * reference. Runs the application against an embedded PostgreSQL; the partition of the benchmark
+ * import is recreated every iteration, so every iteration writes to an empty table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContactWriterBenchmark {
+
+    private static final long IMPORT_ID = 1;
+
+    @Param({"JPA", "JDBC_BATCH", "COPY"})
+    public WriterMode writer;
+
+    @Param("100")
+    public int chunkSize;
+
+    private EmbeddedPostgres postgres;
+
+    private ConfigurableApplicationContext context;
+
+    private ContactWriter contactWriter;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ContactPartitions partitions;
+
+    private ContactCSVMapper mapper;
+
+    private List<CsvRow> rows;
+
+    private long written;
+
+    private List<Contact> chunk;
+
+    @Setup(Level.Trial)
+    public void start(ContactsCsv csv) throws IOException {
+        rows = csv.parse();
+        postgres = EmbeddedPostgres.builder().start();
+        // Command line arguments, so they override application.yml
+        context = new SpringApplicationBuilder(ImportServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        contactWriter = switch (writer) {
+            case JPA -> context.getBean(JpaContactWriter.class);
+            case JDBC_BATCH -> context.getBean(ContactBatchWriter.class);
+            case COPY -> context.getBean(CopyContactWriter.class);
+            default -> throw new IllegalArgumentException("Not a chunk writer: " + writer);
+        };
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        partitions = context.getBean(ContactPartitions.class);
+        mapper = context.getBean(ContactCSVMapper.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createPartition() {
+        partitions.create(IMPORT_ID);
+    }
+
+    /**
+     * Maps the next rows of the export afresh, so every chunk is new to the persistence context
+     * and has natural keys of its own.
+     */
+    @Setup(Level.Invocation)
+    public void nextChunk() {
+        chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            Contact contact = mapper.map(rows.get((int) (written % rows.size())));
+            contact.setImportId(IMPORT_ID);
+            contact.setEmail("contact-" + written + "@example.com");
+            chunk.add(contact);
+            written++;
+        }
+    }
+
+    @Benchmark
+    public WriteResult write() {
+        return transactionTemplate.execute(status -> contactWriter.write(chunk));
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropPartition() {
+        transactionTemplate.executeWithoutResult(status -> partitions.drop(IMPORT_ID));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+}
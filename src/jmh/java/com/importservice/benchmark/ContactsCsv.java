@@ -0,0 +1,49 @@
+package com.importservice.benchmark;
+
+import com.importservice.model.CsvRow;
+import com.importservice.utils.cvsrecord.CsvRecordReader;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A generated contacts export shared by the benchmarks of one trial; see {@link ContactCsvGenerator}.
+ */
+@State(Scope.Benchmark)
+public class ContactsCsv {
+
+    @Param("10000")
+    public int rows;
+
+    public byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        bytes = new ContactCsvGenerator(ContactCsvGenerator.Options.rows(rows)).toBytes();
+    }
+
+    public Reader reader() {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return every row of the export, parsed once up front
+     */
+    public List<CsvRow> parse() {
+        List<CsvRow> parsed = new ArrayList<>(rows);
+        try (CsvRecordReader reader = new CsvRecordReader(reader())) {
+            reader.forEachRemaining(parsed::add);
+        }
+        return parsed;
+    }
+
+}
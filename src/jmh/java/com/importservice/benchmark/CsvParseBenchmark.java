@@ -0,0 +1,95 @@
+package com.importservice.benchmark;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.model.CsvRow;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.CsvRecordReader;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a whole export: uniVocity through {@link CsvRecordReader} (STREAMING mode), with and
+ * without {@link ColumnInterner}, against commons-csv configured as the BUFFERED mode does,
+ * record by record and as one list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvParseBenchmark {
+
+    private static final CSVFormat COMMONS_FORMAT = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setTrim(true).get();
+
+    @Benchmark
+    public long univocity(ContactsCsv csv, Blackhole blackhole) {
+        long rows = 0;
+        try (CsvRecordReader reader = new CsvRecordReader(csv.reader())) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long univocityReusedRows(ContactsCsv csv, Blackhole blackhole) {
+        long rows = 0;
+        try (CsvRecordReader reader = new CsvRecordReader(csv.reader())) {
+            reader.setReuseRows(true);
+            while (reader.hasNext()) {
+                CsvRow row = reader.next();
+                blackhole.consume(row.values());
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long univocityInterned(ContactsCsv csv, Blackhole blackhole) {
+        ImportProperties.Interning interning = new ImportProperties.Interning();
+        long rows = 0;
+        try (CsvRecordReader reader = new CsvRecordReader(csv.reader())) {
+            reader.setInterner(new ColumnInterner(interning.getColumns(), interning.getMaxValuesPerColumn(),
+                    new ColumnInterner.Statistics()));
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long commonsCsv(ContactsCsv csv, Blackhole blackhole) throws IOException {
+        long rows = 0;
+        try (Reader reader = csv.reader(); CSVParser parser = COMMONS_FORMAT.parse(reader)) {
+            for (CSVRecord record : parser) {
+                blackhole.consume(record);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<CSVRecord> commonsCsvGetRecords(ContactsCsv csv) throws IOException {
+        try (Reader reader = csv.reader(); CSVParser parser = COMMONS_FORMAT.parse(reader)) {
+            return parser.getRecords();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.importservice.benchmark;
+
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRecord;
+import com.importservice.model.CsvRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every column of every parsed row: by name from a {@link CsvRecord} map, by name
+ * through the shared {@link CsvHeader} dictionary, and by index from a {@link CsvRow}. The
+ * map-based variants also pay for building the map per row, as the old record path did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecordAccessBenchmark {
+
+    private List<CsvRow> rows;
+
+    private List<CsvRecord> records;
+
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void parse(ContactsCsv csv) {
+        rows = csv.parse();
+        records = rows.stream().map(row -> new CsvRecord(row.toMap())).toList();
+        names = rows.get(0).header().names().toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void mapBased(Blackhole blackhole) {
+        for (CsvRecord record : records) {
+            for (String name : names) {
+                blackhole.consume(record.get(name));
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapBasedIncludingBuild(Blackhole blackhole) {
+        for (CsvRow row : rows) {
+            CsvRecord record = new CsvRecord(row.toMap());
+            for (String name : names) {
+                blackhole.consume(record.get(name));
+            }
+        }
+    }
+
+    @Benchmark
+    public void headerLookup(Blackhole blackhole) {
+        for (CsvRow row : rows) {
+            for (String name : names) {
+                blackhole.consume(row.get(name));
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexBased(Blackhole blackhole) {
+        for (CsvRow row : rows) {
+            for (int column = 0; column < names.length; column++) {
+                blackhole.consume(row.get(column));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.importservice.config;
+
+import graphql.scalars.ExtendedScalars;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.RuntimeWiringConfigurer;
+
+/**
+ * Scalars of the GraphQL schema beyond the built-in ones.
+ */
+@Configuration(proxyBeanMethods = false)
+public class GraphQlConfig {
+
+    /**
+     * {@code Long} for the row counters, which are Java {@code long}s and can exceed {@code Int}.
+     */
+    @Bean
+    RuntimeWiringConfigurer longScalar() {
+        return wiring -> wiring.scalar(ExtendedScalars.GraphQLLong);
+    }
+
+}
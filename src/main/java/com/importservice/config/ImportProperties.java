@@ -0,0 +1,288 @@
+package com.importservice.config;
+
+import com.importservice.service.ImportMode;
+import com.importservice.service.validation.ContactValidator;
+import com.importservice.service.writer.WriterMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tunables for the CSV import, bound from the {@code import.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "import")
+public class ImportProperties {
+
+    /**
+     * Import mode used when the request does not specify one.
+     */
+    private ImportMode mode = ImportMode.STREAMING;
+
+    /**
+     * Writer used when the request does not specify one.
+     */
+    private WriterMode writer = WriterMode.JPA;
+
+    /**
+     * Number of records handed to a writer as one chunk.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Increment of the {@code CI_UNIQUE_ID} sequence, i.e. how many ids one {@code nextval} reserves.
+     * Applied to the sequence by the {@code R__id_block_size} migration whenever the value changes;
+     * the entities and the {@link com.importservice.service.writer.IdRangeAllocator} follow the sequence.
+     */
+    private int idBlockSize = 50;
+
+    /**
+     * Directory uploads are spooled to. An upload stays there until its import jobs complete,
+     * so failed or interrupted jobs can be resumed; use durable storage that survives a restart.
+     */
+    private String spoolDirectory = System.getProperty("user.home") + "/contact-importer/spool";
+
+    /**
+     * Columns identifying a contact across imports, comma separated. Rows repeating a key within
+     * one file are skipped, rows repeating the key of another import's contact are rejected, and
+     * the {@code UPSERT} writer updates contacts with an existing key instead. Also the column list
+     * of the {@code contact_keys} table, fixed when the natural key migrations run.
+     */
+    private List<String> naturalKey = List.of("email");
+
+    /**
+     * How often the progress of running imports is sampled and pushed to watchers.
+     */
+    private Duration progressInterval = Duration.ofSeconds(1);
+
+    private final Executor executor = new Executor();
+
+    private final Parallel parallel = new Parallel();
+
+    private final Cluster cluster = new Cluster();
+
+    private final Statistics statistics = new Statistics();
+
+    private final Metrics metrics = new Metrics();
+
+    private final Validation validation = new Validation();
+
+    private final Partitions partitions = new Partitions();
+
+    private final Staging staging = new Staging();
+
+    private final Interning interning = new Interning();
+
+    /**
+     * Worker pool shared by all running imports, bound from {@code import.executor.*}.
+     */
+    @Data
+    public static class Executor {
+
+        /**
+         * Maximum number of chunks written concurrently. Each running chunk holds a database
+         * connection, so keep this at or below the connection pool size.
+         */
+        private int poolSize = 8;
+
+        /**
+         * Maximum number of parsed chunks waiting for a worker. When the queue is full
+         * the parser blocks, which keeps heap use flat regardless of file size.
+         */
+        private int queueDepth = 16;
+
+        /**
+         * Run chunks on virtual threads instead of a fixed pool of platform threads.
+         * Concurrency is still capped at {@link #poolSize}.
+         */
+        private boolean virtualThreads = false;
+
+    }
+
+    /**
+     * Split parsing of a single file, bound from {@code import.parallel.*}.
+     */
+    @Data
+    public static class Parallel {
+
+        /**
+         * Number of threads parsing byte ranges of one file concurrently.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Smallest byte range worth parsing on its own thread; smaller files are parsed by one thread.
+         */
+        private DataSize minRangeSize = DataSize.ofMegabytes(16);
+
+    }
+
+    /**
+     * Cooperative imports across replicas, bound from {@code import.cluster.*}. Parallel imports of
+     * plain files are split into byte ranges that any replica claims through leases in Redis.
+     * {@link ImportProperties#spoolDirectory} must then be shared storage mounted at the same path
+     * on every replica.
+     */
+    @Data
+    public static class Cluster {
+
+        /**
+         * Hand out the ranges of parallel imports to every replica instead of parsing them locally.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of ranges a file is split into, the unit of work claimed by a replica.
+         */
+        private int targetRanges = 64;
+
+        /**
+         * Maximum number of ranges one replica works on at the same time.
+         */
+        private int maxClaimedRanges = 2;
+
+        /**
+         * How long a claimed range stays owned without a heartbeat. Once expired, any replica
+         * may claim the range again and import it from its start.
+         */
+        private Duration leaseDuration = Duration.ofSeconds(30);
+
+        /**
+         * How often the owner of a range extends its lease; well below {@link #leaseDuration}.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+        /**
+         * How often a replica looks for unclaimed ranges, and the origin replica for finished imports.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * Number of failed attempts after which a range, and with it the import, is given up.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * How long the Redis state of a finished import is kept, for the replica it was uploaded
+         * to to read its outcome; well above {@link #pollInterval}.
+         */
+        private Duration finishedRetention = Duration.ofMinutes(10);
+
+    }
+
+    /**
+     * Totals served by the statistics query, bound from {@code import.statistics.*}.
+     */
+    @Data
+    public static class Statistics {
+
+        /**
+         * How long the totals are served from cache before the counters are read again.
+         */
+        private Duration cacheTtl = Duration.ofSeconds(5);
+
+        /**
+         * Number of rows each counter is spread over; at least the number of import workers.
+         */
+        private int counterShards = 16;
+
+        /**
+         * When to correct the counters against exact row counts; {@code -} disables it.
+         */
+        private String reconcileCron = "-";
+
+    }
+
+    /**
+     * Per-import meters, bound from {@code import.metrics.*}.
+     */
+    @Data
+    public static class Metrics {
+
+        /**
+         * How long the meters of a finished import are kept before they are removed from the
+         * registry; longer than the scrape interval, so the final values are collected.
+         */
+        private Duration retention = Duration.ofMinutes(2);
+
+    }
+
+    /**
+     * The per-import partitions of {@code contacts}, bound from {@code import.partitions.*}.
+     */
+    @Data
+    public static class Partitions {
+
+        /**
+         * How long creating or dropping a partition waits for its table locks before it fails,
+         * so it never queues behind a long query while blocking everything queued after it.
+         */
+        private Duration lockTimeout = Duration.ofSeconds(5);
+
+    }
+
+    /**
+     * Imports written with {@code STAGED}, bound from {@code import.staging.*}.
+     */
+    @Data
+    public static class Staging {
+
+        /**
+         * Rows of the staging table merged into {@code contacts} per transaction, by row number.
+         */
+        private int mergeSliceRows = 50_000;
+
+    }
+
+    /**
+     * Interning of low-cardinality columns while parsing, bound from {@code import.interning.*}.
+     */
+    @Data
+    public static class Interning {
+
+        private boolean enabled = true;
+
+        /**
+         * Headers of the columns whose values repeat across rows.
+         */
+        private List<String> columns = List.of("Office Name", "User Name", "Status", "Lead Source",
+                "State/Province", "Country", "Priority", "Sales Pipeline Stage");
+
+        /**
+         * Distinct values kept per column and import; a column with more is no longer interned.
+         */
+        private int maxValuesPerColumn = 1024;
+
+    }
+
+    /**
+     * Checks of mapped rows before they are written, bound from {@code import.validation.*}.
+     */
+    @Data
+    public static class Validation {
+
+        /**
+         * Whether rows are validated at all; without it, bad values are only caught by the database.
+         * On its own it checks only what the database would reject, the maximum length of every column.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Format rules by {@code contacts} column, e.g. {@code email: EMAIL}; none by default, as the
+         * database accepts any text in these columns. Rows breaking a rule are rejected.
+         */
+        private Map<String, ContactValidator.Format> formats = Map.of();
+
+        /**
+         * {@link java.time.format.DateTimeFormatter} patterns accepted in {@code DATE} columns, tried in order.
+         */
+        private List<String> dateFormats = List.of("M/d/uuuu", "M/d/uuuu H:mm[:ss]", "M/d/uuuu h:mm[:ss] a",
+                "uuuu-MM-dd", "uuuu-MM-dd['T'][ ]HH:mm[:ss]", "M/d/uu");
+
+    }
+
+}
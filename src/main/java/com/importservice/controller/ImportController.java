@@ -1,14 +1,27 @@
 package com.importservice.controller;
 
-import com.importservice.dto.ImportStatistics;
-import com.importservice.service.CSVImportService;
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.dto.ImportProgressEvent;
+import com.importservice.dto.ImportSubmission;
+import com.importservice.service.ImportJobService;
+import com.importservice.service.ImportMode;
+import com.importservice.service.writer.WriterMode;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
@@ -16,21 +29,107 @@ import java.util.concurrent.CompletableFuture;
 @RequestMapping("/api/import")
 public class ImportController {
 
-    private final CSVImportService csvImportService;
+    private final ImportJobService importJobService;
 
-    public ImportController(CSVImportService csvImportService) {
-        this.csvImportService = csvImportService;
+    public ImportController(ImportJobService importJobService) {
+        this.importJobService = importJobService;
     }
 
+    /**
+     * Starts an import job and returns 202 Accepted with the jobs to poll, always as a list. The
+     * upload may be plain, gzip, bzip2 or xz compressed CSV, or a zip archive; an archive starts
+     * one job per CSV entry. A single job is also linked by the {@code Location} header.
+     */
     @PostMapping
-    public CompletableFuture<ResponseEntity<ImportStatistics>> importCsv(@RequestParam("file") MultipartFile file) {
-        return csvImportService.importCSV(file)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> {
-                    log.error("Error during CSV import: {}", ex.getMessage());
-                    return ResponseEntity.badRequest().build();
-                });
+    public ResponseEntity<ImportSubmission> importCsv(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "mode", required = false) ImportMode mode,
+            @RequestParam(value = "writer", required = false) WriterMode writer) {
+        try {
+            List<ImportJobStatus> jobs = importJobService.submit(file, mode, writer);
+            if (jobs.size() > 1) {
+                return ResponseEntity.accepted().body(new ImportSubmission(jobs));
+            }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/import/" + jobs.get(0).jobId()))
+                    .body(new ImportSubmission(jobs));
+        } catch (IOException e) {
+            log.error("Error during CSV import: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
-}
+    /**
+     * Imports the raw request body while it is still being received: rows are parsed and written
+     * as bytes arrive instead of after the whole upload has been buffered. The body may be gzip,
+     * bzip2 or xz compressed. Responds with the final job status once the body is imported. The
+     * request is handled asynchronously: the import reads the body on its own thread, and no servlet
+     * thread waits for it.
+     */
+    @PostMapping(value = "/stream", consumes = {"text/csv", "application/octet-stream", "application/gzip",
+            "application/x-bzip2", "application/x-xz"})
+    public CompletableFuture<ResponseEntity<ImportJobStatus>> importStream(
+            HttpServletRequest request,
+            @RequestHeader(value = "X-File-Name", required = false) String fileName,
+            @RequestParam(value = "mode", required = false) ImportMode mode,
+            @RequestParam(value = "writer", required = false) WriterMode writer) {
+        try {
+            return importJobService.submitStream(request.getInputStream(), fileName, mode, writer)
+                    .thenApply(ResponseEntity::ok);
+        } catch (IOException e) {
+            log.error("Error during streamed CSV import: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+    }
+
+    /**
+     * Resumes a failed or interrupted job from its last checkpoint. Responds 202 with the job,
+     * 404 if there is no such job and 409 if it cannot be resumed.
+     */
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<ImportJobStatus> resumeJob(@PathVariable("jobId") long jobId) {
+        try {
+            return importJobService.resume(jobId)
+                    .map(job -> ResponseEntity.accepted()
+                            .location(URI.create("/api/import/" + job.jobId()))
+                            .body(job))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            log.warn("Cannot resume import job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Rolls back a job by dropping the partition holding its contacts, along with its unimported
+     * rows. Responds 200 with the job, 404 if there is no such job and 409 if it is running or
+     * already rolled back, or if its partition stays locked longer than {@code import.partitions.lock-timeout}.
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<ImportJobStatus> rollbackJob(@PathVariable("jobId") long jobId) {
+        try {
+            return ResponseEntity.of(importJobService.rollback(jobId));
+        } catch (IllegalStateException | PessimisticLockingFailureException e) {
+            log.warn("Cannot roll back import job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 
+    /**
+     * Streams the progress of a job as server-sent events until the job finishes.
+     */
+    @GetMapping(value = "/{jobId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<ImportProgressEvent>>> watchJob(@PathVariable("jobId") long jobId) {
+        return ResponseEntity.of(importJobService.watch(jobId)
+                .map(events -> events.map(event -> ServerSentEvent.builder(event)
+                        .event("progress")
+                        .id(String.valueOf(event.timestamp().toEpochMilli()))
+                        .build())));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJobStatus> getJob(@PathVariable("jobId") long jobId) {
+        return ResponseEntity.of(importJobService.find(jobId));
+    }
+
+}
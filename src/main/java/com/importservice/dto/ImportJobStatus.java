@@ -0,0 +1,13 @@
+package com.importservice.dto;
+
+import com.importservice.entity.ImportJobState;
+
+import java.time.Instant;
+
+/**
+ * Pollable view of an import job. While the job is running the statistics are live counters.
+ */
+public record ImportJobStatus(Long jobId, String fileName, ImportJobState state, ImportStatistics statistics,
+                              Instant createdAt, Instant startedAt, Instant finishedAt, Long durationMillis,
+                              String errorMessage) {
+}
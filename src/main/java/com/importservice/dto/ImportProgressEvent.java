@@ -0,0 +1,23 @@
+package com.importservice.dto;
+
+import com.importservice.entity.ImportJobState;
+
+import java.time.Instant;
+
+/**
+ * A sample of the progress of an import job, pushed to watchers at a fixed interval.
+ *
+ * @param jobId            the import job
+ * @param state            the state of the job; the last event of a job carries its final state
+ * @param recordsProcessed rows the import has finished with: stored, rejected or skipped as duplicates
+ * @param imported         rows stored in {@code contacts}
+ * @param failed           rows stored in {@code unimported_contacts}
+ * @param duplicates       rows skipped because the import already stored their natural key
+ * @param rowsPerSecond    smoothed rate of processed rows
+ * @param etaSeconds       estimated seconds left, or {@code null} while the input size or rate is unknown
+ * @param timestamp        when the sample was taken
+ */
+public record ImportProgressEvent(Long jobId, ImportJobState state, Long recordsProcessed, Long imported,
+                                  Long failed, Long duplicates, Double rowsPerSecond, Long etaSeconds,
+                                  Instant timestamp) {
+}
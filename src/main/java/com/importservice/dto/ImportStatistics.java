@@ -1,4 +1,22 @@
 package com.importservice.dto;
 
-public record ImportStatistics(Long totalImported, Long totalFailed, Long totalRecords) {
+import java.util.Map;
+
+/**
+ * @param totalImported   rows stored in {@code contacts}, inserted or updated
+ * @param totalFailed     rows stored in {@code unimported_contacts}
+ * @param totalRecords    rows read from the file
+ * @param totalDuplicates rows skipped because the import already stored a contact with the same natural key
+ * @param totalUpdated    imported rows that updated an existing contact instead of inserting one
+ * @param ruleFailures    failed rows by the rule or error code that rejected them, e.g.
+ *                        {@code INVALID_EMAIL:email} or {@code MAPPING_FAILED}; {@code null} when not tracked
+ */
+public record ImportStatistics(Long totalImported, Long totalFailed, Long totalRecords,
+                               Long totalDuplicates, Long totalUpdated, Map<String, Long> ruleFailures) {
+
+    public ImportStatistics(Long totalImported, Long totalFailed, Long totalRecords,
+                            Long totalDuplicates, Long totalUpdated) {
+        this(totalImported, totalFailed, totalRecords, totalDuplicates, totalUpdated, null);
+    }
+
 }
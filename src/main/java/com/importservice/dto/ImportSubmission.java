@@ -0,0 +1,9 @@
+package com.importservice.dto;
+
+import java.util.List;
+
+/**
+ * The jobs started by one upload: one for a CSV file, one per CSV entry of a zip archive.
+ */
+public record ImportSubmission(List<ImportJobStatus> jobs) {
+}
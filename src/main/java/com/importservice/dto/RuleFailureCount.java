@@ -0,0 +1,7 @@
+package com.importservice.dto;
+
+/**
+ * Rows rejected by one validation rule or error code, as exposed over GraphQL.
+ */
+public record RuleFailureCount(String rule, long count) {
+}
@@ -16,9 +16,16 @@ public class Contact {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "CI_UNIQUE_ID")
-    @SequenceGenerator(name="CI_UNIQUE_ID", sequenceName = "CI_UNIQUE_ID", allocationSize = 1)
+    @SequenceGenerator(name="CI_UNIQUE_ID", sequenceName = "CI_UNIQUE_ID")
     private Long id;
 
+    /**
+     * The import job that stored the contact, which is also its partition of {@code contacts};
+     * {@code 0} for contacts stored before imports were tracked.
+     */
+    @Column(name = "import_id", nullable = false)
+    private Long importId;
+
     @Column(name="office_name")
     private String officeName;
 
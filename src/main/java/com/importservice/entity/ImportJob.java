@@ -0,0 +1,98 @@
+package com.importservice.entity;
+
+import com.importservice.service.ImportMode;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.compress.UploadFormat;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "CI_UNIQUE_ID")
+    @SequenceGenerator(name = "CI_UNIQUE_ID", sequenceName = "CI_UNIQUE_ID")
+    private Long id;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private ImportJobState state;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "import_mode")
+    private ImportMode importMode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "writer_mode")
+    private WriterMode writerMode;
+
+    /**
+     * The spooled upload, kept until every job importing it has completed, so a failed or
+     * interrupted job can be resumed. {@code null} for request bodies imported as they arrive.
+     */
+    @Column(name = "source_path", length = 1024)
+    private String sourcePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source_format")
+    private UploadFormat sourceFormat;
+
+    /**
+     * The CSV entry imported by this job, when the upload is a zip archive.
+     */
+    @Column(name = "source_entry", length = 1024)
+    private String sourceEntry;
+
+    @Column(name = "total_records", nullable = false)
+    private long totalRecords;
+
+    @Column(name = "imported_records", nullable = false)
+    private long importedRecords;
+
+    @Column(name = "failed_records", nullable = false)
+    private long failedRecords;
+
+    @Column(name = "duplicate_records", nullable = false)
+    private long duplicateRecords;
+
+    @Column(name = "updated_records", nullable = false)
+    private long updatedRecords;
+
+    /**
+     * Failed rows by the rule or error code that rejected them, counted when the job finishes.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "rule_failures", columnDefinition = "jsonb")
+    private Map<String, Long> ruleFailures;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+}
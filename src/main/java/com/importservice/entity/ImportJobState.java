@@ -0,0 +1,21 @@
+package com.importservice.entity;
+
+/**
+ * Lifecycle of an {@link ImportJob}.
+ */
+public enum ImportJobState {
+
+    QUEUED,
+
+    RUNNING,
+
+    COMPLETED,
+
+    FAILED,
+
+    /**
+     * The contacts and unimported rows of the job were dropped.
+     */
+    ROLLED_BACK
+
+}
@@ -0,0 +1,31 @@
+package com.importservice.graphql;
+
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.dto.ImportProgressEvent;
+import com.importservice.service.ImportJobService;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+@Controller
+public class ImportJobResolver {
+
+    private final ImportJobService importJobService;
+
+    public ImportJobResolver(ImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    @QueryMapping
+    public ImportJobStatus importJob(@Argument Long id) {
+        return importJobService.find(id).orElse(null);
+    }
+
+    @SubscriptionMapping
+    public Flux<ImportProgressEvent> importProgress(@Argument Long jobId) {
+        return importJobService.watch(jobId).orElseGet(Flux::empty);
+    }
+
+}
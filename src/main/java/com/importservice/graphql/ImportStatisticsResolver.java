@@ -1,30 +1,36 @@
 package com.importservice.graphql;
 
 import com.importservice.dto.ImportStatistics;
-import com.importservice.repository.ContactRepository;
-import com.importservice.repository.UnimportedContactRepository;
+import com.importservice.dto.RuleFailureCount;
+import com.importservice.service.statistics.ImportCounters;
 import org.springframework.stereotype.Controller;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+
+import java.util.List;
 
 @Controller
 public class ImportStatisticsResolver {
 
-    private final ContactRepository contactRepository;
-
-    private final UnimportedContactRepository unimportedContactRepository;
+    private final ImportCounters importCounters;
 
-    public ImportStatisticsResolver(ContactRepository contactRepository,
-                                    UnimportedContactRepository unimportedContactRepository) {
-        this.contactRepository = contactRepository;
-        this.unimportedContactRepository = unimportedContactRepository;
+    public ImportStatisticsResolver(ImportCounters importCounters) {
+        this.importCounters = importCounters;
     }
 
     @QueryMapping
     public ImportStatistics importStatistics() {
-        long importedCount = contactRepository.count();
-        long failedCount = unimportedContactRepository.count();
-        long totalRecords = importedCount + failedCount;
-        return new ImportStatistics(importedCount, failedCount, totalRecords);
+        return importCounters.totals();
+    }
+
+    @SchemaMapping(typeName = "ImportStatistics")
+    public List<RuleFailureCount> ruleFailures(ImportStatistics statistics) {
+        if (statistics.ruleFailures() == null) {
+            return null;
+        }
+        return statistics.ruleFailures().entrySet().stream()
+                .map(failure -> new RuleFailureCount(failure.getKey(), failure.getValue()))
+                .toList();
     }
 
 }
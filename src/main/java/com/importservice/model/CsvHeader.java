@@ -0,0 +1,83 @@
+package com.importservice.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The header row of a CSV file: a header-to-index dictionary shared by every {@link CsvRow}
+ * of the file, so rows only carry their values.
+ */
+public final class CsvHeader {
+
+    private final List<String> names;
+
+    private final Map<String, Integer> indexes;
+
+    private final int hash;
+
+    private CsvHeader(String[] names) {
+        this.names = Collections.unmodifiableList(Arrays.asList(names.clone()));
+        Map<String, Integer> byName = new HashMap<>(names.length * 2);
+        for (int i = names.length - 1; i >= 0; i--) {
+            // The first occurrence wins for duplicated headers
+            if (names[i] != null) {
+                byName.put(names[i], i);
+            }
+        }
+        this.indexes = byName;
+        this.hash = this.names.hashCode();
+    }
+
+    public static CsvHeader of(String... names) {
+        return new CsvHeader(names == null ? new String[0] : names);
+    }
+
+    public static CsvHeader of(List<String> names) {
+        return new CsvHeader(names.toArray(new String[0]));
+    }
+
+    /**
+     * @return the column index of the header, or {@code -1} if the file has no such column
+     */
+    public int indexOf(String name) {
+        Integer index = name == null ? null : indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String name(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * @return the header names in column order; may contain {@code null} for blank header cells
+     */
+    public List<String> names() {
+        return names;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CsvHeader other = (CsvHeader) o;
+        return hash == other.hash && names.equals(other.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "CsvHeader" + names;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.importservice.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compact CSV row: a reference to the shared {@link CsvHeader} plus the parsed values,
+ * addressed by column index in O(1).
+ * <p>
+ * Unlike {@link CsvRecord}, a row does not copy the header strings or allocate a map,
+ * so one row costs a single object on top of the values array the parser produced.
+ * A row may be reused by a reader (see {@code CsvRecordReader#setReuseRows}); in that
+ * case it is only valid until the next row is read.
+ */
+public final class CsvRow {
+
+    private final CsvHeader header;
+
+    private String[] values;
+
+    private long rowNumber;
+
+    public CsvRow(CsvHeader header, String[] values, long rowNumber) {
+        this.header = header;
+        this.values = values;
+        this.rowNumber = rowNumber;
+    }
+
+    /**
+     * Points a reused row at the next parsed values.
+     */
+    public CsvRow reset(String[] values, long rowNumber) {
+        this.values = values;
+        this.rowNumber = rowNumber;
+        return this;
+    }
+
+    public CsvHeader header() {
+        return header;
+    }
+
+    /**
+     * @return the 1-based number of the record in its file, header excluded and empty lines included
+     */
+    public long rowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * @return the value at the column index, or {@code null} for a missing trailing column
+     */
+    public String get(int index) {
+        return index >= 0 && index < values.length ? values[index] : null;
+    }
+
+    /**
+     * @return the value of the named column, or {@code null} if the file has no such column
+     */
+    public String get(String name) {
+        return get(header.indexOf(name));
+    }
+
+    /**
+     * @return the values in column order; the array is shared, not copied
+     */
+    public String[] values() {
+        return values;
+    }
+
+    /**
+     * @return the row as header-to-value pairs, in column order
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.name(i);
+            if (name != null) {
+                map.putIfAbsent(name, get(i));
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "CsvRow#" + rowNumber + toMap();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.importservice.repository;
+
+import com.importservice.entity.ImportJob;
+import com.importservice.entity.ImportJobState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface ImportJobRepository extends CrudRepository<ImportJob, Long> {
+
+    boolean existsBySourcePathAndStateNotIn(String sourcePath, Collection<ImportJobState> states);
+
+    /**
+     * Moves a job to another state if its stored state is still one of {@code from}. The row stays
+     * locked until the transaction ends, so concurrent transitions of a job, on any instance, see
+     * each other's outcome.
+     *
+     * @return 1 if the job was moved, 0 if it is in another state or does not exist
+     */
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.state = :to WHERE j.id = :jobId AND j.state IN :from")
+    int transition(long jobId, Collection<ImportJobState> from, ImportJobState to);
+
+    /**
+     * Marks every job in one of {@code states} as failed.
+     *
+     * @return the number of jobs marked
+     */
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.state = com.importservice.entity.ImportJobState.FAILED, "
+            + "j.errorMessage = :errorMessage, j.finishedAt = :finishedAt WHERE j.state IN :states")
+    int failAll(Collection<ImportJobState> states, String errorMessage, Instant finishedAt);
+
+}
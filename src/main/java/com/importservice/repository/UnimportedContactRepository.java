@@ -1,8 +1,27 @@
 package com.importservice.repository;
 
 import com.importservice.entity.UnimportedContact;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 public interface UnimportedContactRepository extends CrudRepository<UnimportedContact, Long> {
 
+    interface ErrorCodeCount {
+
+        String getErrorCode();
+
+        long getCount();
+    }
+
+    @Query("SELECT u.errorCode AS errorCode, COUNT(u) AS count FROM UnimportedContact u "
+            + "WHERE u.jobId = :jobId GROUP BY u.errorCode")
+    List<ErrorCodeCount> countByErrorCode(long jobId);
+
+    @Modifying
+    @Query("DELETE FROM UnimportedContact u WHERE u.jobId = :jobId")
+    int deleteByJobId(long jobId);
+
 }
@@ -1,321 +1,566 @@
 package com.importservice.service;
 
+import com.importservice.config.ImportProperties;
 import com.importservice.dto.ImportStatistics;
 import com.importservice.entity.Contact;
-import com.importservice.entity.UnimportedContact;
-import com.importservice.repository.ContactRepository;
-import com.importservice.repository.UnimportedContactRepository;
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+import com.importservice.service.checkpoint.CheckpointStore;
+import com.importservice.service.checkpoint.CommittedRows;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.failure.FailureSink;
+import com.importservice.service.failure.RowFailure;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.metrics.ImportMetrics;
+import com.importservice.service.staging.StagedContactImport;
+import com.importservice.service.statistics.ImportCounters;
+import com.importservice.service.validation.ContactValidator;
+import com.importservice.service.validation.RuleViolation;
+import com.importservice.service.writer.BisectingChunkWriter;
+import com.importservice.service.writer.ContactBatchWriter;
+import com.importservice.service.writer.ContactKeys;
+import com.importservice.service.writer.ContactUpsertWriter;
+import com.importservice.service.writer.ContactWriter;
+import com.importservice.service.writer.CopyContactWriter;
+import com.importservice.service.writer.JpaContactWriter;
+import com.importservice.service.writer.NaturalKey;
+import com.importservice.service.writer.WriteResult;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+import com.importservice.utils.cvsrecord.CsvRecordReader;
+import com.importservice.utils.io.CountingInputStream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import org.springframework.scheduling.annotation.Async;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class CSVImportService {
 
-    private final ContactRepository contactRepository;
-    private final UnimportedContactRepository unimportedContactRepository;
+    /**
+     * Rough size of one exported contact row, used to size the duplicate filter from the file size.
+     */
+    private static final long AVERAGE_ROW_BYTES = 512;
+
+    /**
+     * Expected row count when the size of the content is unknown (compressed or streamed).
+     */
+    private static final long DEFAULT_EXPECTED_ROWS = 100_000;
+
+    private final BisectingChunkWriter chunkWriter;
+
+    private final JpaContactWriter jpaContactWriter;
+
+    private final CopyContactWriter copyContactWriter;
+
+    private final ContactBatchWriter contactBatchWriter;
+
+    private final ContactUpsertWriter contactUpsertWriter;
+
+    private final NaturalKey naturalKey;
+
+    private final ContactKeys contactKeys;
 
-    // Configure batch size (e.g., 100 records per thread)
-    private static final int BATCH_SIZE = 100;
+    private final ImportExecutor importExecutor;
 
-    // Thread-safe counters for statistics
-    private AtomicInteger totalImported = new AtomicInteger(0);
+    private final ContactCSVMapper contactMapper;
 
-    private AtomicInteger totalFailed = new AtomicInteger(0);
+    private final ContactValidator contactValidator;
 
-    public CSVImportService(ContactRepository contactRepository, UnimportedContactRepository unimportedContactRepository) {
-        this.contactRepository = contactRepository;
-        this.unimportedContactRepository = unimportedContactRepository;
+    private final FailureSink failureSink;
+
+    private final ImportProperties importProperties;
+
+    private final CheckpointStore checkpointStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ImportCounters importCounters;
+
+    private final ImportMetrics importMetrics;
+
+    private final StagedContactImport stagedContactImport;
+
+    public CSVImportService(BisectingChunkWriter chunkWriter, JpaContactWriter jpaContactWriter,
+                            CopyContactWriter copyContactWriter, ContactBatchWriter contactBatchWriter,
+                            ContactUpsertWriter contactUpsertWriter, NaturalKey naturalKey,
+                            ContactKeys contactKeys, ImportExecutor importExecutor, ContactCSVMapper contactMapper,
+                            ContactValidator contactValidator, FailureSink failureSink, ImportProperties importProperties,
+                            CheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                            ImportCounters importCounters, ImportMetrics importMetrics,
+                            StagedContactImport stagedContactImport) {
+        this.chunkWriter = chunkWriter;
+        this.jpaContactWriter = jpaContactWriter;
+        this.copyContactWriter = copyContactWriter;
+        this.contactBatchWriter = contactBatchWriter;
+        this.contactUpsertWriter = contactUpsertWriter;
+        this.naturalKey = naturalKey;
+        this.contactKeys = contactKeys;
+        this.importExecutor = importExecutor;
+        this.contactMapper = contactMapper;
+        this.contactValidator = contactValidator;
+        this.failureSink = failureSink;
+        this.importProperties = importProperties;
+        this.checkpointStore = checkpointStore;
+        this.transactionTemplate = transactionTemplate;
+        this.importCounters = importCounters;
+        this.importMetrics = importMetrics;
+        this.stagedContactImport = stagedContactImport;
     }
 
-    public CompletableFuture<ImportStatistics> importCSV(MultipartFile file) {
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+    /**
+     * Imports a CSV file in the background.
+     *
+     * @param file       the CSV content, already decompressed; {@link ImportMode#PARALLEL} needs
+     *                   a {@link FileSystemResource} and streams any other source
+     * @param mode       how the file is read
+     * @param writerMode how contacts are written
+     * @param progress   the counters of the job, updated as chunks complete
+     * @param committed  rows committed by an earlier run of the job, which are skipped
+     * @return a future completed with the final statistics of the import
+     */
+    public CompletableFuture<ImportStatistics> importFile(InputStreamSource file, ImportMode mode, WriterMode writerMode,
+                                                          ImportProgress progress, CommittedRows committed) {
+        ImportMeters meters = importMetrics.acquire(progress.getJobId());
+        boolean staged = writerMode == WriterMode.STAGED;
+        // Staged imports deduplicate in the staging table
+        ImportRun run = new ImportRun(writerMode, progress, new DuplicateFilter(staged ? 0 : expectedRows(file)),
+                committed, meters, interner(meters));
+        CompletableFuture<ImportStatistics> result = staged
+                ? importStaged(file, mode, run)
+                : read(file, mode, batch -> processBatch(batch, run), run);
+        return result.whenComplete((statistics, ex) -> {
+            logInterner(run);
+            importMetrics.release(meters);
+        });
+    }
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+    private ColumnInterner interner(ImportMeters meters) {
+        ImportProperties.Interning interning = importProperties.getInterning();
+        return interning.isEnabled()
+                ? new ColumnInterner(interning.getColumns(), interning.getMaxValuesPerColumn(),
+                        meters.getInternerStatistics())
+                : ColumnInterner.disabled();
+    }
 
-            // Parse CSV using header mapping (assumes a header row exists)
-            CSVFormat format = CSVFormat.Builder.create(CSVFormat.DEFAULT)
-                    .setHeader()
-                    .setSkipHeaderRecord(true)
-                    .setTrim(true).get();
+    private void logInterner(ImportRun run) {
+        ColumnInterner.Statistics statistics = run.interner().statistics();
+        List<String> overflowed = run.interner().overflowedColumns();
+        if (!overflowed.isEmpty()) {
+            log.info("Import job {}: columns {} have more than {} distinct values and were not interned",
+                    run.jobId(), overflowed, importProperties.getInterning().getMaxValuesPerColumn());
+        }
+        log.debug("Import job {}: interned column values {} hits, {} misses, {} bypassed (hit ratio {})",
+                run.jobId(), statistics.hits(), statistics.misses(), statistics.bypassed(),
+                String.format("%.3f", statistics.hitRatio()));
+    }
 
-            CSVParser csvParser = format.parse(reader);
+    private CompletableFuture<ImportStatistics> read(InputStreamSource file, ImportMode mode,
+                                                     Consumer<List<CsvRow>> handler, ImportRun run) {
+        return switch (mode) {
+            case BUFFERED -> importBuffered(file, handler, run);
+            case STREAMING -> importStreaming(file, handler, run);
+            case PARALLEL -> file instanceof FileSystemResource resource
+                    ? importParallel(resource.getFile().toPath(), handler, run)
+                    : importStreaming(file, handler, run);
+        };
+    }
 
-            List<CSVRecord> records = csvParser.getRecords();
-            int totalRecords = records.size();
-            log.info("Total records found: {}", totalRecords);
+    /**
+     * Loads the file into the staging table of the job, read as {@code mode}, then validates and
+     * merges it on a parser thread; see {@link StagedContactImport}. The staging table is dropped
+     * once the import completes or fails.
+     */
+    private CompletableFuture<ImportStatistics> importStaged(InputStreamSource file, ImportMode mode, ImportRun run) {
+        long jobId = run.jobId();
+        try {
+            stagedContactImport.create(jobId);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return read(file, mode, batch -> stagedContactImport.load(batch, run), run)
+                .thenCompose(loaded -> importExecutor.parse(() -> {
+                    stagedContactImport.validate(run);
+                    stagedContactImport.merge(run);
+                    return run.progress().toStatistics();
+                }))
+                .whenComplete((statistics, ex) -> {
+                    try {
+                        stagedContactImport.drop(jobId);
+                    } catch (RuntimeException e) {
+                        log.warn("Cannot drop the staging table of import job {}: {}", jobId, e.getMessage());
+                    }
+                });
+    }
 
-            // Partition records into batches for multithreaded processing
-            for (int i = 0; i < records.size(); i += BATCH_SIZE) {
-                int end = Math.min(i + BATCH_SIZE, records.size());
-                List<CSVRecord> batch = records.subList(i, end);
-                futures.add(processBatch(new ArrayList<>(batch)));
+    private long expectedRows(InputStreamSource file) {
+        if (file instanceof FileSystemResource resource) {
+            try {
+                return resource.contentLength() / AVERAGE_ROW_BYTES;
+            } catch (IOException e) {
+                log.debug("Cannot read size of {}: {}", resource.getPath(), e.getMessage());
             }
+        }
+        return DEFAULT_EXPECTED_ROWS;
+    }
+
+    /**
+     * Imports one byte range of an uncompressed file on the calling thread. Used by cluster imports,
+     * where the replicas claim the ranges of a shared file one at a time.
+     *
+     * @param committed rows of the range committed by an earlier attempt, which are skipped
+     * @param cancelled checked before every record; the import of the range stops once it returns {@code true}
+     * @return the statistics of the range
+     */
+    public ImportStatistics importRange(Path file, CsvHeader header, Range range, WriterMode writerMode,
+                                        ImportProgress progress, CommittedRows committed, BooleanSupplier cancelled) {
+        ImportMeters meters = importMetrics.acquire(progress.getJobId());
+        try {
+            ImportRun run = new ImportRun(writerMode, progress,
+                    new DuplicateFilter(range.length() / AVERAGE_ROW_BYTES), committed, meters, interner(meters));
+            parallelPipeline(run).parseRange(file, header, range, batch -> processBatch(batch, run), cancelled);
+            return progress.toStatistics();
+        } finally {
+            importMetrics.release(meters);
+        }
+    }
 
-            // When all batch processes complete, return the aggregated statistics
-            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                    .thenApply(voided -> new ImportStatistics(
-                            (long) totalImported.get(),
-                            (long) totalFailed.get(),
-                            (long) totalRecords));
+    /**
+     * Parses byte ranges of an uncompressed file in parallel; see {@link ParallelImportPipeline}.
+     */
+    private CompletableFuture<ImportStatistics> importParallel(Path file, Consumer<List<CsvRow>> handler,
+                                                               ImportRun run) {
+        return parallelPipeline(run).start(file, handler)
+                .thenApply(totalRecords -> run.progress().toStatistics());
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing CSV file: {}", e.getMessage());
-            // If there is a failure reading the file, return statistics with zero processed records.
-            return CompletableFuture.completedFuture(new ImportStatistics((long) totalImported.get(),
-                    (long) totalFailed.get(), 0L));
+    private ParallelImportPipeline parallelPipeline(ImportRun run) {
+        ImportProperties.Parallel parallel = importProperties.getParallel();
+        ImportProgress progress = run.progress();
+        ImportMeters meters = run.meters();
+        return new ParallelImportPipeline(importProperties.getBatchSize(),
+                parallel.getParallelism(), parallel.getMinRangeSize().toBytes(),
+                importExecutor.getParsePool(), importExecutor, bytes -> {
+                    progress.addBytes(bytes);
+                    meters.addBytes(bytes);
+                }, meters, run.interner());
+    }
+
+    /**
+     * Streams the file through a bounded parse/write pipeline, so only a few chunks
+     * are held in memory regardless of file size.
+     */
+    private CompletableFuture<ImportStatistics> importStreaming(InputStreamSource file, Consumer<List<CsvRow>> handler,
+                                                                ImportRun run) {
+        StreamingImportPipeline pipeline = new StreamingImportPipeline(importProperties.getBatchSize(), importExecutor,
+                run.meters(), run.interner());
+        try {
+            BufferedReader reader = openReader(file, run.meters());
+            return pipeline.start(reader, handler)
+                    .thenApply(totalRecords -> run.progress().toStatistics());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    @Async
-    public CompletableFuture<Void> processBatch(List<CSVRecord> batchRecords) {
-        for (CSVRecord csvRecord : batchRecords) {
+    private CompletableFuture<ImportStatistics> importBuffered(InputStreamSource file, Consumer<List<CsvRow>> handler,
+                                                               ImportRun run) {
+        ImportMeters meters = run.meters();
+        return importExecutor.parse(() -> {
+            int batchSize = importProperties.getBatchSize();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            try (BufferedReader reader = openReader(file, meters)) {
+                long parseStarted = System.nanoTime();
+
+                // Parse CSV using header mapping (assumes a header row exists)
+                CSVFormat format = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                        .setHeader()
+                        .setSkipHeaderRecord(true)
+                        // Counted like in the other modes, see CsvRecordReader.isEmptyLine
+                        .setIgnoreEmptyLines(false)
+                        .setTrim(true).get();
+
+                CSVParser csvParser = format.parse(reader);
+                CsvHeader header = CsvHeader.of(csvParser.getHeaderNames());
+
+                // Interned as each record is parsed, so the whole file retains one instance per distinct
+                // value of an interned column, not the parser's copy of every row
+                List<CsvRow> rows = csvParser.stream()
+                        .filter(csvRecord -> !CsvRecordReader.isEmptyLine(csvRecord.values()))
+                        .map(csvRecord -> {
+                            String[] values = csvRecord.values();
+                            run.interner().intern(header, values);
+                            return new CsvRow(header, values, csvRecord.getRecordNumber());
+                        })
+                        .toList();
+                meters.recordParse(System.nanoTime() - parseStarted);
+                log.info("Total records found: {}", rows.size());
+
+                // Partition rows into batches and hand them to the import workers
+                for (int i = 0; i < rows.size(); i += batchSize) {
+                    List<CsvRow> batch = rows.subList(i, Math.min(i + batchSize, rows.size()));
+                    Runnable chunk = meters.chunk(() -> handler.accept(batch));
+                    try {
+                        futures.add(importExecutor.submit(chunk));
+                    } catch (InterruptedException | RuntimeException e) {
+                        meters.chunkRejected();
+                        throw e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                log.error("Error processing CSV file: {}", e.getMessage());
+                throw new UncheckedIOException(e);
+            } finally {
+                // Wait for the batches already handed out, even when parsing failed half way
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            }
+            return run.progress().toStatistics();
+        });
+    }
+
+    private BufferedReader openReader(InputStreamSource file, ImportMeters meters) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new CountingInputStream(file.getInputStream(), meters::addBytes), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Maps and validates the batch and commits it in one transaction. Rows repeating the natural
+     * key of a contact the import stored are skipped as duplicates; rows that fail mapping, validation
+     * or writing are stored in {@code unimported_contacts}; see {@link ContactValidator},
+     * {@link BisectingChunkWriter} and {@link #writeFirstOccurrences}.
+     * <p>
+     * Every transaction also checkpoints the rows it disposes of, so a resumed run skips exactly
+     * the rows already committed. Those rows are still mapped and validated to add the natural
+     * key of the valid ones to the {@link DuplicateFilter}.
+     */
+    public void processBatch(List<CsvRow> batchRecords, ImportRun run) {
+        ImportProgress progress = run.progress();
+        ImportMeters meters = run.meters();
+        long mapStarted = System.nanoTime();
+        Contact[] mapped = new Contact[batchRecords.size()];
+        List<RowFailure> rejected = new ArrayList<>();
+        for (int i = 0; i < mapped.length; i++) {
+            CsvRow row = batchRecords.get(i);
             try {
-                Contact contact = mapRecordToContact(csvRecord);
-                contactRepository.save(contact);
-                totalImported.incrementAndGet();
+                mapped[i] = contactMapper.map(row);
             } catch (Exception e) {
-                log.error("Error importing record: {}", e.getMessage());
-                try {
-                    UnimportedContact unimportedContact = mapRecordToUnimportedContact(csvRecord, e.getMessage());
-                    unimportedContactRepository.save(unimportedContact);
-                } catch (Exception ex) {
-                    log.error("Error saving unimported record: {}", ex.getMessage());
+                if (!run.committed().contains(row.rowNumber())) {
+                    log.error("Error mapping record {}: {}", row.rowNumber(), e.getMessage());
+                    meters.failure(ImportMeters.STAGE_MAP, e);
+                    rejected.add(RowFailure.of(row, ErrorCodes.MAPPING_FAILED, e));
+                }
+            }
+        }
+        meters.recordMap(System.nanoTime() - mapStarted);
+
+        long validateStarted = System.nanoTime();
+        List<Contact> contacts = new ArrayList<>(mapped.length);
+        List<CsvRow> sources = new ArrayList<>(mapped.length);
+        for (int i = 0; i < mapped.length; i++) {
+            Contact contact = mapped[i];
+            if (contact == null) {
+                continue;
+            }
+            CsvRow row = batchRecords.get(i);
+            boolean committed = run.committed().contains(row.rowNumber());
+            RuleViolation violation = contactValidator.validate(contact);
+            if (violation != null) {
+                if (!committed) {
+                    meters.failure(ImportMeters.STAGE_VALIDATE, violation.rule());
+                    rejected.add(RowFailure.of(row, violation.rule(), violation.message()));
                 }
-                totalFailed.incrementAndGet();
+                continue;
+            }
+            naturalKey.normalize(contact);
+            if (committed) {
+                run.duplicates().add(naturalKey.keyOf(contact));
+                continue;
             }
+            contact.setImportId(run.jobId());
+            contacts.add(contact);
+            sources.add(row);
+        }
+        meters.recordValidate(System.nanoTime() - validateStarted);
+        long records = contacts.size() + rejected.size();
+        progress.addRecords(records);
+
+        long writeStarted = System.nanoTime();
+        List<Long> duplicateRows = new ArrayList<>();
+        WriteResult written = writeFirstOccurrences(contacts, sources, run, rejected, duplicateRows);
+        if (!contacts.isEmpty()) {
+            meters.recordWrite(System.nanoTime() - writeStarted);
+        }
+        progress.addImported(written.written());
+        progress.addUpdated(written.updated());
+        progress.addDuplicates(duplicateRows.size());
+        progress.addFailed(rejected.size());
+        rejected.forEach(failure -> progress.addRuleFailure(failure.errorCode()));
+        meters.addRows(records, written.inserted(), written.updated(), rejected.size(), duplicateRows.size());
+        if (!rejected.isEmpty() || !duplicateRows.isEmpty()) {
+            long persistStarted = System.nanoTime();
+            saveUnimported(run.jobId(), rejected, duplicateRows, meters);
+            meters.recordFailurePersist(System.nanoTime() - persistStarted);
         }
-        return CompletableFuture.completedFuture(null);
     }
 
-    private Contact mapRecordToContact(CSVRecord csvRecord) {
-        Contact contact = new Contact();
-        contact.setOfficeName(csvRecord.get("Office Name"));
-        contact.setUserId(csvRecord.get("User ID"));
-        contact.setUserName(csvRecord.get("User Name"));
-        contact.setFullName(csvRecord.get("Full Name"));
-        contact.setTitle(csvRecord.get("Title"));
-        contact.setSalutation(csvRecord.get("Salutation"));
-        contact.setEnvelopeLabelSalutation(csvRecord.get("Envelope/Label Salutation"));
-        contact.setCompany(csvRecord.get("Company"));
-        contact.setFirstName(csvRecord.get("First Name"));
-        contact.setMi(csvRecord.get("MI"));
-        contact.setLastName(csvRecord.get("Last Name"));
-        contact.setSpouseFirstName(csvRecord.get("Spouse First Name"));
-        contact.setSpouseMI(csvRecord.get("Spouse MI"));
-        contact.setSpouseLastName(csvRecord.get("Spouse Last Name"));
-        contact.setBirthday(csvRecord.get("Birthday"));
-        contact.setSpouseBirthday(csvRecord.get("Spouse Birthday"));
-        contact.setWeddingAnniversary(csvRecord.get("Wedding Anniversary"));
-        contact.setExpectedMoveDate(csvRecord.get("Expected Move Date"));
-        contact.setTypeOfService(csvRecord.get("Type of Service"));
-        contact.setWebsite(csvRecord.get("Website"));
-        contact.setOfficePhone(csvRecord.get("Office Phone"));
-        contact.setFax(csvRecord.get("Fax"));
-        contact.setInteractionNotes(csvRecord.get("Interaction Notes"));
-        contact.setFullAddress(csvRecord.get("Full Address"));
-        contact.setFullStreetAddress(csvRecord.get("Full Street Address"));
-        contact.setStreetNumber(csvRecord.get("Street Number"));
-        contact.setStreetName(csvRecord.get("Street Name"));
-        contact.setUnit(csvRecord.get("Unit"));
-        contact.setAddress2(csvRecord.get("Address 2"));
-        contact.setAddress3(csvRecord.get("Address 3"));
-        contact.setCity(csvRecord.get("City"));
-        contact.setStateProvince(csvRecord.get("State/Province"));
-        contact.setZipCodePostalCode(csvRecord.get("ZIP Code/Postal Code"));
-        contact.setCountry(csvRecord.get("Country"));
-        contact.setAlternateAddressStreetHouseNumber(csvRecord.get("Alternate Address Street/House Number"));
-        contact.setAlternateAddressStreetName(csvRecord.get("Alternate Address Street Name"));
-
-        contact.setAlternateAddressUnit(csvRecord.get("Unit"));
-        contact.setAlternateAddressCity(csvRecord.get("Alternate Address City"));
-        contact.setAlternateAddressStateProvinceTerritory(csvRecord.get("Alternate Address State / Province / Territory"));
-        contact.setAlternateAddressZipPostalCode(csvRecord.get("Alternate Address ZIP / Postal Code"));
-        contact.setAlternateAddress2(csvRecord.get("Alternate Address 2"));
-        contact.setAlternateAddress3(csvRecord.get("Alternate Address 3"));
-        contact.setAlternateFullStreetAddress(csvRecord.get("Alternate Full Street Address"));
-        contact.setPreferredPhone(csvRecord.get("Preferred Phone"));
-        contact.setWorkPhone(csvRecord.get("Work Phone"));
-        contact.setHomePhone(csvRecord.get("Home Phone"));
-        contact.setCellPhone(csvRecord.get("Cell Phone"));
-        contact.setSpouseCellPhone(csvRecord.get("Spouse Cell Phone"));
-        contact.setSpouseWorkPhone(csvRecord.get("Spouse Work Phone"));
-        contact.setBestTimeToContact(csvRecord.get("Best Time to Contact"));
-
-        contact.setFaxAlt(csvRecord.get("Fax"));
-        contact.setEmail(csvRecord.get("Email"));
-        contact.setSecondaryEmail(csvRecord.get("Secondary Email"));
-        contact.setPartnerEmailAddress(csvRecord.get("Partner Email Address"));
-        contact.setDoNotMail(csvRecord.get("Do Not Mail"));
-        contact.setOtherPhone(csvRecord.get("Other Phone"));
-        contact.setPosition(csvRecord.get("Position"));
-        contact.setEmployer(csvRecord.get("Employer"));
-        contact.setSpouseEmployer(csvRecord.get("Spouse Employer"));
-        contact.setSpousePosition(csvRecord.get("Spouse Position"));
-        contact.setInterest(csvRecord.get("Interest"));
-        contact.setLeadSource(csvRecord.get("Lead Source"));
-        contact.setPriority(csvRecord.get("Priority"));
-        contact.setSalesPipelineStage(csvRecord.get("Sales Pipeline Stage"));
-        contact.setSecondarySource(csvRecord.get("Secondary Source"));
-        contact.setStatus(csvRecord.get("Status"));
-        contact.setTimeFrame(csvRecord.get("Time Frame"));
-        contact.setPriceRange(csvRecord.get("Price Range"));
-        contact.setLocations(csvRecord.get("Locations"));
-        contact.setContactGroups(csvRecord.get("Contact Groups"));
-        contact.setDeadLeadDate(csvRecord.get("Dead Lead Date"));
-        contact.setDeadLeadReason(csvRecord.get("Dead Lead Reason"));
-        contact.setCurrentBedrooms(csvRecord.get("Current Bedrooms"));
-        contact.setCurrentBaths(csvRecord.get("Current Baths"));
-        contact.setCurrentSqFeet(csvRecord.get("Current Sq. Feet"));
-        contact.setCurrentGarageSpaces(csvRecord.get("Current Garage Spaces"));
-        contact.setCurrentPool(csvRecord.get("Current Pool"));
-        contact.setCurrentPropertyType(csvRecord.get("Current Property Type"));
-        contact.setCurrentHomeType(csvRecord.get("Current Home Type"));
-        contact.setCurrentHomeStyle(csvRecord.get("Current Home Style"));
-        contact.setCurrentConstruction(csvRecord.get("Current Construction"));
-        contact.setCurrentSpecialRequirements(csvRecord.get("Current Special Requirements"));
-        contact.setDesiredBedrooms(csvRecord.get("Desired Bedrooms"));
-        contact.setDesiredBaths(csvRecord.get("Desired Baths"));
-        contact.setDesiredSqFeet(csvRecord.get("Desired Sq. Feet"));
-        contact.setDesiredGarageSpaces(csvRecord.get("Desired Garage Spaces"));
-        contact.setDesiredPool(csvRecord.get("Desired Pool"));
-        contact.setDesiredPropertyType(csvRecord.get("Desired Property Type"));
-        contact.setDesiredHomeType(csvRecord.get("Desired Home Type"));
-        contact.setDesiredHomeStyle(csvRecord.get("Desired Home Style"));
-        contact.setDesiredConstruction(csvRecord.get("Desired Construction"));
-        contact.setViewAmenities(csvRecord.get("View / Amenities"));
-        contact.setDesiredSpecialRequirements(csvRecord.get("Desired Special Requirements"));
-        contact.setOwnsCurrentResidence(csvRecord.get("Owns Current Residence"));
-        contact.setDatePurchasedCurrentHome(csvRecord.get("Date Purchased Current Home"));
-        contact.setPrequalified(csvRecord.get("Prequalified"));
-        contact.setPrequalifiedAmount(csvRecord.get("Prequalified Amount"));
-        contact.setNotes(csvRecord.get("Notes"));
-        contact.setCreatedDate(csvRecord.get("Created Date"));
-        contact.setModifiedDate(csvRecord.get("Modified Date"));
-        return contact;
+    /**
+     * Writes the contacts, skipping those repeating the natural key of a contact the import has
+     * stored. The database decides which row of a key is stored: the first one to commit, as
+     * {@code contact_keys} rejects any later one. So a row only becomes a duplicate once a row
+     * with its key is committed, and a row that fails to write never costs a later one its place.
+     * <ul>
+     *     <li>Keys the {@link DuplicateFilter} may have seen are looked up first; those the import
+     *     stored make their rows duplicates without a failed write.</li>
+     *     <li>A row repeating a key of the same chunk waits for the outcome of the earlier row and
+     *     is written in another round if that row was not stored.</li>
+     *     <li>A row rejected as {@link ErrorCodes#DUPLICATE_KEY} whose key the import stored, e.g.
+     *     by a concurrent chunk or another replica, is a duplicate as well.</li>
+     * </ul>
+     * Committed keys are added to the filter.
+     */
+    private WriteResult writeFirstOccurrences(List<Contact> contacts, List<CsvRow> sources, ImportRun run,
+                                              List<RowFailure> rejected, List<Long> duplicateRows) {
+        ImportMeters meters = run.meters();
+        WriteResult written = WriteResult.EMPTY;
+        while (!contacts.isEmpty()) {
+            Set<String> keys = new HashSet<>();
+            List<Contact> round = new ArrayList<>(contacts.size());
+            List<CsvRow> roundSources = new ArrayList<>(contacts.size());
+            List<Contact> deferred = new ArrayList<>();
+            List<CsvRow> deferredSources = new ArrayList<>();
+            for (int i = 0; i < contacts.size(); i++) {
+                String key = naturalKey.keyOf(contacts.get(i));
+                if (key != null && !keys.add(key)) {
+                    deferred.add(contacts.get(i));
+                    deferredSources.add(sources.get(i));
+                } else {
+                    round.add(contacts.get(i));
+                    roundSources.add(sources.get(i));
+                }
+            }
+
+            Set<String> stored = contactKeys.storedBy(run.jobId(), round.stream()
+                    .filter(contact -> run.duplicates().mightContain(naturalKey.keyOf(contact)))
+                    .toList());
+            List<Contact> toWrite = new ArrayList<>(round.size());
+            List<CsvRow> toWriteSources = new ArrayList<>(round.size());
+            Map<CsvRow, Contact> bySource = new IdentityHashMap<>();
+            for (int i = 0; i < round.size(); i++) {
+                if (stored.contains(naturalKey.keyOf(round.get(i)))) {
+                    duplicateRows.add(roundSources.get(i).rowNumber());
+                } else {
+                    toWrite.add(round.get(i));
+                    toWriteSources.add(roundSources.get(i));
+                    bySource.put(roundSources.get(i), round.get(i));
+                }
+            }
+
+            Map<CsvRow, Exception> failed = new IdentityHashMap<>();
+            written = written.plus(chunkWriter.write(toWrite, toWriteSources, writerFor(run.writerMode()),
+                    failed::put,
+                    (slice, result) -> {
+                        checkpointStore.record(run.jobId(), slice.stream().map(CsvRow::rowNumber).toList(),
+                                new ImportStatistics((long) result.written(), 0L, (long) slice.size(), 0L,
+                                        (long) result.updated()));
+                        importCounters.add(result.inserted(), 0);
+                    }));
+            for (int i = 0; i < toWrite.size(); i++) {
+                if (!failed.containsKey(toWriteSources.get(i))) {
+                    stored.add(naturalKey.keyOf(toWrite.get(i)));
+                }
+            }
+
+            List<Contact> duplicateKeyRejects = failed.entrySet().stream()
+                    .filter(failure -> ErrorCodes.DUPLICATE_KEY.equals(ErrorCodes.ofWriteFailure(failure.getValue())))
+                    .map(failure -> bySource.get(failure.getKey()))
+                    .toList();
+            Set<String> storedElsewhere = duplicateKeyRejects.isEmpty()
+                    ? Set.of() : contactKeys.storedBy(run.jobId(), duplicateKeyRejects);
+            stored.addAll(storedElsewhere);
+            failed.forEach((row, e) -> {
+                if (storedElsewhere.contains(naturalKey.keyOf(bySource.get(row)))) {
+                    duplicateRows.add(row.rowNumber());
+                } else {
+                    meters.failure(ImportMeters.STAGE_WRITE, e);
+                    rejected.add(RowFailure.of(row, ErrorCodes.ofWriteFailure(e), e));
+                }
+            });
+            stored.forEach(run.duplicates()::add);
+
+            contacts = new ArrayList<>(deferred.size());
+            sources = new ArrayList<>(deferred.size());
+            for (int i = 0; i < deferred.size(); i++) {
+                if (stored.contains(naturalKey.keyOf(deferred.get(i)))) {
+                    duplicateRows.add(deferredSources.get(i).rowNumber());
+                } else {
+                    contacts.add(deferred.get(i));
+                    sources.add(deferredSources.get(i));
+                }
+            }
+        }
+        return written;
     }
 
-    private UnimportedContact mapRecordToUnimportedContact(CSVRecord csvRecord, String errorMessage) {
-        UnimportedContact unimported = new UnimportedContact();
-        unimported.setErrorMessage(errorMessage);
-
-        unimported.setOfficeId(csvRecord.get("Office ID"));
-        unimported.setOfficeName(csvRecord.get("Office Name"));
-        unimported.setUserId(csvRecord.get("User ID"));
-        unimported.setUserName(csvRecord.get("User Name"));
-        unimported.setFullName(csvRecord.get("Full Name"));
-        unimported.setTitle(csvRecord.get("Title"));
-        unimported.setSalutation(csvRecord.get("Salutation"));
-        unimported.setEnvelopeLabelSalutation(csvRecord.get("Envelope/Label Salutation"));
-        unimported.setCompany(csvRecord.get("Company"));
-        unimported.setFirstName(csvRecord.get("First Name"));
-        unimported.setMi(csvRecord.get("MI"));
-        unimported.setLastName(csvRecord.get("Last Name"));
-        unimported.setSpouseFirstName(csvRecord.get("Spouse First Name"));
-        unimported.setSpouseMI(csvRecord.get("Spouse MI"));
-        unimported.setSpouseLastName(csvRecord.get("Spouse Last Name"));
-        unimported.setBirthday(csvRecord.get("Birthday"));
-        unimported.setSpouseBirthday(csvRecord.get("Spouse Birthday"));
-        unimported.setWeddingAnniversary(csvRecord.get("Wedding Anniversary"));
-        unimported.setExpectedMoveDate(csvRecord.get("Expected Move Date"));
-        unimported.setTypeOfService(csvRecord.get("Type of Service"));
-        unimported.setWebsite(csvRecord.get("Website"));
-        unimported.setOfficePhone(csvRecord.get("Office Phone"));
-        unimported.setFax(csvRecord.get("Fax"));
-        unimported.setInteractionNotes(csvRecord.get("Interaction Notes"));
-        unimported.setFullAddress(csvRecord.get("Full Address"));
-        unimported.setFullStreetAddress(csvRecord.get("Full Street Address"));
-        unimported.setStreetNumber(csvRecord.get("Street Number"));
-        unimported.setStreetName(csvRecord.get("Street Name"));
-        unimported.setUnit(csvRecord.get("Unit"));
-        unimported.setAddress2(csvRecord.get("Address 2"));
-        unimported.setAddress3(csvRecord.get("Address 3"));
-        unimported.setCity(csvRecord.get("City"));
-        unimported.setStateProvince(csvRecord.get("State/Province"));
-        unimported.setZipCodePostalCode(csvRecord.get("ZIP Code/Postal Code"));
-        unimported.setCountry(csvRecord.get("Country"));
-        unimported.setAlternateAddressStreetHouseNumber(csvRecord.get("Alternate Address Street/House Number"));
-        unimported.setAlternateAddressStreetName(csvRecord.get("Alternate Address Street Name"));
-        unimported.setAlternateAddressUnit(csvRecord.get("Unit")); // Adjust if header differs
-        unimported.setAlternateAddressCity(csvRecord.get("Alternate Address City"));
-        unimported.setAlternateAddressStateProvinceTerritory(csvRecord.get("Alternate Address State / Province / Territory"));
-        unimported.setAlternateAddressZipPostalCode(csvRecord.get("Alternate Address ZIP / Postal Code"));
-        unimported.setAlternateAddress2(csvRecord.get("Alternate Address 2"));
-        unimported.setAlternateAddress3(csvRecord.get("Alternate Address 3"));
-        unimported.setAlternateFullStreetAddress(csvRecord.get("Alternate Full Street Address"));
-        unimported.setPreferredPhone(csvRecord.get("Preferred Phone"));
-        unimported.setWorkPhone(csvRecord.get("Work Phone"));
-        unimported.setHomePhone(csvRecord.get("Home Phone"));
-        unimported.setCellPhone(csvRecord.get("Cell Phone"));
-        unimported.setSpouseCellPhone(csvRecord.get("Spouse Cell Phone"));
-        unimported.setSpouseWorkPhone(csvRecord.get("Spouse Work Phone"));
-        unimported.setBestTimeToContact(csvRecord.get("Best Time to Contact"));
-        unimported.setFaxAlt(csvRecord.get("Fax"));
-        unimported.setEmail(csvRecord.get("Email"));
-        unimported.setSecondaryEmail(csvRecord.get("Secondary Email"));
-        unimported.setPartnerEmailAddress(csvRecord.get("Partner Email Address"));
-        unimported.setDoNotMail(csvRecord.get("Do Not Mail"));
-        unimported.setOtherPhone(csvRecord.get("Other Phone"));
-        unimported.setPosition(csvRecord.get("Position"));
-        unimported.setEmployer(csvRecord.get("Employer"));
-        unimported.setSpouseEmployer(csvRecord.get("Spouse Employer"));
-        unimported.setSpousePosition(csvRecord.get("Spouse Position"));
-        unimported.setInterest(csvRecord.get("Interest"));
-        unimported.setLeadSource(csvRecord.get("Lead Source"));
-        unimported.setPriority(csvRecord.get("Priority"));
-        unimported.setSalesPipelineStage(csvRecord.get("Sales Pipeline Stage"));
-        unimported.setSecondarySource(csvRecord.get("Secondary Source"));
-        unimported.setStatus(csvRecord.get("Status"));
-        unimported.setTimeFrame(csvRecord.get("Time Frame"));
-        unimported.setPriceRange(csvRecord.get("Price Range"));
-        unimported.setLocations(csvRecord.get("Locations"));
-        unimported.setContactGroups(csvRecord.get("Contact Groups"));
-        unimported.setDeadLeadDate(csvRecord.get("Dead Lead Date"));
-        unimported.setDeadLeadReason(csvRecord.get("Dead Lead Reason"));
-        unimported.setCurrentBedrooms(csvRecord.get("Current Bedrooms"));
-        unimported.setCurrentBaths(csvRecord.get("Current Baths"));
-        unimported.setCurrentSqFeet(csvRecord.get("Current Sq. Feet"));
-        unimported.setCurrentGarageSpaces(csvRecord.get("Current Garage Spaces"));
-        unimported.setCurrentPool(csvRecord.get("Current Pool"));
-        unimported.setCurrentPropertyType(csvRecord.get("Current Property Type"));
-        unimported.setCurrentHomeType(csvRecord.get("Current Home Type"));
-        unimported.setCurrentHomeStyle(csvRecord.get("Current Home Style"));
-        unimported.setCurrentConstruction(csvRecord.get("Current Construction"));
-        unimported.setCurrentSpecialRequirements(csvRecord.get("Current Special Requirements"));
-        unimported.setDesiredBedrooms(csvRecord.get("Desired Bedrooms"));
-        unimported.setDesiredBaths(csvRecord.get("Desired Baths"));
-        unimported.setDesiredSqFeet(csvRecord.get("Desired Sq. Feet"));
-        unimported.setDesiredGarageSpaces(csvRecord.get("Desired Garage Spaces"));
-        unimported.setDesiredPool(csvRecord.get("Desired Pool"));
-        unimported.setDesiredPropertyType(csvRecord.get("Desired Property Type"));
-        unimported.setDesiredHomeType(csvRecord.get("Desired Home Type"));
-        unimported.setDesiredHomeStyle(csvRecord.get("Desired Home Style"));
-        unimported.setDesiredConstruction(csvRecord.get("Desired Construction"));
-        unimported.setViewAmenities(csvRecord.get("View / Amenities"));
-        unimported.setDesiredSpecialRequirements(csvRecord.get("Desired Special Requirements"));
-        unimported.setOwnsCurrentResidence(csvRecord.get("Owns Current Residence"));
-        unimported.setDatePurchasedCurrentHome(csvRecord.get("Date Purchased Current Home"));
-        unimported.setPrequalified(csvRecord.get("Prequalified"));
-        unimported.setPrequalifiedAmount(csvRecord.get("Prequalified Amount"));
-        unimported.setNotes(csvRecord.get("Notes"));
-        unimported.setCreatedDate(csvRecord.get("Created Date"));
-        unimported.setModifiedDate(csvRecord.get("Modified Date"));
-        return unimported;
+    private ContactWriter writerFor(WriterMode writerMode) {
+        return switch (writerMode) {
+            case JPA -> jpaContactWriter;
+            case COPY -> copyContactWriter;
+            case JDBC_BATCH -> contactBatchWriter;
+            case UPSERT -> contactUpsertWriter;
+            case STAGED -> throw new IllegalArgumentException("Staged imports are not written chunk by chunk");
+        };
+    }
+
+    /**
+     * Stores the rejected rows in one batch, in one transaction with the checkpoint of the
+     * rejected and duplicate rows. If that fails the failure is rethrown and fails the import;
+     * the rows stay uncheckpointed, so the resumed run processes them again.
+     */
+    private void saveUnimported(long jobId, List<RowFailure> rejected, List<Long> duplicateRows, ImportMeters meters) {
+        List<Long> rowNumbers = new ArrayList<>(duplicateRows);
+        rejected.forEach(failure -> rowNumbers.add(failure.rowNumber()));
+        rowNumbers.sort(Comparator.naturalOrder());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                failureSink.write(jobId, rejected);
+                checkpointStore.record(jobId, rowNumbers, new ImportStatistics(0L, (long) rejected.size(),
+                        (long) rowNumbers.size(), (long) duplicateRows.size(), 0L));
+                importCounters.add(0, rejected.size());
+            });
+        } catch (Exception e) {
+            log.error("Error saving {} unimported records of import job {}: {}", rejected.size(), jobId,
+                    e.getMessage());
+            meters.failure(ImportMeters.STAGE_FAILURE_PERSIST, e);
+            throw e;
+        }
     }
 }
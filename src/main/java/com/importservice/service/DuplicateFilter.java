@@ -0,0 +1,104 @@
+package com.importservice.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the natural keys one run of an import has committed, so rows repeating one are
+ * recognized before they reach the database. Keys are added only once their row is committed,
+ * so a row that fails to write never shadows a later row with the same key.
+ * <p>
+ * A Bloom filter of about {@value #BITS_PER_KEY} bits per expected key and {@value #HASHES}
+ * hash functions, allocated once and capped at {@code 2^27} bits (16 MB): it may report a key
+ * that was never added, about 1% of the time at the expected size and more beyond it, but never
+ * misses one. Callers confirm every hit against {@code contact_keys}, so a false positive
+ * costs a lookup, never a row.
+ */
+public class DuplicateFilter {
+
+    private static final int BITS_PER_KEY = 10;
+
+    private static final int HASHES = 7;
+
+    private static final long MIN_BITS = 1L << 13;
+
+    private static final long MAX_BITS = 1L << 27;
+
+    private final AtomicLongArray words;
+
+    private final long mask;
+
+    /**
+     * @param expectedKeys estimated number of rows of the import, used to size the filter
+     */
+    public DuplicateFilter(long expectedKeys) {
+        long wanted = Math.min(Math.max(expectedKeys, 0) * BITS_PER_KEY, MAX_BITS);
+        long bits = MIN_BITS;
+        while (bits < wanted) {
+            bits <<= 1;
+        }
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.mask = bits - 1;
+    }
+
+    /**
+     * Records the key of a committed row.
+     *
+     * @param key the natural key of the row, or {@code null} if the row has none
+     */
+    public void add(String key) {
+        if (key == null) {
+            return;
+        }
+        long hash = fingerprint(key);
+        long step = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < HASHES; i++, hash += step) {
+            long bit = hash & mask;
+            long flag = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), flag, (word, set) -> word | set);
+        }
+    }
+
+    /**
+     * @param key the natural key of a row, or {@code null} if the row has none
+     * @return {@code false} if the key was certainly not added; {@code true} if it probably was
+     */
+    public boolean mightContain(String key) {
+        if (key == null) {
+            return false;
+        }
+        long hash = fingerprint(key);
+        long step = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < HASHES; i++, hash += step) {
+            long bit = hash & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the size of the filter in bits
+     */
+    public long bits() {
+        return mask + 1;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer.
+     */
+    private static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.importservice.service;
+
+import com.importservice.config.ImportProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Execution subsystem shared by all imports.
+ * <p>
+ * Chunks run on a worker pool of {@code import.executor.pool-size} platform threads, or on
+ * virtual threads capped at the same concurrency, since the writes block on JDBC. At most
+ * {@code import.executor.queue-depth} chunks wait for a worker; beyond that {@link #submit}
+ * blocks, so a fast parser is throttled instead of piling up parsed chunks on the heap.
+ * <p>
+ * Parsers run on their own threads so a parser waiting for queue space never occupies a worker;
+ * byte ranges of a file parsed in parallel run on a separate fork-join pool.
+ */
+@Slf4j
+@Component
+public class ImportExecutor {
+
+    private final int poolSize;
+
+    private final int queueDepth;
+
+    private final Semaphore admission;
+
+    private final Semaphore running;
+
+    private final ExecutorService workers;
+
+    private final ExecutorService parsers;
+
+    private final ForkJoinPool parsePool;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    public ImportExecutor(ImportProperties importProperties, MeterRegistry meterRegistry) {
+        ImportProperties.Executor config = importProperties.getExecutor();
+        if (config.getPoolSize() < 1 || config.getQueueDepth() < 0) {
+            throw new IllegalArgumentException("import.executor.pool-size must be positive and queue-depth not negative");
+        }
+        this.poolSize = config.getPoolSize();
+        this.queueDepth = config.getQueueDepth();
+        this.admission = new Semaphore(poolSize + queueDepth);
+        this.running = new Semaphore(poolSize);
+        this.workers = config.isVirtualThreads()
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("import-worker-", 0).factory())
+                : Executors.newFixedThreadPool(poolSize, platformThreads("import-worker-"));
+        this.parsers = Executors.newCachedThreadPool(platformThreads("import-parser-"));
+        this.parsePool = new ForkJoinPool(Math.max(1, importProperties.getParallel().getParallelism()));
+        log.info("Import executor: {} {} workers, queue depth {}", poolSize,
+                config.isVirtualThreads() ? "virtual" : "platform", queueDepth);
+
+        Gauge.builder("import.executor.pool.size", this, ImportExecutor::getPoolSize)
+                .description("Maximum number of concurrently written chunks").register(meterRegistry);
+        Gauge.builder("import.executor.queue.depth", this, ImportExecutor::getQueueDepth)
+                .description("Maximum number of chunks waiting for a worker").register(meterRegistry);
+        Gauge.builder("import.executor.queued", this, ImportExecutor::getQueuedChunks)
+                .description("Chunks waiting for a worker").register(meterRegistry);
+        Gauge.builder("import.executor.active", this, ImportExecutor::getActiveWorkers)
+                .description("Workers currently writing a chunk").register(meterRegistry);
+    }
+
+    /**
+     * Runs a chunk on a worker, blocking the caller while the work queue is full.
+     *
+     * @return a future completed when the chunk has run
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public CompletableFuture<Void> submit(Runnable chunk) throws InterruptedException {
+        admission.acquire();
+        queued.incrementAndGet();
+        try {
+            return CompletableFuture.runAsync(() -> runChunk(chunk), workers);
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            admission.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a parser on a dedicated parser thread.
+     */
+    public <T> CompletableFuture<T> parse(Supplier<T> parser) {
+        return CompletableFuture.supplyAsync(parser, parsers);
+    }
+
+    /**
+     * Fork-join pool that parses byte ranges of one file in parallel.
+     */
+    public ForkJoinPool getParsePool() {
+        return parsePool;
+    }
+
+    private void runChunk(Runnable chunk) {
+        running.acquireUninterruptibly();
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            chunk.run();
+        } finally {
+            active.decrementAndGet();
+            running.release();
+            admission.release();
+        }
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueuedChunks() {
+        return queued.get();
+    }
+
+    public int getActiveWorkers() {
+        return active.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsers.shutdownNow();
+        parsePool.shutdownNow();
+        workers.shutdown();
+    }
+
+    private static ThreadFactory platformThreads(String prefix) {
+        return Thread.ofPlatform().name(prefix, 0).factory();
+    }
+
+}
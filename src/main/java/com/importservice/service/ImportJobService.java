@@ -0,0 +1,591 @@
+package com.importservice.service;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.dto.ImportProgressEvent;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.entity.ImportJob;
+import com.importservice.entity.ImportJobState;
+import com.importservice.repository.ImportJobRepository;
+import com.importservice.repository.UnimportedContactRepository;
+import com.importservice.service.checkpoint.CheckpointStore;
+import com.importservice.service.cluster.ClusterImportCoordinator;
+import com.importservice.service.cluster.ClusterImportFinished;
+import com.importservice.service.partition.ContactPartitions;
+import com.importservice.service.staging.StagedContactImport;
+import com.importservice.service.statistics.ImportCounters;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.compress.UploadFormat;
+import com.importservice.utils.io.CountingInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts imports as jobs and tracks their state.
+ * <p>
+ * An upload is spooled, as received, to {@code import.spool-directory} and acknowledged right away;
+ * the import runs in the background and its counters live in memory until the job
+ * finishes, when they are written to {@code import_jobs}.
+ * <p>
+ * The spooled upload is kept until every job importing it has completed. A job that failed, or
+ * was interrupted by a restart, can then be resumed: the rows committed before are known from
+ * {@link CheckpointStore} and skipped. Resuming and rolling back go by the state stored in
+ * {@code import_jobs}, changed with a conditional update, so they hold across instances.
+ * <p>
+ * Every job stores its contacts in its own partition of {@code contacts}, so a job is rolled
+ * back by dropping that partition.
+ */
+@Service
+@Slf4j
+public class ImportJobService {
+
+    private final ImportJobRepository importJobRepository;
+
+    private final CSVImportService csvImportService;
+
+    private final ImportProperties importProperties;
+
+    private final ClusterImportCoordinator clusterImportCoordinator;
+
+    private final CheckpointStore checkpointStore;
+
+    private final ImportProgressPublisher progressPublisher;
+
+    private final UnimportedContactRepository unimportedContactRepository;
+
+    private final ContactPartitions contactPartitions;
+
+    private final ImportCounters importCounters;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final StagedContactImport stagedContactImport;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<ImportJobState> RESUMABLE = EnumSet.of(ImportJobState.FAILED);
+
+    private static final Set<ImportJobState> ROLLBACKABLE = EnumSet.of(ImportJobState.COMPLETED, ImportJobState.FAILED);
+
+    private final Map<Long, ImportProgress> runningJobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(ImportJobRepository importJobRepository, CSVImportService csvImportService,
+                            ImportProperties importProperties,
+                            ObjectProvider<ClusterImportCoordinator> clusterImportCoordinator,
+                            CheckpointStore checkpointStore, ImportProgressPublisher progressPublisher,
+                            UnimportedContactRepository unimportedContactRepository,
+                            ContactPartitions contactPartitions, ImportCounters importCounters,
+                            TransactionTemplate transactionTemplate, StagedContactImport stagedContactImport) {
+        this.importJobRepository = importJobRepository;
+        this.csvImportService = csvImportService;
+        this.importProperties = importProperties;
+        this.clusterImportCoordinator = clusterImportCoordinator.getIfAvailable();
+        this.checkpointStore = checkpointStore;
+        this.progressPublisher = progressPublisher;
+        this.unimportedContactRepository = unimportedContactRepository;
+        this.contactPartitions = contactPartitions;
+        this.importCounters = importCounters;
+        this.transactionTemplate = transactionTemplate;
+        this.stagedContactImport = stagedContactImport;
+    }
+
+    /**
+     * Spools the upload and starts importing it. Compressed uploads (gzip, bzip2, xz) are
+     * decompressed on the fly; every CSV entry of a zip archive is imported as its own job.
+     *
+     * @param file       the uploaded CSV file, compressed file or zip archive
+     * @param mode       how the file is read, or {@code null} for the configured default
+     * @param writerMode how contacts are written, or {@code null} for the configured default
+     * @return the status of every started job
+     * @throws IOException if the upload cannot be spooled or contains no CSV entries
+     */
+    public List<ImportJobStatus> submit(MultipartFile file, ImportMode mode, WriterMode writerMode) throws IOException {
+        Path spooled = spool(file);
+        try {
+            UploadFormat format = UploadFormat.detect(spooled);
+            if (format == UploadFormat.ZIP) {
+                return submitArchive(spooled, file.getOriginalFilename(), mode, writerMode);
+            }
+            // A plain spooled file can be memory-mapped by the parallel mode
+            ImportJob job = createJob(file.getOriginalFilename(), format == UploadFormat.PLAIN ? mode : sequential(mode),
+                    writerMode);
+            job.setSourcePath(spooled.toString());
+            job.setSourceFormat(format);
+            start(job, CheckpointStore.Resume.NONE);
+            return List.of(toStatus(job));
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+    }
+
+    /**
+     * Imports a request body while it is still arriving: the body is decompressed if needed and
+     * fed straight into the parser, with no multipart buffering or spooling.
+     *
+     * @param body       the raw CSV body, optionally gzip, bzip2 or xz compressed
+     * @param fileName   the name to record for the job, may be {@code null}
+     * @param mode       how the body is read, or {@code null} for the configured default
+     * @param writerMode how contacts are written, or {@code null} for the configured default
+     * @return a future completed with the final status of the job once the body is fully imported
+     * @throws IOException if the body cannot be read or is a zip archive
+     */
+    public CompletableFuture<ImportJobStatus> submitStream(InputStream body, String fileName, ImportMode mode,
+                                                           WriterMode writerMode) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, STREAM_BUFFER_SIZE);
+        UploadFormat format = UploadFormat.detect(in);
+        if (format == UploadFormat.ZIP) {
+            throw new IOException("Zip archives must be uploaded as a multipart file");
+        }
+        ImportJob job = createJob(fileName, sequential(mode), writerMode);
+        return start(job, () -> format.decompress(in), CheckpointStore.Resume.NONE)
+                .handle((statistics, ex) -> find(job.getId()).orElseThrow());
+    }
+
+    public Optional<ImportJobStatus> find(long jobId) {
+        return importJobRepository.findById(jobId).map(this::toStatus);
+    }
+
+    /**
+     * Follows the progress of a job. A running job emits an event every {@code import.progress-interval}
+     * and completes after its final event; any other job emits its current state once.
+     *
+     * @return the progress events, or empty if there is no such job
+     */
+    public Optional<Flux<ImportProgressEvent>> watch(long jobId) {
+        Optional<Flux<ImportProgressEvent>> running = progressPublisher.events(jobId);
+        if (running.isPresent()) {
+            return running;
+        }
+        return find(jobId).map(status -> Flux.just(new ImportProgressEvent(status.jobId(), status.state(),
+                status.statistics().totalRecords(), status.statistics().totalImported(),
+                status.statistics().totalFailed(), status.statistics().totalDuplicates(), null,
+                status.state() == ImportJobState.COMPLETED ? Long.valueOf(0) : null,
+                status.finishedAt() != null ? status.finishedAt() : Instant.now())));
+    }
+
+    /**
+     * Continues a failed or interrupted job from its last checkpoint: rows committed by the
+     * earlier run are skipped and its counters carried over.
+     *
+     * @param jobId the job to resume
+     * @return the status of the resumed job, or empty if there is no such job
+     * @throws IllegalStateException if the job has not failed, e.g. is running on any instance,
+     *                               or was imported from a request body that was not kept
+     */
+    public Optional<ImportJobStatus> resume(long jobId) {
+        Optional<ImportJob> found = importJobRepository.findById(jobId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        ImportJob job = found.get();
+        if (job.getState() != ImportJobState.FAILED) {
+            throw notIn(job);
+        }
+        if (job.getSourcePath() == null || !Files.exists(Path.of(job.getSourcePath()))) {
+            throw new IllegalStateException("The upload of import job " + jobId + " is not available");
+        }
+        CheckpointStore.Resume resume = checkpointStore.load(jobId);
+        // Of concurrent requests, on any instance, only the one moving the stored job out of FAILED resumes it
+        claim(jobId, RESUMABLE, ImportJobState.RUNNING);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        log.info("Resuming import job {} after {} committed records", jobId, resume.totals().totalRecords());
+        start(job, resume);
+        return Optional.of(toStatus(job));
+    }
+
+    /**
+     * Undoes a job: detaches and drops the partition holding its contacts, deletes its unimported
+     * rows and checkpoints and takes them off the running totals, all in one transaction, after
+     * dropping its staging table if a staged run left one. The job itself is kept,
+     * {@link ImportJobState#ROLLED_BACK}, with the statistics of its last run.
+     *
+     * @param jobId the job to roll back
+     * @return the status of the rolled back job, or empty if there is no such job
+     * @throws IllegalStateException if the stored job is not completed or failed, e.g. is queued or
+     *                               running on any instance, or already rolled back
+     */
+    public Optional<ImportJobStatus> rollback(long jobId) {
+        if (importJobRepository.findById(jobId).isEmpty()) {
+            return Optional.empty();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // The job row stays locked until the partition is dropped, so no instance can resume it meanwhile
+            claim(jobId, ROLLBACKABLE, ImportJobState.ROLLED_BACK);
+            stagedContactImport.drop(jobId);
+            long contacts = contactPartitions.drop(jobId);
+            long unimported = unimportedContactRepository.deleteByJobId(jobId);
+            checkpointStore.delete(jobId);
+            importCounters.add(-contacts, -unimported);
+            log.info("Rolled back import job {}: dropped {} contacts and {} unimported rows",
+                    jobId, contacts, unimported);
+        });
+        importCounters.evictTotals();
+        ImportJob rolledBack = importJobRepository.findById(jobId).orElseThrow();
+        releaseSource(rolledBack);
+        return Optional.of(toStatus(rolledBack));
+    }
+
+    /**
+     * Without a cluster no import survives a restart, so jobs still queued or running when this
+     * instance starts were interrupted: they are marked failed, to be resumed or rolled back.
+     * With a cluster another replica may still run them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        if (importProperties.getCluster().isEnabled()) {
+            return;
+        }
+        Integer interrupted = transactionTemplate.execute(status -> importJobRepository.failAll(
+                EnumSet.of(ImportJobState.QUEUED, ImportJobState.RUNNING), "Interrupted by a restart", Instant.now()));
+        if (interrupted != null && interrupted > 0) {
+            log.warn("Marked {} import jobs interrupted by a restart as failed", interrupted);
+        }
+    }
+
+    /**
+     * Moves the stored job from one of {@code from} to {@code to}, in a transaction of its own unless
+     * one is active.
+     *
+     * @throws IllegalStateException if the stored job is in another state
+     */
+    private void claim(long jobId, Set<ImportJobState> from, ImportJobState to) {
+        Integer claimed = transactionTemplate.execute(status -> importJobRepository.transition(jobId, from, to));
+        if (claimed == null || claimed == 0) {
+            throw notIn(importJobRepository.findById(jobId).orElseThrow());
+        }
+    }
+
+    private static IllegalStateException notIn(ImportJob job) {
+        String state = job.getState().name().toLowerCase(Locale.ROOT).replace('_', ' ');
+        return new IllegalStateException("Import job " + job.getId() + " is "
+                + (job.getState() == ImportJobState.COMPLETED || job.getState() == ImportJobState.ROLLED_BACK
+                ? "already " + state : state));
+    }
+
+    private List<ImportJobStatus> submitArchive(Path spooled, String fileName, ImportMode mode,
+                                                WriterMode writerMode) throws IOException {
+        List<String> entries;
+        try (ZipFile zipFile = ZipFile.builder().setPath(spooled).get()) {
+            entries = Collections.list(zipFile.getEntries()).stream()
+                    .filter(entry -> !entry.isDirectory()
+                            && entry.getName().toLowerCase(Locale.ROOT).endsWith(".csv"))
+                    .map(ZipArchiveEntry::getName)
+                    .toList();
+        }
+        if (entries.isEmpty()) {
+            throw new IOException("Archive " + fileName + " contains no CSV entries");
+        }
+
+        // Every job is created before any starts, so the archive is kept until all of them complete
+        List<ImportJob> jobs = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            ImportJob job = createJob(fileName + "!/" + entry, sequential(mode), writerMode);
+            job.setSourcePath(spooled.toString());
+            job.setSourceFormat(UploadFormat.ZIP);
+            job.setSourceEntry(entry);
+            jobs.add(importJobRepository.save(job));
+        }
+        List<ImportJobStatus> statuses = new ArrayList<>(jobs.size());
+        for (ImportJob job : jobs) {
+            start(job, CheckpointStore.Resume.NONE);
+            statuses.add(toStatus(job));
+        }
+        return statuses;
+    }
+
+    /**
+     * Compressed content and request bodies cannot be split by byte ranges, so parallel imports
+     * of them are streamed.
+     */
+    private ImportMode sequential(ImportMode mode) {
+        ImportMode requested = mode == null ? importProperties.getMode() : mode;
+        return requested == ImportMode.PARALLEL ? ImportMode.STREAMING : requested;
+    }
+
+    private ImportJob createJob(String fileName, ImportMode mode, WriterMode writerMode) {
+        ImportJob job = new ImportJob();
+        job.setFileName(fileName);
+        job.setState(ImportJobState.QUEUED);
+        job.setImportMode(mode == null ? importProperties.getMode() : mode);
+        job.setWriterMode(writerMode == null ? importProperties.getWriter() : writerMode);
+        job.setCreatedAt(Instant.now());
+        return importJobRepository.save(job);
+    }
+
+    private CompletableFuture<ImportStatistics> start(ImportJob job, CheckpointStore.Resume resume) {
+        ImportProgress progress = new ImportProgress(job.getId());
+        return start(job, openSource(job, progress), progress, resume);
+    }
+
+    private CompletableFuture<ImportStatistics> start(ImportJob job, InputStreamSource source,
+                                                      CheckpointStore.Resume resume) {
+        return start(job, source, new ImportProgress(job.getId()), resume);
+    }
+
+    private CompletableFuture<ImportStatistics> start(ImportJob job, InputStreamSource source, ImportProgress progress,
+                                                      CheckpointStore.Resume resume) {
+        progress.set(resume.totals());
+        if (resume.totals().totalFailed() > 0) {
+            progress.addRuleFailures(countRuleFailures(job.getId()));
+        }
+        runningJobs.put(job.getId(), progress);
+        progressPublisher.track(progress);
+        job.setState(ImportJobState.RUNNING);
+        job.setStartedAt(Instant.now());
+        ImportJob started = importJobRepository.save(job);
+
+        log.info("Import job {} started for {}", started.getId(), started.getFileName());
+        CompletableFuture<ImportStatistics> result;
+        try {
+            contactPartitions.create(started.getId());
+            if (clusterImportCoordinator != null && started.getImportMode() == ImportMode.PARALLEL
+                    && started.getWriterMode() != WriterMode.STAGED && source instanceof FileSystemResource resource) {
+                // A plain spooled file of a parallel import is shared out to every replica
+                result = clusterImportCoordinator.importFile(started.getId(), resource.getFile().toPath(),
+                        started.getWriterMode(), progress);
+            } else {
+                result = csvImportService.importFile(source, started.getImportMode(), started.getWriterMode(),
+                        progress, resume.committed());
+            }
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((statistics, ex) -> finish(started, progress, ex));
+    }
+
+    private void finish(ImportJob job, ImportProgress progress, Throwable failure) {
+        ImportStatistics statistics = progress.toStatistics();
+        String errorMessage = null;
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            errorMessage = cause.getMessage();
+            log.error("Import job {} failed: {}", job.getId(), errorMessage);
+        }
+        try {
+            if (!finish(job, statistics, errorMessage)) {
+                // A cluster import may have been finished by another replica
+                importJobRepository.findById(job.getId()).ifPresent(stored -> job.setState(stored.getState()));
+            }
+        } catch (Exception e) {
+            log.error("Error saving import job {}: {}", job.getId(), e.getMessage());
+        } finally {
+            runningJobs.remove(job.getId());
+            progressPublisher.finish(job.getId(), job.getState());
+        }
+        log.info("Import job {} {}: {}", job.getId(), job.getState(), statistics);
+    }
+
+    /**
+     * Finishes a cluster import on the replica that claimed it, which need not be the one it was uploaded to.
+     */
+    @EventListener
+    public void finish(ClusterImportFinished finished) {
+        ImportJob job = importJobRepository.findById(finished.jobId()).orElse(null);
+        if (job != null && finish(job, finished.totals(), finished.error())) {
+            log.info("Import job {} {}: {}", job.getId(), job.getState(), finished.totals());
+        }
+    }
+
+    /**
+     * Stores the outcome of a run, unless the stored job is no longer running because another
+     * replica finished it already.
+     *
+     * @param errorMessage why the run failed, or {@code null} if it completed
+     * @return {@code true} if the outcome was stored
+     */
+    private boolean finish(ImportJob job, ImportStatistics statistics, String errorMessage) {
+        job.setTotalRecords(statistics.totalRecords());
+        job.setImportedRecords(statistics.totalImported());
+        job.setFailedRecords(statistics.totalFailed());
+        job.setDuplicateRecords(statistics.totalDuplicates());
+        job.setUpdatedRecords(statistics.totalUpdated());
+        job.setRuleFailures(ruleFailures(job.getId(), statistics));
+        job.setFinishedAt(Instant.now());
+        job.setState(errorMessage == null ? ImportJobState.COMPLETED : ImportJobState.FAILED);
+        job.setErrorMessage(errorMessage);
+        boolean stored = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (importJobRepository.transition(job.getId(), EnumSet.of(ImportJobState.RUNNING), job.getState()) == 0) {
+                return false;
+            }
+            importJobRepository.save(job);
+            return true;
+        }));
+        if (stored && job.getState() == ImportJobState.COMPLETED) {
+            checkpointStore.delete(job.getId());
+            releaseSource(job);
+        }
+        return stored;
+    }
+
+    /**
+     * Counts the stored failures of the job, which stays exact across resumed runs and the replicas
+     * of a cluster import; falls back to the live counts of this run if that fails.
+     */
+    private Map<String, Long> ruleFailures(long jobId, ImportStatistics statistics) {
+        if (statistics.totalFailed() == 0) {
+            return Map.of();
+        }
+        try {
+            return countRuleFailures(jobId);
+        } catch (Exception e) {
+            log.error("Error counting failures of import job {}: {}", jobId, e.getMessage());
+            return statistics.ruleFailures();
+        }
+    }
+
+    private Map<String, Long> countRuleFailures(long jobId) {
+        Map<String, Long> failures = new TreeMap<>();
+        unimportedContactRepository.countByErrorCode(jobId)
+                .forEach(count -> failures.put(count.getErrorCode(), count.getCount()));
+        return failures;
+    }
+
+    /**
+     * Reopens the spooled upload of a job: plain files as a {@link FileSystemResource} the parallel
+     * mode can map, compressed files decompressed on the fly, zip entries through their own archive handle.
+     * The bytes read are counted, spooled bytes for compressed files, to estimate the time left.
+     */
+    private InputStreamSource openSource(ImportJob job, ImportProgress progress) {
+        Path path = Path.of(job.getSourcePath());
+        UploadFormat format = job.getSourceFormat();
+        return switch (format) {
+            case PLAIN -> {
+                progress.setTotalBytes(sizeOf(path));
+                yield new FileSystemResource(path) {
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        return new CountingInputStream(super.getInputStream(), progress::addBytes);
+                    }
+                };
+            }
+            case ZIP -> () -> {
+                ZipFile zipFile = ZipFile.builder().setPath(path).get();
+                try {
+                    ZipArchiveEntry entry = zipFile.getEntry(job.getSourceEntry());
+                    if (entry == null) {
+                        throw new IOException("Archive entry " + job.getSourceEntry() + " not found");
+                    }
+                    progress.setTotalBytes(entry.getSize());
+                    InputStream in = new CountingInputStream(zipFile.getInputStream(entry), progress::addBytes);
+                    return new FilterInputStream(in) {
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                zipFile.close();
+                            }
+                        }
+                    };
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(zipFile);
+                    throw e;
+                }
+            };
+            default -> {
+                progress.setTotalBytes(sizeOf(path));
+                yield () -> format.decompress(new CountingInputStream(Files.newInputStream(path), progress::addBytes));
+            }
+        };
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes the spooled upload once no job importing it is left to complete or resume.
+     */
+    private void releaseSource(ImportJob job) {
+        if (job.getSourcePath() != null && !importJobRepository.existsBySourcePathAndStateNotIn(job.getSourcePath(),
+                EnumSet.of(ImportJobState.COMPLETED, ImportJobState.ROLLED_BACK))) {
+            deleteQuietly(Path.of(job.getSourcePath()));
+        }
+    }
+
+    private ImportJobStatus toStatus(ImportJob job) {
+        ImportProgress progress = runningJobs.get(job.getId());
+        ImportStatistics statistics = progress != null
+                ? progress.toStatistics()
+                : new ImportStatistics(job.getImportedRecords(), job.getFailedRecords(), job.getTotalRecords(),
+                job.getDuplicateRecords(), job.getUpdatedRecords(), job.getRuleFailures());
+        Long durationMillis = null;
+        if (job.getStartedAt() != null) {
+            Instant end = job.getFinishedAt() != null ? job.getFinishedAt() : Instant.now();
+            durationMillis = Duration.between(job.getStartedAt(), end).toMillis();
+        }
+        return new ImportJobStatus(job.getId(), job.getFileName(), job.getState(), statistics,
+                job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt(), durationMillis, job.getErrorMessage());
+    }
+
+    /**
+     * Copies the upload as received, still compressed, out of the multipart temp storage,
+     * which is cleaned up as soon as the request completes.
+     */
+    private Path spool(MultipartFile file) throws IOException {
+        Path directory = Files.createDirectories(Path.of(importProperties.getSpoolDirectory()));
+        Path target = Files.createTempFile(directory, "upload-", ".spool");
+        try {
+            file.transferTo(target);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+        return target;
+    }
+
+    private void closeQuietly(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            log.warn("Could not close archive: {}", e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled file {}: {}", file, e.getMessage());
+        }
+    }
+
+}
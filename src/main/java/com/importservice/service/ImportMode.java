@@ -0,0 +1,25 @@
+package com.importservice.service;
+
+/**
+ * How an uploaded CSV file is read before its records are written.
+ */
+public enum ImportMode {
+
+    /**
+     * Parses the whole file with commons-csv into memory, then writes it in batches.
+     */
+    BUFFERED,
+
+    /**
+     * Parses the file with uniVocity and hands bounded chunks to writer threads
+     * while parsing is still in progress.
+     */
+    STREAMING,
+
+    /**
+     * Memory-maps the uncompressed file, splits it into byte ranges at record boundaries and
+     * parses the ranges in parallel. Compressed uploads fall back to {@link #STREAMING}.
+     */
+    PARALLEL
+
+}
@@ -0,0 +1,114 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportStatistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one running import, updated by the workers as chunks complete,
+ * and by the parsers as they read the input.
+ */
+public class ImportProgress {
+
+    private final long jobId;
+
+    private final AtomicLong totalRecords = new AtomicLong();
+
+    private final AtomicLong totalImported = new AtomicLong();
+
+    private final AtomicLong totalFailed = new AtomicLong();
+
+    private final AtomicLong totalDuplicates = new AtomicLong();
+
+    private final AtomicLong totalUpdated = new AtomicLong();
+
+    private final Map<String, LongAdder> ruleFailures = new ConcurrentHashMap<>();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private volatile long totalBytes = -1;
+
+    public ImportProgress(long jobId) {
+        this.jobId = jobId;
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public void addRecords(long records) {
+        totalRecords.addAndGet(records);
+    }
+
+    public void addImported(long imported) {
+        totalImported.addAndGet(imported);
+    }
+
+    public void addFailed(long failed) {
+        totalFailed.addAndGet(failed);
+    }
+
+    /**
+     * Counts a failed row by the rule or error code that rejected it.
+     */
+    public void addRuleFailure(String rule) {
+        ruleFailures.computeIfAbsent(rule, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Adds failures counted by an earlier run of the job.
+     */
+    public void addRuleFailures(Map<String, Long> failures) {
+        failures.forEach((rule, count) -> ruleFailures.computeIfAbsent(rule, key -> new LongAdder()).add(count));
+    }
+
+    public void addBytes(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @param totalBytes size of the input as counted by {@link #addBytes}, or {@code -1} if unknown
+     */
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void addDuplicates(long duplicates) {
+        totalDuplicates.addAndGet(duplicates);
+    }
+
+    public void addUpdated(long updated) {
+        totalUpdated.addAndGet(updated);
+    }
+
+    /**
+     * Replaces the counters with totals kept elsewhere, e.g. summed over the replicas of a cluster import.
+     */
+    public void set(ImportStatistics totals) {
+        totalRecords.set(totals.totalRecords());
+        totalImported.set(totals.totalImported());
+        totalFailed.set(totals.totalFailed());
+        totalDuplicates.set(totals.totalDuplicates());
+        totalUpdated.set(totals.totalUpdated());
+    }
+
+    public ImportStatistics toStatistics() {
+        Map<String, Long> failures = new TreeMap<>();
+        ruleFailures.forEach((rule, count) -> failures.put(rule, count.sum()));
+        return new ImportStatistics(totalImported.get(), totalFailed.get(), totalRecords.get(),
+                totalDuplicates.get(), totalUpdated.get(), failures);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportProgressEvent;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.entity.ImportJobState;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes the progress of running imports to watchers (GraphQL subscription and SSE).
+ * <p>
+ * The write path is not involved: once per {@code import.progress-interval} every running job's
+ * {@link ImportProgress} counters are sampled, rates are derived from the difference to the previous
+ * sample, and one event is emitted to a per-job sink shared by all its watchers. A watcher joining
+ * late gets the latest event right away; a slow watcher skips to the newest event instead of
+ * buffering old ones.
+ */
+@Component
+public class ImportProgressPublisher {
+
+    /**
+     * Weight of the newest sample in the smoothed rates.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    private final Map<Long, WatchedJob> jobs = new ConcurrentHashMap<>();
+
+    public void track(ImportProgress progress) {
+        jobs.put(progress.getJobId(), new WatchedJob(progress));
+    }
+
+    /**
+     * Emits the final event of a job and completes its watchers.
+     */
+    public void finish(long jobId, ImportJobState state) {
+        WatchedJob job = jobs.remove(jobId);
+        if (job != null) {
+            job.sample(state, true);
+        }
+    }
+
+    /**
+     * @return the progress events of a running job, or empty if the job is not running here
+     */
+    public Optional<Flux<ImportProgressEvent>> events(long jobId) {
+        WatchedJob job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.sink.asFlux().onBackpressureLatest());
+    }
+
+    @Scheduled(fixedRateString = "${import.progress-interval}")
+    public void publish() {
+        jobs.values().forEach(job -> job.sample(ImportJobState.RUNNING, false));
+    }
+
+    private static final class WatchedJob {
+
+        private final ImportProgress progress;
+
+        private final Sinks.Many<ImportProgressEvent> sink = Sinks.many().replay().latest();
+
+        private long lastRecords;
+
+        private long lastBytes;
+
+        private long lastNanos = System.nanoTime();
+
+        private double rowsPerSecond = -1;
+
+        private double bytesPerSecond = -1;
+
+        WatchedJob(ImportProgress progress) {
+            this.progress = progress;
+            this.lastRecords = progress.toStatistics().totalRecords();
+            this.lastBytes = progress.getBytesRead();
+        }
+
+        synchronized void sample(ImportJobState state, boolean last) {
+            ImportStatistics statistics = progress.toStatistics();
+            long bytes = progress.getBytesRead();
+            long now = System.nanoTime();
+            double seconds = (now - lastNanos) / 1e9;
+            if (seconds > 0) {
+                rowsPerSecond = smooth(rowsPerSecond, (statistics.totalRecords() - lastRecords) / seconds);
+                bytesPerSecond = smooth(bytesPerSecond, (bytes - lastBytes) / seconds);
+            }
+            lastRecords = statistics.totalRecords();
+            lastBytes = bytes;
+            lastNanos = now;
+
+            sink.tryEmitNext(new ImportProgressEvent(progress.getJobId(), state, statistics.totalRecords(),
+                    statistics.totalImported(), statistics.totalFailed(), statistics.totalDuplicates(),
+                    rowsPerSecond < 0 ? null : rowsPerSecond, last ? Long.valueOf(0) : eta(bytes), Instant.now()));
+            if (last) {
+                sink.tryEmitComplete();
+            }
+        }
+
+        private Long eta(long bytes) {
+            long totalBytes = progress.getTotalBytes();
+            if (totalBytes <= 0 || bytesPerSecond <= 0) {
+                return null;
+            }
+            return (long) Math.ceil(Math.max(0, totalBytes - bytes) / bytesPerSecond);
+        }
+
+        private static double smooth(double average, double sample) {
+            return average < 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * average;
+        }
+    }
+
+}
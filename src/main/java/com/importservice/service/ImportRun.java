@@ -0,0 +1,25 @@
+package com.importservice.service;
+
+import com.importservice.service.checkpoint.CommittedRows;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+
+/**
+ * State shared by the chunks of one run of an import job.
+ *
+ * @param writerMode how contacts are written
+ * @param progress   the counters of the job
+ * @param duplicates the natural keys the run has committed
+ * @param committed  rows committed by an earlier run of the job, skipped when resuming
+ * @param meters     the meters of the job
+ * @param interner   interns the low-cardinality columns of the parsed rows
+ */
+public record ImportRun(WriterMode writerMode, ImportProgress progress, DuplicateFilter duplicates,
+                        CommittedRows committed, ImportMeters meters, ColumnInterner interner) {
+
+    public long jobId() {
+        return progress.getJobId();
+    }
+
+}
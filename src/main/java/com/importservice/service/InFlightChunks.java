@@ -0,0 +1,98 @@
+package com.importservice.service;
+
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The chunks a pipeline has handed to the {@link ImportExecutor} for one import. The first chunk
+ * failing fails the import: its rows are neither written nor checkpointed, so the import must end
+ * failed, to be resumed, rather than complete without them. No further chunk is submitted once
+ * one has failed, and {@link #await} rethrows the failure after the chunks in flight are done.
+ */
+@Slf4j
+class InFlightChunks {
+
+    private final ImportExecutor importExecutor;
+
+    private final ImportMeters meters;
+
+    /**
+     * One party for the parser plus one per chunk in flight.
+     */
+    private final Phaser phaser = new Phaser(1);
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    InFlightChunks(ImportExecutor importExecutor, ImportMeters meters) {
+        this.importExecutor = importExecutor;
+        this.meters = meters;
+    }
+
+    /**
+     * Runs the handler for the chunk on a worker, blocking while the work queue is full.
+     *
+     * @throws CompletionException if a chunk has failed already, with that failure as cause
+     */
+    void submit(List<CsvRow> chunk, Consumer<List<CsvRow>> chunkHandler) throws InterruptedException {
+        throwIfFailed();
+        phaser.register();
+        try {
+            importExecutor.submit(meters.chunk(() -> {
+                try {
+                    chunkHandler.accept(chunk);
+                } catch (Throwable e) {
+                    log.error("Error writing chunk of {} records: {}", chunk.size(), e.getMessage());
+                    failure.compareAndSet(null, e);
+                } finally {
+                    phaser.arriveAndDeregister();
+                }
+            }));
+        } catch (InterruptedException | RuntimeException e) {
+            meters.chunkRejected();
+            phaser.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} once a chunk has failed
+     */
+    boolean failed() {
+        return failure.get() != null;
+    }
+
+    /**
+     * Waits until every submitted chunk has been handled.
+     *
+     * @throws CompletionException if a chunk failed, with the first failure as cause
+     */
+    void await() {
+        phaser.arriveAndAwaitAdvance();
+        throwIfFailed();
+    }
+
+    /**
+     * Waits until every submitted chunk has been handled, for a pipeline failing anyway.
+     */
+    void awaitQuietly() {
+        phaser.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * @throws CompletionException if a chunk has failed, with the first failure as cause
+     */
+    void throwIfFailed() {
+        Throwable failed = failure.get();
+        if (failed != null) {
+            throw failed instanceof CompletionException completion ? completion : new CompletionException(failed);
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.importservice.service;
+
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter;
+import com.importservice.utils.cvsrecord.CsvRecordReader;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Split;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Parses one large, uncompressed CSV file on several threads.
+ * <p>
+ * The file is memory-mapped and split by {@link CsvRangeSplitter} into byte ranges starting at
+ * record boundaries. The ranges are parsed in parallel on a fork-join pool, each with its own
+ * uniVocity parser, and every parsed chunk goes to the shared {@link ImportExecutor} as in the
+ * streaming pipeline. Rows keep their original row number in the file. The first chunk failing
+ * stops every range and fails the import, see {@link InFlightChunks}.
+ */
+@Slf4j
+public class ParallelImportPipeline {
+
+    private final int batchSize;
+
+    private final int parallelism;
+
+    private final long minRangeSize;
+
+    private final ForkJoinPool parsePool;
+
+    private final ImportExecutor importExecutor;
+
+    private final LongConsumer bytesRead;
+
+    private final ImportMeters meters;
+
+    private final ColumnInterner interner;
+
+    /**
+     * @param bytesRead receives the number of bytes parsed, as ranges are read
+     * @param meters    the meters of the job
+     * @param interner  interns the low-cardinality columns of every range
+     */
+    public ParallelImportPipeline(int batchSize, int parallelism, long minRangeSize, ForkJoinPool parsePool,
+                                  ImportExecutor importExecutor, LongConsumer bytesRead, ImportMeters meters,
+                                  ColumnInterner interner) {
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.minRangeSize = minRangeSize;
+        this.parsePool = parsePool;
+        this.importExecutor = importExecutor;
+        this.bytesRead = bytesRead;
+        this.meters = meters;
+        this.interner = interner;
+    }
+
+    /**
+     * Starts splitting and parsing the file.
+     *
+     * @param file         the uncompressed CSV file
+     * @param chunkHandler invoked on a worker thread for every parsed chunk
+     * @return a future completed with the number of parsed records once every chunk has been handled,
+     * or completed exceptionally with the first failure of a chunk
+     */
+    public CompletableFuture<Long> start(Path file, Consumer<List<CsvRow>> chunkHandler) {
+        return importExecutor.parse(() -> run(file, chunkHandler));
+    }
+
+    /**
+     * Parses a single range of the file on the calling thread, for ranges handed out one at a
+     * time, e.g. claimed by a node of a cluster import.
+     *
+     * @param file         the uncompressed CSV file
+     * @param header       the header of the file
+     * @param range        the range to parse, as split by {@link CsvRangeSplitter}
+     * @param chunkHandler invoked on a worker thread for every parsed chunk
+     * @param cancelled    checked before every record; parsing stops once it returns {@code true}
+     * @return the number of parsed records, once every chunk has been handled
+     * @throws CompletionException with the first failure of a chunk as cause
+     */
+    public long parseRange(Path file, CsvHeader header, Range range, Consumer<List<CsvRow>> chunkHandler,
+                           BooleanSupplier cancelled) {
+        InFlightChunks inFlight = new InFlightChunks(importExecutor, meters);
+        long parsed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            parsed = parseRange(channel, range, header, chunkHandler, inFlight, cancelled);
+        } catch (IOException e) {
+            inFlight.awaitQuietly();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            inFlight.awaitQuietly();
+            inFlight.throwIfFailed();
+            throw e;
+        }
+        inFlight.await();
+        return parsed;
+    }
+
+    private long run(Path file, Consumer<List<CsvRow>> chunkHandler) {
+        InFlightChunks inFlight = new InFlightChunks(importExecutor, meters);
+        long totalRecords;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Split split = CsvRangeSplitter.split(channel, parallelism, minRangeSize, parsePool);
+            CsvHeader header = parseHeader(split.header());
+            log.info("Parsing {} in {} ranges", file.getFileName(), split.ranges().size());
+
+            List<Long> counts = parsePool.submit(() -> split.ranges().parallelStream()
+                    .map(range -> parseRange(channel, range, header, chunkHandler, inFlight, () -> false))
+                    .toList()).join();
+            totalRecords = counts.stream().mapToLong(Long::longValue).sum();
+        } catch (IOException e) {
+            inFlight.awaitQuietly();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            inFlight.awaitQuietly();
+            // A failed chunk stops every range; that failure is the cause, not the parsing
+            inFlight.throwIfFailed();
+            log.error("Error parsing CSV file in parallel: {}", e.getMessage());
+            throw e;
+        }
+        inFlight.await();
+        log.info("Parsed {} records in parallel", totalRecords);
+        return totalRecords;
+    }
+
+    /**
+     * @param header the bytes of the header record, as split by {@link CsvRangeSplitter}
+     */
+    public static CsvHeader parseHeader(byte[] header) {
+        CsvParser parser = new CsvParser(settings());
+        String[] names = parser.parseLine(new String(header, StandardCharsets.UTF_8));
+        return CsvHeader.of(names);
+    }
+
+    private long parseRange(FileChannel channel, Range range, CsvHeader header,
+                            Consumer<List<CsvRow>> chunkHandler, InFlightChunks inFlight,
+                            BooleanSupplier cancelled) {
+        if (range.length() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("No record boundary found in " + range.length() + " bytes");
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        CsvParser parser = new CsvParser(settings());
+        long rowNumber = range.firstRowNumber();
+        long parsed = 0;
+        List<CsvRow> chunk = new ArrayList<>(batchSize);
+        try (Reader reader = new InputStreamReader(new ByteBufferInputStream(buffer, bytesRead), StandardCharsets.UTF_8)) {
+            long parseStarted = System.nanoTime();
+            parser.beginParsing(reader);
+            String[] values;
+            // Once a chunk of any range has failed the rest of the range is not read
+            while (!cancelled.getAsBoolean() && !inFlight.failed() && (values = parser.parseNext()) != null) {
+                // Empty lines still count as records, so numbering matches the splitter's
+                if (!CsvRecordReader.isEmptyLine(values)) {
+                    interner.intern(header, values);
+                    chunk.add(new CsvRow(header, values, rowNumber));
+                    parsed++;
+                    if (chunk.size() == batchSize) {
+                        meters.recordParse(System.nanoTime() - parseStarted);
+                        inFlight.submit(chunk, chunkHandler);
+                        chunk = new ArrayList<>(batchSize);
+                        parseStarted = System.nanoTime();
+                    }
+                }
+                rowNumber++;
+            }
+            if (!chunk.isEmpty() && !cancelled.getAsBoolean() && !inFlight.failed()) {
+                meters.recordParse(System.nanoTime() - parseStarted);
+                inFlight.submit(chunk, chunkHandler);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            parser.stopParsing();
+        }
+        return parsed;
+    }
+
+    private static CsvParserSettings settings() {
+        CsvParserSettings settings = new CsvParserSettings();
+        settings.setHeaderExtractionEnabled(false);
+        settings.setSkipEmptyLines(false);
+        settings.setMaxCharsPerColumn(10000);
+        settings.setLineSeparatorDetectionEnabled(true);
+        return settings;
+    }
+
+    /**
+     * Reads a mapped range without copying it to the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private final LongConsumer bytesRead;
+
+        ByteBufferInputStream(ByteBuffer buffer, LongConsumer bytesRead) {
+            this.buffer = buffer;
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            bytesRead.accept(1);
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            bytesRead.accept(count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
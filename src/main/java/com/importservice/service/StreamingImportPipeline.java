@@ -0,0 +1,99 @@
+package com.importservice.service;
+
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.CsvRecordReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Bounded producer/consumer pipeline for a single CSV import.
+ * <p>
+ * A parser thread reads the input with {@link CsvRecordReader} and submits fixed-size chunks
+ * to the shared {@link ImportExecutor}, which blocks the parser while its work queue is full.
+ * At most {@code (pool-size + queue-depth) * batchSize} records are therefore held in memory
+ * across all running imports, regardless of file size. The first chunk failing fails the
+ * import, see {@link InFlightChunks}.
+ */
+@Slf4j
+public class StreamingImportPipeline {
+
+    private final int batchSize;
+
+    private final ImportExecutor importExecutor;
+
+    private final ImportMeters meters;
+
+    private final ColumnInterner interner;
+
+    public StreamingImportPipeline(int batchSize, ImportExecutor importExecutor, ImportMeters meters,
+                                   ColumnInterner interner) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        this.importExecutor = importExecutor;
+        this.meters = meters;
+        this.interner = interner;
+    }
+
+    /**
+     * Starts parsing the reader on a parser thread.
+     *
+     * @param reader       the CSV input; closed when parsing finishes
+     * @param chunkHandler invoked on a worker thread for every parsed chunk
+     * @return a future completed with the number of parsed records once every chunk has been handled,
+     * or completed exceptionally with the first failure of a chunk
+     */
+    public CompletableFuture<Long> start(Reader reader, Consumer<List<CsvRow>> chunkHandler) {
+        return importExecutor.parse(() -> run(reader, chunkHandler));
+    }
+
+    private long run(Reader reader, Consumer<List<CsvRow>> chunkHandler) {
+        InFlightChunks inFlight = new InFlightChunks(importExecutor, meters);
+        long totalRecords = 0;
+        try (reader; CsvRecordReader recordReader = new CsvRecordReader(reader)) {
+            recordReader.setInterner(interner);
+            List<CsvRow> chunk = new ArrayList<>(batchSize);
+            long parseStarted = System.nanoTime();
+            // Once a chunk has failed the rest of the input is not read
+            while (!inFlight.failed() && recordReader.hasNext()) {
+                chunk.add(recordReader.next());
+                totalRecords++;
+                if (chunk.size() == batchSize) {
+                    meters.recordParse(System.nanoTime() - parseStarted);
+                    inFlight.submit(chunk, chunkHandler);
+                    chunk = new ArrayList<>(batchSize);
+                    parseStarted = System.nanoTime();
+                }
+            }
+            if (!chunk.isEmpty() && !inFlight.failed()) {
+                meters.recordParse(System.nanoTime() - parseStarted);
+                inFlight.submit(chunk, chunkHandler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (CompletionException e) {
+            // A chunk failed
+            inFlight.awaitQuietly();
+            throw e;
+        } catch (Exception e) {
+            log.error("Error parsing CSV stream after {} records: {}", totalRecords, e.getMessage());
+            inFlight.awaitQuietly();
+            throw new CompletionException(e);
+        }
+
+        inFlight.await();
+        log.info("Streamed {} records", totalRecords);
+        return totalRecords;
+    }
+
+}
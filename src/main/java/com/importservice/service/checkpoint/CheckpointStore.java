@@ -0,0 +1,107 @@
+package com.importservice.service.checkpoint;
+
+import com.importservice.dto.ImportStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checkpoints of running imports in {@code import_checkpoints}.
+ * <p>
+ * Every transaction of an import that disposes of rows (a written slice of a chunk, or the
+ * rejected and duplicate rows of a chunk) records their row numbers, as runs of consecutive
+ * numbers, together with its counters, in the same transaction. After a crash the committed runs
+ * are exactly the rows that must not be imported again, and the summed counters are the
+ * statistics of the import so far.
+ */
+@Slf4j
+@Component
+public class CheckpointStore {
+
+    private static final String INSERT_SQL = "INSERT INTO import_checkpoints (job_id, first_row, last_row, "
+            + "total_records, imported_records, failed_records, duplicate_records, updated_records) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CheckpointStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * What a resumed import starts from.
+     *
+     * @param committed the rows to skip
+     * @param totals    the counters of the committed rows
+     */
+    public record Resume(CommittedRows committed, ImportStatistics totals) {
+
+        public static final Resume NONE = new Resume(CommittedRows.NONE, new ImportStatistics(0L, 0L, 0L, 0L, 0L));
+    }
+
+    /**
+     * Records rows as handled. Must run inside the transaction that stores them.
+     *
+     * @param rowNumbers the row numbers, ascending
+     * @param counters   the counters of these rows
+     */
+    public void record(long jobId, List<Long> rowNumbers, ImportStatistics counters) {
+        if (rowNumbers.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        long first = rowNumbers.get(0);
+        long last = first;
+        for (int i = 1; i <= rowNumbers.size(); i++) {
+            if (i < rowNumbers.size() && rowNumbers.get(i) == last + 1) {
+                last++;
+                continue;
+            }
+            // The counters go with the first run only, so sums stay exact
+            rows.add(rows.isEmpty()
+                    ? new Object[]{jobId, first, last, counters.totalRecords(), counters.totalImported(),
+                    counters.totalFailed(), counters.totalDuplicates(), counters.totalUpdated()}
+                    : new Object[]{jobId, first, last, 0, 0, 0, 0, 0});
+            if (i < rowNumbers.size()) {
+                first = rowNumbers.get(i);
+                last = first;
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Loads the committed rows of an import between two row numbers, inclusive, with their counters.
+     */
+    public Resume load(long jobId, long fromRow, long toRow) {
+        CommittedRows.Builder committed = new CommittedRows.Builder();
+        long[] totals = new long[5];
+        jdbcTemplate.query("SELECT first_row, last_row, total_records, imported_records, failed_records, "
+                        + "duplicate_records, updated_records FROM import_checkpoints "
+                        + "WHERE job_id = ? AND last_row >= ? AND first_row <= ?",
+                resultSet -> {
+                    committed.add(resultSet.getLong(1), resultSet.getLong(2));
+                    for (int i = 0; i < totals.length; i++) {
+                        totals[i] += resultSet.getLong(i + 3);
+                    }
+                }, jobId, fromRow, toRow);
+        ImportStatistics statistics = new ImportStatistics(totals[1], totals[2], totals[0], totals[3], totals[4]);
+        return new Resume(committed.build(), statistics);
+    }
+
+    public Resume load(long jobId) {
+        return load(jobId, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Drops the checkpoints of a finished import.
+     */
+    public void delete(long jobId) {
+        int deleted = jdbcTemplate.update("DELETE FROM import_checkpoints WHERE job_id = ?", jobId);
+        log.debug("Deleted {} checkpoints of import job {}", deleted, jobId);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.importservice.service.checkpoint;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Row numbers of an import already handled by a committed transaction, kept as merged
+ * {@code [first, last]} runs, so a resumed import can skip them.
+ */
+public final class CommittedRows {
+
+    public static final CommittedRows NONE = new CommittedRows(new TreeMap<>());
+
+    private final NavigableMap<Long, Long> runs;
+
+    private CommittedRows(NavigableMap<Long, Long> runs) {
+        this.runs = runs;
+    }
+
+    public boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    public boolean contains(long rowNumber) {
+        Map.Entry<Long, Long> run = runs.floorEntry(rowNumber);
+        return run != null && run.getValue() >= rowNumber;
+    }
+
+    /**
+     * Collects possibly overlapping or adjacent runs and merges them.
+     */
+    public static final class Builder {
+
+        private final NavigableMap<Long, Long> runs = new TreeMap<>();
+
+        public Builder add(long firstRow, long lastRow) {
+            runs.merge(firstRow, lastRow, Math::max);
+            return this;
+        }
+
+        public CommittedRows build() {
+            NavigableMap<Long, Long> merged = new TreeMap<>();
+            Map.Entry<Long, Long> current = null;
+            for (Map.Entry<Long, Long> run : runs.entrySet()) {
+                if (current != null && run.getKey() <= current.getValue() + 1) {
+                    current = Map.entry(current.getKey(), Math.max(current.getValue(), run.getValue()));
+                } else {
+                    if (current != null) {
+                        merged.put(current.getKey(), current.getValue());
+                    }
+                    current = run;
+                }
+            }
+            if (current != null) {
+                merged.put(current.getKey(), current.getValue());
+            }
+            return merged.isEmpty() ? NONE : new CommittedRows(merged);
+        }
+    }
+
+}
@@ -0,0 +1,305 @@
+package com.importservice.service.cluster;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.model.CsvHeader;
+import com.importservice.service.CSVImportService;
+import com.importservice.service.ImportExecutor;
+import com.importservice.service.ImportProgress;
+import com.importservice.service.ParallelImportPipeline;
+import com.importservice.service.checkpoint.CheckpointStore;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Split;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Imports one large file on every replica at once.
+ * <p>
+ * The replica receiving the upload splits the spooled file into byte ranges and publishes them
+ * in Redis; see {@link RangeLeaseStore}. Every replica, the origin included, polls for ranges
+ * nobody holds, claims up to {@code import.cluster.max-claimed-ranges} of them with a lease,
+ * extends the lease by heartbeat while importing and records the range as done with its
+ * counters. When a replica dies, or cannot reach Redis for a lease duration, its leases expire
+ * and the ranges are claimed again.
+ * <p>
+ * Any replica seeing every range done, or the job given up, may finish it: the one claiming the
+ * finish lease publishes {@link ClusterImportFinished} and withdraws the job, so a job outlives the
+ * replica it was uploaded to. The origin completes its local future once the job is withdrawn.
+ * <p>
+ * A re-claimed range resumes from the checkpoints of its previous owner; see {@link CheckpointStore}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "import.cluster", name = "enabled", havingValue = "true")
+public class ClusterImportCoordinator {
+
+    private final RangeLeaseStore leaseStore;
+
+    private final CSVImportService csvImportService;
+
+    private final ImportExecutor importExecutor;
+
+    private final ImportProperties importProperties;
+
+    private final CheckpointStore checkpointStore;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ImportProperties.Cluster cluster;
+
+    private final String nodeId;
+
+    private final Semaphore claimPermits;
+
+    private final Map<Long, ClusterJob> knownJobs = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2,
+            Thread.ofPlatform().name("import-cluster-", 0).daemon().factory());
+
+    public ClusterImportCoordinator(RangeLeaseStore leaseStore, CSVImportService csvImportService,
+                                    ImportExecutor importExecutor, ImportProperties importProperties,
+                                    CheckpointStore checkpointStore, ApplicationEventPublisher eventPublisher) {
+        this.leaseStore = leaseStore;
+        this.csvImportService = csvImportService;
+        this.importExecutor = importExecutor;
+        this.importProperties = importProperties;
+        this.checkpointStore = checkpointStore;
+        this.eventPublisher = eventPublisher;
+        this.cluster = importProperties.getCluster();
+        this.nodeId = hostName() + "-" + UUID.randomUUID();
+        this.claimPermits = new Semaphore(cluster.getMaxClaimedRanges());
+    }
+
+    @PostConstruct
+    public void start() {
+        long pollMillis = cluster.getPollInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::claimRanges, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        log.info("Cluster import node {} started", nodeId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Splits the file and publishes its ranges to the cluster.
+     *
+     * @param jobId      the import job
+     * @param file       the plain CSV file, in the shared spool directory
+     * @param writerMode how contacts are written
+     * @param progress   the counters of the job, refreshed from the completed ranges
+     * @return a future completed with the final statistics once the job is finished, by any replica
+     */
+    public CompletableFuture<ImportStatistics> importFile(long jobId, Path file, WriterMode writerMode,
+                                                          ImportProgress progress) {
+        return importExecutor.parse(() -> publish(jobId, file, writerMode))
+                .thenCompose(job -> awaitCompletion(job, progress));
+    }
+
+    private ClusterJob publish(long jobId, Path file, WriterMode writerMode) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Split split = CsvRangeSplitter.split(channel, cluster.getTargetRanges(),
+                    importProperties.getParallel().getMinRangeSize().toBytes(), importExecutor.getParsePool());
+            ClusterJob job = new ClusterJob(jobId, file.toAbsolutePath().toString(), writerMode,
+                    new String(split.header(), StandardCharsets.UTF_8), split.ranges());
+            leaseStore.publish(job);
+            log.info("Import job {} published to the cluster in {} ranges", jobId, split.ranges().size());
+            return job;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<ImportStatistics> awaitCompletion(ClusterJob job, ImportProgress progress) {
+        CompletableFuture<ImportStatistics> result = new CompletableFuture<>();
+        long pollMillis = cluster.getPollInterval().toMillis();
+        ScheduledFuture<?> poller = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                // Read before the progress, so the progress read is that of the finished job
+                boolean finished = !leaseStore.isActive(job.jobId());
+                RangeLeaseStore.Progress clusterProgress = leaseStore.progress(job.jobId());
+                progress.set(clusterProgress.totals());
+                if (finished && clusterProgress.error() != null) {
+                    result.completeExceptionally(new IllegalStateException(clusterProgress.error()));
+                } else if (finished) {
+                    result.complete(progress.toStatistics());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot read progress of import job {}: {}", job.jobId(), e.getMessage());
+            }
+        }, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((statistics, ex) -> poller.cancel(false));
+        return result;
+    }
+
+    private void claimRanges() {
+        try {
+            Set<Long> activeJobIds = leaseStore.activeJobIds();
+            knownJobs.keySet().retainAll(activeJobIds);
+            for (long jobId : activeJobIds) {
+                if (claimPermits.availablePermits() == 0) {
+                    return;
+                }
+                ClusterJob job = knownJobs.get(jobId);
+                if (job == null) {
+                    job = leaseStore.load(jobId);
+                    if (job == null) {
+                        continue;
+                    }
+                    knownJobs.put(jobId, job);
+                }
+                claimRanges(job);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot claim import ranges: {}", e.getMessage());
+        }
+    }
+
+    private void claimRanges(ClusterJob job) {
+        Set<Integer> completed = leaseStore.completedRanges(job.jobId());
+        if (completed.size() >= job.ranges().size() || leaseStore.isGivenUp(job.jobId())) {
+            finish(job);
+            return;
+        }
+        for (int index = 0; index < job.ranges().size(); index++) {
+            if (completed.contains(index)) {
+                continue;
+            }
+            if (!claimPermits.tryAcquire()) {
+                return;
+            }
+            boolean claimed = false;
+            try {
+                claimed = leaseStore.claim(job.jobId(), index, nodeId, cluster.getLeaseDuration());
+                if (claimed) {
+                    importRange(job, index);
+                }
+            } finally {
+                if (!claimed) {
+                    claimPermits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Finishes the job unless another replica is finishing it. If publishing the outcome fails,
+     * the job stays active and is finished again once the finish lease expires.
+     */
+    private void finish(ClusterJob job) {
+        if (!leaseStore.claimFinish(job.jobId(), nodeId, cluster.getLeaseDuration())) {
+            return;
+        }
+        RangeLeaseStore.Progress progress = leaseStore.progress(job.jobId());
+        eventPublisher.publishEvent(new ClusterImportFinished(job.jobId(), progress.totals(), progress.error()));
+        leaseStore.finish(job.jobId(), cluster.getFinishedRetention());
+        knownJobs.remove(job.jobId());
+        log.info("Import job {} finished by node {}", job.jobId(), nodeId);
+    }
+
+    /**
+     * Imports a claimed range in the background, extending its lease until it is done. A heartbeat
+     * that fails, or hangs, while Redis is unreachable does not extend the lease, so once none has
+     * succeeded for a lease duration the lease is taken as lost and the import of the range stops:
+     * another replica may own the range by then.
+     */
+    private void importRange(ClusterJob job, int index) {
+        Range range = job.ranges().get(index);
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        AtomicLong extendedAt = new AtomicLong(System.nanoTime());
+        long leaseNanos = cluster.getLeaseDuration().toNanos();
+        BooleanSupplier leaseExpired = () -> leaseLost.get() || System.nanoTime() - extendedAt.get() >= leaseNanos;
+        long heartbeatMillis = cluster.getHeartbeatInterval().toMillis();
+        ScheduledFuture<?> heartbeat = scheduler.scheduleAtFixedRate(() -> {
+            long sentAt = System.nanoTime();
+            try {
+                if (leaseStore.heartbeat(job.jobId(), index, nodeId, cluster.getLeaseDuration())) {
+                    extendedAt.set(sentAt);
+                } else {
+                    leaseLost.set(true);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Heartbeat of range {} of import job {} failed: {}", index, job.jobId(), e.getMessage());
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        log.debug("Importing range {} of import job {}", index, job.jobId());
+        importExecutor.parse(() -> {
+            CsvHeader header = ParallelImportPipeline.parseHeader(job.header().getBytes(StandardCharsets.UTF_8));
+            long lastRow = index + 1 < job.ranges().size()
+                    ? job.ranges().get(index + 1).firstRowNumber() - 1 : Long.MAX_VALUE;
+            CheckpointStore.Resume resume = checkpointStore.load(job.jobId(), range.firstRowNumber(), lastRow);
+            ImportProgress progress = new ImportProgress(job.jobId());
+            progress.set(resume.totals());
+            return csvImportService.importRange(Path.of(job.file()), header, range, job.writerMode(),
+                    progress, resume.committed(), leaseExpired);
+        }).whenComplete((statistics, ex) -> {
+            heartbeat.cancel(false);
+            try {
+                if (ex != null) {
+                    long attempts = leaseStore.fail(job.jobId(), index, nodeId, cluster.getMaxAttempts(),
+                            ex.getMessage());
+                    log.error("Range {} of import job {} failed (attempt {}): {}", index, job.jobId(), attempts,
+                            ex.getMessage());
+                    if (attempts >= cluster.getMaxAttempts()) {
+                        finish(job);
+                    }
+                } else if (leaseExpired.getAsBoolean()) {
+                    log.warn("Lost the lease of range {} of import job {}; it will be resumed by its new owner",
+                            index, job.jobId());
+                } else {
+                    long completed = leaseStore.complete(job.jobId(), index, nodeId, statistics);
+                    if (completed < 0) {
+                        log.warn("Lost the lease of range {} of import job {}; it will be resumed by its new owner",
+                                index, job.jobId());
+                    } else if (completed >= job.ranges().size()) {
+                        finish(job);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Cannot record range {} of import job {}: {}", index, job.jobId(), e.getMessage());
+            } finally {
+                claimPermits.release();
+            }
+        });
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+}
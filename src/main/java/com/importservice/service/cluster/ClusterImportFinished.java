@@ -0,0 +1,14 @@
+package com.importservice.service.cluster;
+
+import com.importservice.dto.ImportStatistics;
+
+/**
+ * Published by the replica finishing a cluster import, whichever replica received the upload.
+ * A listener throwing leaves the job unfinished, for this or another replica to retry.
+ *
+ * @param jobId  the import job
+ * @param totals the counters summed over every range
+ * @param error  why the import was given up, or {@code null} if every range was imported
+ */
+public record ClusterImportFinished(long jobId, ImportStatistics totals, String error) {
+}
@@ -0,0 +1,18 @@
+package com.importservice.service.cluster;
+
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+
+import java.util.List;
+
+/**
+ * An import whose byte ranges are handed out to the replicas of the cluster.
+ *
+ * @param jobId      the import job
+ * @param file       the spooled CSV file, at the same path on every replica
+ * @param writerMode how contacts are written
+ * @param header     the header record of the file
+ * @param ranges     the ranges to import, in file order; a range is identified by its index
+ */
+public record ClusterJob(long jobId, String file, WriterMode writerMode, String header, List<Range> ranges) {
+}
@@ -0,0 +1,285 @@
+package com.importservice.service.cluster;
+
+import com.importservice.dto.ImportStatistics;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis state of cluster imports: the published jobs, the lease of every claimed range, the
+ * completed ranges and the counters summed over them.
+ * <p>
+ * Every key of a job carries the job id as hash tag, so the scripts touching several keys of
+ * one job also work on Redis Cluster. Claiming, heartbeats, completion and failure are Lua
+ * scripts checking the lease owner, so a replica whose lease expired can neither extend it
+ * nor count its range once another replica has claimed it.
+ * <p>
+ * Finishing a job is leased the same way, to the one replica that writes its outcome. A finished
+ * job leaves the active jobs at once; its state expires later, so the origin can still read the outcome.
+ */
+@Component
+@ConditionalOnProperty(prefix = "import.cluster", name = "enabled", havingValue = "true")
+public class RangeLeaseStore {
+
+    private static final String JOBS_KEY = "import:cluster:jobs";
+
+    private static final RedisScript<Long> CLAIM = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[3], 'error') == 1
+                    or redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then
+                return 0
+            end
+            if redis.call('SET', KEYS[2], ARGV[2], 'NX', 'PX', ARGV[3]) then
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> HEARTBEAT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> COMPLETE = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return -1
+            end
+            redis.call('SADD', KEYS[2], ARGV[2])
+            redis.call('DEL', KEYS[1])
+            redis.call('HINCRBY', KEYS[3], 'records', ARGV[3])
+            redis.call('HINCRBY', KEYS[3], 'imported', ARGV[4])
+            redis.call('HINCRBY', KEYS[3], 'failed', ARGV[5])
+            redis.call('HINCRBY', KEYS[3], 'duplicates', ARGV[6])
+            redis.call('HINCRBY', KEYS[3], 'updated', ARGV[7])
+            return redis.call('SCARD', KEYS[2])
+            """, Long.class);
+
+    private static final RedisScript<Long> FAIL = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+            end
+            local attempts = redis.call('HINCRBY', KEYS[2], ARGV[2], 1)
+            if attempts >= tonumber(ARGV[3]) then
+                redis.call('HSET', KEYS[3], 'error', ARGV[4])
+            end
+            return attempts
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RangeLeaseStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Progress of a cluster import, summed over its completed ranges.
+     *
+     * @param completedRanges number of ranges imported
+     * @param totals          the counters of the completed ranges
+     * @param error           why the import was given up, or {@code null}
+     */
+    public record Progress(long completedRanges, ImportStatistics totals, String error) {
+    }
+
+    /**
+     * Makes the job visible to every replica, replacing the state left by an earlier run of it.
+     * The job is added to the active jobs last, so replicas never see it half written.
+     */
+    public void publish(ClusterJob job) {
+        long jobId = job.jobId();
+        remove(jobId);
+        redisTemplate.opsForHash().putAll(jobKey(jobId), Map.of(
+                "file", job.file(),
+                "writer", job.writerMode().name(),
+                "header", job.header()));
+        redisTemplate.opsForList().rightPushAll(rangesKey(jobId), job.ranges().stream()
+                .map(range -> range.start() + ":" + range.end() + ":" + range.firstRowNumber())
+                .toList());
+        redisTemplate.opsForSet().add(JOBS_KEY, Long.toString(jobId));
+    }
+
+    public Set<Long> activeJobIds() {
+        Set<String> members = redisTemplate.opsForSet().members(JOBS_KEY);
+        Set<Long> jobIds = new HashSet<>();
+        if (members != null) {
+            members.forEach(member -> jobIds.add(Long.parseLong(member)));
+        }
+        return jobIds;
+    }
+
+    /**
+     * @return the published job, or {@code null} if it has finished in the meantime
+     */
+    public ClusterJob load(long jobId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(jobKey(jobId));
+        List<String> encodedRanges = redisTemplate.opsForList().range(rangesKey(jobId), 0, -1);
+        if (fields.isEmpty() || encodedRanges == null || encodedRanges.isEmpty()) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>(encodedRanges.size());
+        for (String encoded : encodedRanges) {
+            String[] parts = encoded.split(":");
+            ranges.add(new Range(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+        }
+        return new ClusterJob(jobId, (String) fields.get("file"), WriterMode.valueOf((String) fields.get("writer")),
+                (String) fields.get("header"), ranges);
+    }
+
+    /**
+     * @return the indexes of the ranges already imported
+     */
+    public Set<Integer> completedRanges(long jobId) {
+        Set<String> members = redisTemplate.opsForSet().members(doneKey(jobId));
+        Set<Integer> completed = new HashSet<>();
+        if (members != null) {
+            members.forEach(member -> completed.add(Integer.parseInt(member)));
+        }
+        return completed;
+    }
+
+    /**
+     * @return {@code true} if the job is published and not finished yet
+     */
+    public boolean isActive(long jobId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(JOBS_KEY, Long.toString(jobId)));
+    }
+
+    /**
+     * @return {@code true} if the range is now leased to the owner; {@code false} if it is
+     * leased to another replica, already imported, or the job was given up
+     */
+    public boolean claim(long jobId, int range, String owner, Duration lease) {
+        Long claimed = redisTemplate.execute(CLAIM, List.of(doneKey(jobId), leaseKey(jobId, range), jobKey(jobId)),
+                Integer.toString(range), owner, Long.toString(lease.toMillis()));
+        return claimed != null && claimed == 1;
+    }
+
+    /**
+     * @return {@code false} if the lease is no longer held by the owner
+     */
+    public boolean heartbeat(long jobId, int range, String owner, Duration lease) {
+        Long extended = redisTemplate.execute(HEARTBEAT, List.of(leaseKey(jobId, range)),
+                owner, Long.toString(lease.toMillis()));
+        return extended != null && extended == 1;
+    }
+
+    /**
+     * Marks the range imported and adds its counters to the job, if the owner still holds the lease.
+     *
+     * @return the number of ranges imported so far, or {@code -1} if the lease was lost
+     */
+    public long complete(long jobId, int range, String owner, ImportStatistics statistics) {
+        Long completed = redisTemplate.execute(COMPLETE,
+                List.of(leaseKey(jobId, range), doneKey(jobId), countersKey(jobId)),
+                owner, Integer.toString(range),
+                Long.toString(statistics.totalRecords()), Long.toString(statistics.totalImported()),
+                Long.toString(statistics.totalFailed()), Long.toString(statistics.totalDuplicates()),
+                Long.toString(statistics.totalUpdated()));
+        return completed == null ? -1 : completed;
+    }
+
+    /**
+     * Releases the range for another attempt, or gives the job up once the range has failed
+     * {@code maxAttempts} times.
+     *
+     * @return the number of failed attempts of the range
+     */
+    public long fail(long jobId, int range, String owner, int maxAttempts, String message) {
+        Long attempts = redisTemplate.execute(FAIL, List.of(leaseKey(jobId, range), attemptsKey(jobId), jobKey(jobId)),
+                owner, Integer.toString(range), Integer.toString(maxAttempts),
+                "Range " + range + " failed " + maxAttempts + " times: " + message);
+        return attempts == null ? 0 : attempts;
+    }
+
+    /**
+     * @return {@code true} if a range of the job has failed too often and the job was given up
+     */
+    public boolean isGivenUp(long jobId) {
+        return redisTemplate.opsForHash().hasKey(jobKey(jobId), "error");
+    }
+
+    /**
+     * Leases finishing the job to the owner. Once the lease expires without the job being
+     * {@linkplain #finish finished}, e.g. because the owner died, another replica may claim it.
+     *
+     * @return {@code true} if the owner is to finish the job
+     */
+    public boolean claimFinish(long jobId, String owner, Duration lease) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(finishKey(jobId), owner, lease));
+    }
+
+    /**
+     * Withdraws the finished job from the active jobs, keeping its state, counters and error
+     * readable for {@code retention}.
+     */
+    public void finish(long jobId, Duration retention) {
+        for (String key : List.of(jobKey(jobId), rangesKey(jobId), doneKey(jobId), countersKey(jobId),
+                attemptsKey(jobId), finishKey(jobId))) {
+            redisTemplate.expire(key, retention);
+        }
+        redisTemplate.opsForSet().remove(JOBS_KEY, Long.toString(jobId));
+    }
+
+    public Progress progress(long jobId) {
+        Map<Object, Object> counters = redisTemplate.opsForHash().entries(countersKey(jobId));
+        Long completed = redisTemplate.opsForSet().size(doneKey(jobId));
+        Object error = redisTemplate.opsForHash().get(jobKey(jobId), "error");
+        ImportStatistics totals = new ImportStatistics(counter(counters, "imported"), counter(counters, "failed"),
+                counter(counters, "records"), counter(counters, "duplicates"), counter(counters, "updated"));
+        return new Progress(completed == null ? 0 : completed, totals, (String) error);
+    }
+
+    /**
+     * Withdraws the job from the active jobs and deletes its state. Leases still held expire on their own.
+     */
+    public void remove(long jobId) {
+        redisTemplate.opsForSet().remove(JOBS_KEY, Long.toString(jobId));
+        redisTemplate.delete(List.of(jobKey(jobId), rangesKey(jobId), doneKey(jobId), countersKey(jobId),
+                attemptsKey(jobId), finishKey(jobId)));
+    }
+
+    private static long counter(Map<Object, Object> counters, String name) {
+        Object value = counters.get(name);
+        return value == null ? 0 : Long.parseLong((String) value);
+    }
+
+    private static String jobKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:job";
+    }
+
+    private static String rangesKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:ranges";
+    }
+
+    private static String doneKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:done";
+    }
+
+    private static String countersKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:counters";
+    }
+
+    private static String attemptsKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:attempts";
+    }
+
+    private static String finishKey(long jobId) {
+        return "import:cluster:{" + jobId + "}:finish";
+    }
+
+    private static String leaseKey(long jobId, int range) {
+        return "import:cluster:{" + jobId + "}:lease:" + range;
+    }
+
+}
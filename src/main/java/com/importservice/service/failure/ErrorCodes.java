@@ -0,0 +1,92 @@
+package com.importservice.service.failure;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Error codes stored with unimported rows, so failures can be grouped without parsing messages.
+ */
+public final class ErrorCodes {
+
+    /**
+     * The row could not be mapped to a contact.
+     */
+    public static final String MAPPING_FAILED = "MAPPING_FAILED";
+
+    /**
+     * The row was rejected by the database for a reason without a more specific code.
+     */
+    public static final String WRITE_FAILED = "WRITE_FAILED";
+
+    /**
+     * A value longer than its column. Validation rules append the column, e.g. {@code VALUE_TOO_LONG:mi}.
+     */
+    public static final String VALUE_TOO_LONG = "VALUE_TOO_LONG";
+
+    /**
+     * A value the database cannot store as text, e.g. containing a NUL character.
+     */
+    public static final String INVALID_ENCODING = "INVALID_ENCODING";
+
+    /**
+     * Validation rules rejecting the format of a column, with the column appended.
+     */
+    public static final String INVALID_EMAIL = "INVALID_EMAIL";
+
+    public static final String INVALID_PHONE = "INVALID_PHONE";
+
+    public static final String INVALID_DATE = "INVALID_DATE";
+
+    /**
+     * The natural key of the row is already stored, by another contact of any import.
+     */
+    public static final String DUPLICATE_KEY = "DUPLICATE_KEY";
+
+    /**
+     * Rows stored before error codes existed.
+     */
+    public static final String LEGACY = "LEGACY";
+
+    private static final Map<String, String> BY_SQL_STATE = Map.of(
+            "22001", VALUE_TOO_LONG,
+            "22021", INVALID_ENCODING,
+            "22P02", "INVALID_VALUE",
+            "23502", "NOT_NULL_VIOLATION",
+            "23505", DUPLICATE_KEY,
+            "23514", "CHECK_VIOLATION");
+
+    private ErrorCodes() {
+    }
+
+    /**
+     * Whether a write failed because of the rows written, i.e. with a data exception (SQL state
+     * class {@code 22}) or an integrity constraint violation (class {@code 23}), so other rows could
+     * still be written. Any other failure, e.g. a lost connection, a timeout or a serialization
+     * failure, would fail every row alike.
+     */
+    public static boolean isDataFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String state = sqlException.getSQLState();
+                return state.startsWith("22") || state.startsWith("23");
+            }
+        }
+        return failure instanceof DataIntegrityViolationException;
+    }
+
+    /**
+     * @return the code of a failed write, from the SQL state of the first {@link SQLException} causing it
+     */
+    public static String ofWriteFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String state = sqlException.getSQLState();
+                return BY_SQL_STATE.getOrDefault(state, "SQLSTATE_" + state);
+            }
+        }
+        return WRITE_FAILED;
+    }
+
+}
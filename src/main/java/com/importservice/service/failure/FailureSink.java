@@ -0,0 +1,61 @@
+package com.importservice.service.failure;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores rows that could not be imported in {@code unimported_contacts}, one JDBC batch per call.
+ * <p>
+ * A row is kept as its original values in one {@code jsonb} column rather than mapped to the
+ * contacts columns, so storing it costs one small insert, cannot fail on a value too long for a
+ * column, and keeps columns with unexpected headers.
+ */
+@Component
+public class FailureSink {
+
+    private static final String INSERT_SQL = "INSERT INTO unimported_contacts "
+            + "(job_id, row_number, error_code, error_message, raw_row) VALUES (?, ?, ?, ?, CAST(? AS jsonb))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public FailureSink(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Stores the failed rows of an import job. Must run inside the transaction that checkpoints them.
+     */
+    public void write(long jobId, List<RowFailure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(failures.size());
+        for (RowFailure failure : failures) {
+            rows.add(new Object[]{jobId, failure.rowNumber(), failure.errorCode(),
+                    withoutNul(failure.errorMessage()), toJson(failure)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private String toJson(RowFailure failure) {
+        try {
+            return objectMapper.writeValueAsString(failure.rawRow());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String withoutNul(String value) {
+        return value == null || value.indexOf('\0') < 0 ? value : value.replace("\0", "");
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.importservice.service.failure;
+
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A row that could not be imported, as stored in {@code unimported_contacts}.
+ *
+ * @param rowNumber    the number of the row in its file
+ * @param errorCode    see {@link ErrorCodes}
+ * @param errorMessage why the row failed
+ * @param rawRow       every column of the row by header, in column order
+ */
+public record RowFailure(long rowNumber, String errorCode, String errorMessage, Map<String, String> rawRow) {
+
+    public static RowFailure of(CsvRow row, String errorCode, Throwable cause) {
+        return of(row, errorCode, cause.getMessage());
+    }
+
+    public static RowFailure of(CsvRow row, String errorCode, String errorMessage) {
+        return new RowFailure(row.rowNumber(), errorCode, errorMessage, rawRow(row));
+    }
+
+    /**
+     * Keeps every column, including those no mapper knows. Columns with a blank or repeated header
+     * are keyed {@code #<column number>}; NUL characters, which {@code jsonb} rejects, are dropped.
+     */
+    public static Map<String, String> rawRow(CsvRow row) {
+        CsvHeader header = row.header();
+        int columns = Math.max(header.size(), row.values().length);
+        Map<String, String> raw = new LinkedHashMap<>(columns * 2);
+        for (int i = 0; i < columns; i++) {
+            String name = i < header.size() ? header.name(i) : null;
+            if (name == null || raw.containsKey(name)) {
+                name = "#" + (i + 1);
+            }
+            raw.put(withoutNul(name), withoutNul(row.get(i)));
+        }
+        return raw;
+    }
+
+    private static String withoutNul(String value) {
+        return value == null || value.indexOf('\0') < 0 ? value : value.replace("\0", "");
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.importservice.service.metrics;
+
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters of one import job, all tagged with {@code import=<job id>}:
+ * <ul>
+ *     <li>{@code import.stage.duration} timers per {@code stage}: {@code parse} (one chunk, or the whole
+ *     file in {@code BUFFERED} mode), {@code map}, {@code validate} and {@code write} (one chunk),
+ *     {@code failure-persist} (storing the rejected rows of one chunk) and {@code merge} (one slice
+ *     of a staged import, whose {@code validate} covers the whole staging table);</li>
+ *     <li>{@code import.rows} counters per {@code outcome}, {@code import.bytes} of CSV parsed and
+ *     {@code import.failures} per {@code stage} and {@code error}: the class of the failure, or the
+ *     rule a row broke in {@code validate};</li>
+ *     <li>{@code import.chunks.queued}, {@code import.chunks.in.flight} and {@code import.workers.active}
+ *     gauges of the chunks handed to the {@link com.importservice.service.ImportExecutor};</li>
+ *     <li>{@code import.interner.lookups} per {@code result} ({@code hit}, {@code miss}, {@code bypass})
+ *     and the {@code import.interner.hit.ratio} gauge of the {@link ColumnInterner}s of the job.</li>
+ * </ul>
+ * Obtained from {@link ImportMetrics}, which removes the meters some time after the job finished.
+ */
+public class ImportMeters {
+
+    public static final String STAGE_PARSE = "parse";
+
+    public static final String STAGE_MAP = "map";
+
+    public static final String STAGE_VALIDATE = "validate";
+
+    public static final String STAGE_WRITE = "write";
+
+    public static final String STAGE_FAILURE_PERSIST = "failure-persist";
+
+    public static final String STAGE_MERGE = "merge";
+
+    private final long jobId;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Tags tags;
+
+    private final List<Meter> meters = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+
+    private final Timer parse;
+
+    private final Timer map;
+
+    private final Timer validate;
+
+    private final Timer write;
+
+    private final Timer failurePersist;
+
+    private final Timer merge;
+
+    private final Counter parsedRows;
+
+    private final Counter importedRows;
+
+    private final Counter updatedRows;
+
+    private final Counter failedRows;
+
+    private final Counter duplicateRows;
+
+    private final Counter bytes;
+
+    private final ColumnInterner.Statistics internerStatistics = new ColumnInterner.Statistics();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Number of runs of the job on this replica using the meters; guarded by {@link ImportMetrics}.
+     */
+    int users;
+
+    /**
+     * When the last run released the meters, in {@link System#nanoTime()}; guarded by {@link ImportMetrics}.
+     */
+    long releasedAt;
+
+    ImportMeters(long jobId, MeterRegistry meterRegistry) {
+        this.jobId = jobId;
+        this.meterRegistry = meterRegistry;
+        this.tags = Tags.of("import", Long.toString(jobId));
+
+        this.parse = stageTimer(STAGE_PARSE);
+        this.map = stageTimer(STAGE_MAP);
+        this.validate = stageTimer(STAGE_VALIDATE);
+        this.write = stageTimer(STAGE_WRITE);
+        this.failurePersist = stageTimer(STAGE_FAILURE_PERSIST);
+        this.merge = stageTimer(STAGE_MERGE);
+
+        this.parsedRows = rowCounter("parsed");
+        this.importedRows = rowCounter("imported");
+        this.updatedRows = rowCounter("updated");
+        this.failedRows = rowCounter("failed");
+        this.duplicateRows = rowCounter("duplicate");
+        this.bytes = register(Counter.builder("import.bytes").tags(tags).baseUnit("bytes")
+                .description("CSV bytes parsed").register(meterRegistry));
+
+        register(Gauge.builder("import.chunks.queued", queued, AtomicInteger::get).tags(tags)
+                .description("Chunks waiting for a worker").register(meterRegistry));
+        register(Gauge.builder("import.chunks.in.flight", this, ImportMeters::getChunksInFlight).tags(tags)
+                .description("Chunks parsed but not yet written").register(meterRegistry));
+        register(Gauge.builder("import.workers.active", active, AtomicInteger::get).tags(tags)
+                .description("Workers currently processing a chunk").register(meterRegistry));
+
+        internerCounter("hit", ColumnInterner.Statistics::hits);
+        internerCounter("miss", ColumnInterner.Statistics::misses);
+        internerCounter("bypass", ColumnInterner.Statistics::bypassed);
+        register(Gauge.builder("import.interner.hit.ratio", internerStatistics, ColumnInterner.Statistics::hitRatio)
+                .tags(tags).description("Share of interned column values that reused a shared instance")
+                .register(meterRegistry));
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public void recordParse(long nanos) {
+        parse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMap(long nanos) {
+        map.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordValidate(long nanos) {
+        validate.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordWrite(long nanos) {
+        write.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailurePersist(long nanos) {
+        failurePersist.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMerge(long nanos) {
+        merge.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the lookup counts shared by the interners of the job
+     */
+    public ColumnInterner.Statistics getInternerStatistics() {
+        return internerStatistics;
+    }
+
+    public void addBytes(long count) {
+        bytes.increment(count);
+    }
+
+    /**
+     * Counts the outcome of the rows of one chunk.
+     */
+    public void addRows(long parsed, long imported, long updated, long failed, long duplicates) {
+        parsedRows.increment(parsed);
+        importedRows.increment(imported);
+        updatedRows.increment(updated);
+        failedRows.increment(failed);
+        duplicateRows.increment(duplicates);
+    }
+
+    /**
+     * Counts a row that failed in the given stage, by the class of the failure.
+     */
+    public void failure(String stage, Throwable cause) {
+        failure(stage, cause.getClass().getSimpleName());
+    }
+
+    /**
+     * Counts a row that failed in the given stage, by error, e.g. the validation rule it broke.
+     */
+    public void failure(String stage, String error) {
+        failures.computeIfAbsent(stage + ':' + error, key -> register(Counter.builder("import.failures")
+                .tags(tags).tag("stage", stage).tag("error", error)
+                .description("Rows rejected, by stage and error").register(meterRegistry)))
+                .increment();
+    }
+
+    /**
+     * Wraps a chunk about to be handed to the executor, counting it as queued until a worker
+     * runs it and as active while it runs. Call {@link #chunkRejected()} if the executor refuses it.
+     */
+    public Runnable chunk(Runnable chunk) {
+        queued.incrementAndGet();
+        return () -> {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                chunk.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        };
+    }
+
+    public void chunkRejected() {
+        queued.decrementAndGet();
+    }
+
+    public int getChunksInFlight() {
+        return queued.get() + active.get();
+    }
+
+    /**
+     * Removes every meter of the job from the registry.
+     */
+    void remove() {
+        meters.forEach(meterRegistry::remove);
+        meters.clear();
+        failures.clear();
+    }
+
+    private Timer stageTimer(String stage) {
+        return register(Timer.builder("import.stage.duration").tags(tags).tag("stage", stage)
+                .description("Time spent in one stage of the import, per chunk")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private Counter rowCounter(String outcome) {
+        return register(Counter.builder("import.rows").tags(tags).tag("outcome", outcome)
+                .description("Rows processed, by outcome").register(meterRegistry));
+    }
+
+    private void internerCounter(String result, ToDoubleFunction<ColumnInterner.Statistics> count) {
+        register(FunctionCounter.builder("import.interner.lookups", internerStatistics, count)
+                .tags(tags).tag("result", result)
+                .description("Lookups of interned column values, by result").register(meterRegistry));
+    }
+
+    private <M extends Meter> M register(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.importservice.service.metrics;
+
+import com.importservice.config.ImportProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the {@link ImportMeters} of running imports. Several runs of one job on the same
+ * replica, e.g. ranges of a cluster import, share its meters.
+ * <p>
+ * The meters of a job outlive it by {@code import.metrics.retention}, so the final values are
+ * still scraped; then they are removed to keep the number of series bounded.
+ */
+@Component
+public class ImportMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final long retentionNanos;
+
+    private final Map<Long, ImportMeters> jobs = new ConcurrentHashMap<>();
+
+    public ImportMetrics(MeterRegistry meterRegistry, ImportProperties importProperties) {
+        this.meterRegistry = meterRegistry;
+        this.retentionNanos = importProperties.getMetrics().getRetention().toNanos();
+    }
+
+    /**
+     * @return the meters of the job, registered on first use; pass them to {@link #release} when the run ends
+     */
+    public ImportMeters acquire(long jobId) {
+        return jobs.compute(jobId, (id, meters) -> {
+            ImportMeters acquired = meters != null ? meters : new ImportMeters(id, meterRegistry);
+            acquired.users++;
+            return acquired;
+        });
+    }
+
+    public void release(ImportMeters meters) {
+        jobs.computeIfPresent(meters.getJobId(), (id, acquired) -> {
+            if (--acquired.users == 0) {
+                acquired.releasedAt = System.nanoTime();
+            }
+            return acquired;
+        });
+    }
+
+    @Scheduled(fixedRateString = "${import.metrics.retention}")
+    public void removeFinished() {
+        long now = System.nanoTime();
+        jobs.keySet().forEach(jobId -> jobs.computeIfPresent(jobId, (id, meters) -> {
+            if (meters.users == 0 && now - meters.releasedAt >= retentionNanos) {
+                meters.remove();
+                return null;
+            }
+            return meters;
+        }));
+    }
+
+}
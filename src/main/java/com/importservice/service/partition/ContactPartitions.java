@@ -0,0 +1,90 @@
+package com.importservice.service.partition;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.service.writer.ContactColumns;
+import com.importservice.service.writer.NaturalKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The partitions of {@code contacts}, one per import job, listing its {@code import_id}.
+ * <p>
+ * A partition is created as a plain table and then attached, which only takes a
+ * {@code SHARE UPDATE EXCLUSIVE} lock on {@code contacts}, so starting an import does not wait
+ * for, or block, queries and other imports. Dropping one detaches it first; that needs an
+ * {@code ACCESS EXCLUSIVE} lock, held only for the catalog change and bounded by
+ * {@code import.partitions.lock-timeout}.
+ */
+@Slf4j
+@Component
+public class ContactPartitions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long lockTimeoutMillis;
+
+    public ContactPartitions(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             ImportProperties importProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lockTimeoutMillis = importProperties.getPartitions().getLockTimeout().toMillis();
+    }
+
+    public static String nameOf(long importId) {
+        return ContactColumns.TABLE + "_import_" + importId;
+    }
+
+    /**
+     * Creates the partition of an import unless it exists, e.g. when the import is resumed.
+     */
+    public void create(long importId) {
+        String partition = nameOf(importId);
+        transactionTemplate.executeWithoutResult(status -> {
+            setLockTimeout();
+            if (exists(partition)) {
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + ContactColumns.TABLE + ")");
+            jdbcTemplate.execute("ALTER TABLE " + ContactColumns.TABLE + " ATTACH PARTITION " + partition
+                    + " FOR VALUES IN (" + importId + ")");
+        });
+        log.debug("Created partition {}", partition);
+    }
+
+    /**
+     * Detaches and drops the partition of an import and deletes its natural keys, which dropping a
+     * partition does not. Must run inside a transaction, which holds the locks until it ends; writers
+     * still inserting into the partition fail it on the lock timeout.
+     *
+     * @return the number of contacts dropped, {@code 0} if the import has no partition
+     */
+    public long drop(long importId) {
+        String partition = nameOf(importId);
+        setLockTimeout();
+        if (!exists(partition)) {
+            return 0;
+        }
+        // Blocks writers, so the count matches what is dropped
+        jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+        Long contacts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+        jdbcTemplate.update("DELETE FROM " + NaturalKey.TABLE + " WHERE " + ContactColumns.IMPORT_ID_COLUMN + " = ?",
+                importId);
+        jdbcTemplate.execute("ALTER TABLE " + ContactColumns.TABLE + " DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        log.info("Dropped partition {} with {} contacts", partition, contacts);
+        return contacts == null ? 0 : contacts;
+    }
+
+    private boolean exists(String partition) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+    }
+
+    private void setLockTimeout() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMillis);
+    }
+
+}
@@ -0,0 +1,606 @@
+package com.importservice.service.staging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.importservice.config.ImportProperties;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.entity.Contact;
+import com.importservice.entity.ImportJobState;
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+import com.importservice.service.ImportProgress;
+import com.importservice.service.ImportRun;
+import com.importservice.service.checkpoint.CheckpointStore;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.failure.RowFailure;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.partition.ContactPartitions;
+import com.importservice.service.statistics.ImportCounters;
+import com.importservice.service.validation.ContactValidator;
+import com.importservice.service.validation.ContactValidator.ColumnRule;
+import com.importservice.service.validation.RuleViolation;
+import com.importservice.service.writer.ContactColumns;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import com.importservice.service.writer.IdRangeAllocator;
+import com.importservice.service.writer.NaturalKey;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Imports through an {@code UNLOGGED} staging table per import job instead of writing every chunk
+ * to {@code contacts}:
+ * <ol>
+ *     <li>{@link #load} maps each chunk on its worker and appends it to the staging table with one
+ *     {@code COPY}, which is not WAL-logged and has no index to maintain;</li>
+ *     <li>{@link #validate} rejects rows breaking a {@link ContactValidator} rule and marks rows
+ *     repeating a natural key, each with one statement over the whole table;</li>
+ *     <li>{@link #merge} moves the rows into the partition of the import, their keys into
+ *     {@code contact_keys} and the rejects into {@code unimported_contacts} with one
+ *     {@code INSERT ... SELECT} each per slice of
+ *     {@code import.staging.merge-slice-rows}, committed together with the checkpoint of the slice.</li>
+ * </ol>
+ * Date columns are checked while mapping, as their formats are Java patterns; every other rule
+ * runs in SQL. Rows rejected while mapping stage their whole raw row for {@code unimported_contacts};
+ * valid rows only what their contact columns do not hold as parsed, usually nothing, and get
+ * their raw row rebuilt from those columns if SQL rejects them. A resumed import stages only the rows not committed yet. Rows repeating the key of a
+ * contact stored before are found per slice in {@code contact_keys}: duplicates if the import itself
+ * merged it in an earlier run, rejected as {@link ErrorCodes#DUPLICATE_KEY} if another import did.
+ * <p>
+ * The staging table is dropped when the import completes or fails. Tables left behind by a crash
+ * are dropped on startup: all of them without a cluster, otherwise those of jobs no longer running.
+ */
+@Slf4j
+@Component
+public class StagedContactImport {
+
+    private static final String TABLE_PREFIX = ContactColumns.TABLE + "_staging_";
+
+    private static final String STAGING_COLUMNS = "id, row_number, error_code, error_message, raw_row, "
+            + ContactColumns.all().stream().map(ContactColumn::name).collect(Collectors.joining(", "));
+
+    private static final int MAX_MESSAGE_VALUE_LENGTH = 64;
+
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+
+    /**
+     * Half the 100 arguments a PostgreSQL function takes.
+     */
+    private static final int MAX_PAIRS_PER_JSON_OBJECT = 50;
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ContactCSVMapper contactMapper;
+
+    private final ContactValidator contactValidator;
+
+    private final NaturalKey naturalKey;
+
+    private final IdRangeAllocator idRangeAllocator;
+
+    private final CheckpointStore checkpointStore;
+
+    private final ImportCounters importCounters;
+
+    private final ObjectMapper objectMapper;
+
+    private final ImportProperties importProperties;
+
+    private final Map<Long, RawRowColumns> rawRowColumns = new ConcurrentHashMap<>();
+
+    /**
+     * The columns of a file that a contact column holds as parsed, unless the mapper changed the value.
+     *
+     * @param header  the header of the file
+     * @param keys    the raw row key of every header column, see {@link RowFailure#rawRow}
+     * @param columns the contact column holding every header column, {@code null} if none does
+     * @param sql     the expression rebuilding the raw row of a staged row, whole or partial
+     */
+    private record RawRowColumns(CsvHeader header, String[] keys, ContactColumn[] columns, String sql) {
+    }
+
+    public StagedContactImport(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate, ContactCSVMapper contactMapper,
+                               ContactValidator contactValidator, NaturalKey naturalKey,
+                               IdRangeAllocator idRangeAllocator, CheckpointStore checkpointStore,
+                               ImportCounters importCounters, ObjectMapper objectMapper,
+                               ImportProperties importProperties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.contactMapper = contactMapper;
+        this.contactValidator = contactValidator;
+        this.naturalKey = naturalKey;
+        this.idRangeAllocator = idRangeAllocator;
+        this.checkpointStore = checkpointStore;
+        this.importCounters = importCounters;
+        this.objectMapper = objectMapper;
+        this.importProperties = importProperties;
+    }
+
+    public static String nameOf(long jobId) {
+        return TABLE_PREFIX + jobId;
+    }
+
+    /**
+     * Creates an empty staging table for the job, replacing one left by an earlier run.
+     */
+    public void create(long jobId) {
+        String table = nameOf(jobId);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE " + table + " (id BIGINT, row_number BIGINT NOT NULL, "
+                + "error_code VARCHAR(100), error_message TEXT, raw_row JSONB, "
+                + "duplicate BOOLEAN NOT NULL DEFAULT FALSE, "
+                + ContactColumns.all().stream().map(column -> column.name() + " TEXT")
+                .collect(Collectors.joining(", "))
+                + ")");
+    }
+
+    /**
+     * Drops the staging table of the job, if any.
+     */
+    public void drop(long jobId) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + nameOf(jobId));
+        rawRowColumns.remove(jobId);
+    }
+
+    /**
+     * Maps a chunk and appends it to the staging table with one {@code COPY}. Rows committed by an
+     * earlier run are skipped; rows that cannot be mapped, or break a date rule, are staged rejected.
+     */
+    public void load(List<CsvRow> batch, ImportRun run) {
+        ImportMeters meters = run.meters();
+        long mapStarted = System.nanoTime();
+        List<ColumnRule> dateRules = dateRules();
+        List<CsvRow> rows = new ArrayList<>(batch.size());
+        List<Contact> contacts = new ArrayList<>(batch.size());
+        List<RuleViolation> violations = new ArrayList<>(batch.size());
+        int valid = 0;
+        for (CsvRow row : batch) {
+            if (run.committed().contains(row.rowNumber())) {
+                continue;
+            }
+            Contact contact = null;
+            RuleViolation violation;
+            try {
+                contact = contactMapper.map(row);
+                naturalKey.normalize(contact);
+                violation = check(contact, dateRules);
+                if (violation != null) {
+                    meters.failure(ImportMeters.STAGE_VALIDATE, violation.rule());
+                }
+            } catch (Exception e) {
+                log.error("Error mapping record {}: {}", row.rowNumber(), e.getMessage());
+                meters.failure(ImportMeters.STAGE_MAP, e);
+                violation = new RuleViolation(ErrorCodes.MAPPING_FAILED, e.getMessage());
+            }
+            rows.add(row);
+            contacts.add(violation == null ? contact : null);
+            violations.add(violation);
+            if (violation == null) {
+                valid++;
+            }
+        }
+        if (rows.isEmpty()) {
+            meters.recordMap(System.nanoTime() - mapStarted);
+            return;
+        }
+        long[] ids = valid > 0 ? idRangeAllocator.reserve(valid) : new long[0];
+        CsvHeader header = rows.getFirst().header();
+        RawRowColumns reproduced = rawRowColumns.compute(run.jobId(),
+                (jobId, known) -> known != null && known.header() == header ? known : rawRowColumns(header));
+        String csv = toCsv(rows, contacts, violations, ids, reproduced);
+        meters.recordMap(System.nanoTime() - mapStarted);
+
+        long writeStarted = System.nanoTime();
+        copy(nameOf(run.jobId()), csv);
+        meters.recordWrite(System.nanoTime() - writeStarted);
+    }
+
+    /**
+     * Indexes the loaded table, then rejects the rows breaking a validation rule and marks the
+     * valid rows repeating the natural key of an earlier row. Keys stored already are checked by
+     * {@link #merge}, which holds them locked.
+     */
+    public void validate(ImportRun run) {
+        long started = System.nanoTime();
+        String table = nameOf(run.jobId());
+        jdbcTemplate.execute("CREATE INDEX ON " + table + " (row_number)");
+        jdbcTemplate.execute("ANALYZE " + table);
+        if (contactValidator.isEnabled()) {
+            String validation = validationSql(table);
+            if (validation != null) {
+                int rejected = jdbcTemplate.update(validation);
+                log.debug("Rejected {} staged rows of import job {}", rejected, run.jobId());
+            }
+        }
+        List<String> keys = naturalKey.columns().stream().map(ContactColumn::name).toList();
+        String partitionBy = String.join(", ", keys);
+        String keyPresent = keys.stream().map(key -> key + " IS NOT NULL").collect(Collectors.joining(" AND "));
+        int duplicates = jdbcTemplate.update("UPDATE " + table + " staged SET duplicate = TRUE FROM ("
+                + "SELECT row_number, ROW_NUMBER() OVER (PARTITION BY " + partitionBy + " ORDER BY row_number) "
+                + "AS occurrence FROM " + table + " WHERE error_code IS NULL AND " + keyPresent + ") ranked "
+                + "WHERE staged.row_number = ranked.row_number AND ranked.occurrence > 1");
+        log.debug("Marked {} staged rows of import job {} as duplicates", duplicates, run.jobId());
+        run.meters().recordValidate(System.nanoTime() - started);
+    }
+
+    /**
+     * Merges the staging table slice by slice, each in one transaction with its checkpoint and
+     * counters, so a failed merge resumes after the last committed slice.
+     */
+    public void merge(ImportRun run) {
+        String table = nameOf(run.jobId());
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT MIN(row_number) AS first_row, MAX(row_number) AS last_row FROM " + table);
+        if (bounds.get("first_row") == null) {
+            return;
+        }
+        long firstRow = ((Number) bounds.get("first_row")).longValue();
+        long lastRow = ((Number) bounds.get("last_row")).longValue();
+        int sliceRows = importProperties.getStaging().getMergeSliceRows();
+        for (long from = firstRow; from <= lastRow; from += sliceRows) {
+            mergeSlice(run, table, from, Math.min(from + sliceRows - 1, lastRow));
+        }
+    }
+
+    private void mergeSlice(ImportRun run, String table, long from, long to) {
+        long started = System.nanoTime();
+        SliceResult result;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                result = transactionTemplate.execute(status -> mergeSlice(run.jobId(), table, from, to));
+                break;
+            } catch (DuplicateKeyException e) {
+                // Another import stored one of the keys since they were checked; check them again
+                if (attempt == MAX_MERGE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Merging rows {} to {} of import job {} again: {}", from, to, run.jobId(), e.getMessage());
+            }
+        }
+        if (result == null) {
+            return;
+        }
+        ImportProgress progress = run.progress();
+        progress.addRecords(result.records());
+        progress.addImported(result.inserted());
+        progress.addFailed(result.rejected());
+        progress.addDuplicates(result.duplicates());
+        progress.addRuleFailures(result.ruleFailures());
+        ImportMeters meters = run.meters();
+        meters.addRows(result.records(), result.inserted(), 0, result.rejected(), result.duplicates());
+        meters.recordMerge(System.nanoTime() - started);
+    }
+
+    /**
+     * Marks the rows of the slice whose key is stored already, then moves the slice; runs in the
+     * transaction of the slice.
+     *
+     * @return the outcome of the slice, {@code null} if it has no rows
+     */
+    private SliceResult mergeSlice(long jobId, String table, long from, long to) {
+        String slice = " FROM " + table + " WHERE row_number BETWEEN ? AND ?";
+        String keyMatch = naturalKey.columns().stream()
+                .map(column -> "stored." + column.name() + " = staged." + column.name())
+                .collect(Collectors.joining(" AND "));
+        jdbcTemplate.update("UPDATE " + table + " staged SET "
+                + "duplicate = (stored.import_id = " + jobId + "), "
+                + "error_code = CASE WHEN stored.import_id = " + jobId + " THEN NULL ELSE "
+                + literal(ErrorCodes.DUPLICATE_KEY) + " END, "
+                + "error_message = CASE WHEN stored.import_id = " + jobId + " THEN NULL ELSE "
+                + "'Natural key already stored by contact ' || stored.contact_id || ' of import ' || stored.import_id END "
+                + "FROM " + NaturalKey.TABLE + " stored WHERE staged.row_number BETWEEN ? AND ? "
+                + "AND staged.error_code IS NULL AND NOT staged.duplicate AND " + keyMatch, from, to);
+        List<Long> rowNumbers = new ArrayList<>();
+        long[] duplicates = new long[1];
+        jdbcTemplate.query("SELECT row_number, duplicate" + slice + " ORDER BY row_number", resultSet -> {
+            rowNumbers.add(resultSet.getLong(1));
+            if (resultSet.getBoolean(2)) {
+                duplicates[0]++;
+            }
+        }, from, to);
+        if (rowNumbers.isEmpty()) {
+            return null;
+        }
+        Map<String, Long> ruleFailures = new TreeMap<>();
+        jdbcTemplate.query("SELECT error_code, COUNT(*)" + slice + " AND error_code IS NOT NULL "
+                + "GROUP BY error_code", resultSet -> {
+            ruleFailures.put(resultSet.getString(1), resultSet.getLong(2));
+        }, from, to);
+        long inserted = jdbcTemplate.update("INSERT INTO " + ContactPartitions.nameOf(jobId) + " ("
+                + ContactColumns.columnList() + ") SELECT id, " + jobId + ", "
+                + ContactColumns.all().stream().map(ContactColumn::name).collect(Collectors.joining(", "))
+                + slice + " AND error_code IS NULL AND NOT duplicate", from, to);
+        String keyColumns = naturalKey.columns().stream().map(ContactColumn::name).collect(Collectors.joining(", "));
+        jdbcTemplate.update("INSERT INTO " + NaturalKey.TABLE + " (" + keyColumns + ", " + NaturalKey.CONTACT_ID_COLUMN
+                + ", " + ContactColumns.IMPORT_ID_COLUMN + ") SELECT " + keyColumns + ", id, " + jobId
+                + slice + " AND error_code IS NULL AND NOT duplicate AND ROW (" + keyColumns + ") IS NOT NULL",
+                from, to);
+        RawRowColumns reproduced = rawRowColumns.get(jobId);
+        long rejected = jdbcTemplate.update("INSERT INTO unimported_contacts "
+                + "(job_id, row_number, error_code, error_message, raw_row) "
+                + "SELECT " + jobId + ", row_number, error_code, error_message, "
+                + (reproduced == null ? "raw_row" : reproduced.sql())
+                + slice + " AND error_code IS NOT NULL", from, to);
+        checkpointStore.record(jobId, rowNumbers, new ImportStatistics(inserted, rejected,
+                (long) rowNumbers.size(), duplicates[0], 0L));
+        importCounters.add(inserted, rejected);
+        return new SliceResult(rowNumbers.size(), inserted, rejected, duplicates[0], ruleFailures);
+    }
+
+    private record SliceResult(long records, long inserted, long rejected, long duplicates,
+                               Map<String, Long> ruleFailures) {
+    }
+
+    /**
+     * Drops the staging tables left behind by imports that ended with the replica running them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropLeftovers() {
+        boolean cluster = importProperties.getCluster().isEnabled();
+        List<String> tables = jdbcTemplate.queryForList("SELECT tablename FROM pg_tables "
+                + "WHERE schemaname = current_schema() AND tablename LIKE ?", String.class,
+                TABLE_PREFIX.replace("_", "\\_") + "%");
+        for (String table : tables) {
+            long jobId;
+            try {
+                jobId = Long.parseLong(table.substring(TABLE_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            // Without a cluster no import survives a restart; with one, another replica may run it
+            if (cluster && jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_jobs WHERE id = ? AND state = ?",
+                    Long.class, jobId, ImportJobState.RUNNING.name()) > 0) {
+                continue;
+            }
+            try {
+                drop(jobId);
+                log.info("Dropped staging table {} left by an interrupted import", table);
+            } catch (RuntimeException e) {
+                log.warn("Cannot drop staging table {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private List<ColumnRule> dateRules() {
+        if (!contactValidator.isEnabled()) {
+            return List.of();
+        }
+        return contactValidator.rules().stream()
+                .filter(rule -> rule.format() == ContactValidator.Format.DATE)
+                .toList();
+    }
+
+    private RuleViolation check(Contact contact, List<ColumnRule> dateRules) {
+        for (ColumnRule rule : dateRules) {
+            RuleViolation violation = contactValidator.check(rule, rule.column().valueOf(contact));
+            if (violation != null) {
+                return violation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One {@code UPDATE} setting the error of every row breaking a length, email or phone rule, in
+     * the order {@link ContactValidator} checks them; {@code null} if there is no such rule.
+     */
+    private String validationSql(String table) {
+        List<String[]> checks = new ArrayList<>();
+        for (ColumnRule rule : contactValidator.rules()) {
+            String column = rule.column().name();
+            if (rule.maxLength() > 0) {
+                checks.add(new String[]{"char_length(" + column + ") > " + rule.maxLength(),
+                        literal(ErrorCodes.VALUE_TOO_LONG + ':' + column),
+                        "'Value of " + column + " has ' || char_length(" + column + ") || ' characters, at most "
+                                + rule.maxLength() + " fit'"});
+            }
+            switch (rule.format()) {
+                case EMAIL -> checks.add(new String[]{
+                        column + " <> '' AND btrim(" + column + ") !~ " + literal(ContactValidator.EMAIL_REGEX),
+                        literal(ErrorCodes.INVALID_EMAIL + ':' + column),
+                        invalidMessage(column, "an email address")});
+                case PHONE -> checks.add(new String[]{
+                        column + " <> '' AND (btrim(" + column + ") !~* " + literal(ContactValidator.PHONE_REGEX)
+                                + " OR char_length(regexp_replace(regexp_replace(btrim(" + column
+                                + "), '[xXeE].*$', ''), '[^0-9]', '', 'g')) NOT BETWEEN "
+                                + ContactValidator.MIN_PHONE_DIGITS + " AND " + ContactValidator.MAX_PHONE_DIGITS + ")",
+                        literal(ErrorCodes.INVALID_PHONE + ':' + column),
+                        invalidMessage(column, "a phone number")});
+                default -> {
+                    // Dates are checked while mapping
+                }
+            }
+        }
+        if (checks.isEmpty()) {
+            return null;
+        }
+        StringBuilder code = new StringBuilder("CASE");
+        StringBuilder message = new StringBuilder("CASE");
+        StringBuilder any = new StringBuilder();
+        for (String[] check : checks) {
+            code.append(" WHEN ").append(check[0]).append(" THEN ").append(check[1]);
+            message.append(" WHEN ").append(check[0]).append(" THEN ").append(check[2]);
+            any.append(any.isEmpty() ? "(" : " OR (").append(check[0]).append(')');
+        }
+        return "UPDATE " + table + " SET error_code = " + code + " END, error_message = " + message
+                + " END WHERE error_code IS NULL AND (" + any + ")";
+    }
+
+    private static String invalidMessage(String column, String expected) {
+        return "'Value ''' || CASE WHEN char_length(" + column + ") <= " + MAX_MESSAGE_VALUE_LENGTH + " THEN "
+                + column + " ELSE left(" + column + ", " + (MAX_MESSAGE_VALUE_LENGTH - 3) + ") || '...' END || ''' of "
+                + column + " is not " + expected + "'";
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Finds the contact column holding every column of the file by mapping a row of markers.
+     */
+    private RawRowColumns rawRowColumns(CsvHeader header) {
+        String[] markers = new String[header.size()];
+        for (int i = 0; i < markers.length; i++) {
+            markers[i] = "\0" + i;
+        }
+        Contact probe = contactMapper.map(new CsvRow(header, markers, 0));
+        String[] keys = RowFailure.rawRow(new CsvRow(header, new String[header.size()], 0)).keySet()
+                .toArray(String[]::new);
+        ContactColumn[] columns = new ContactColumn[header.size()];
+        List<String> pairs = new ArrayList<>();
+        for (ContactColumn column : ContactColumns.all()) {
+            String marker = column.valueOf(probe);
+            if (marker != null && marker.startsWith("\0")) {
+                int index = Integer.parseInt(marker.substring(1));
+                columns[index] = column;
+                pairs.add(literal(keys[index]) + ", " + column.name());
+            }
+        }
+        // The staged raw row, whole for rows rejected while mapping, overrides the rebuilt columns
+        StringBuilder sql = new StringBuilder();
+        for (int from = 0; from < pairs.size(); from += MAX_PAIRS_PER_JSON_OBJECT) {
+            sql.append("jsonb_build_object(")
+                    .append(String.join(", ", pairs.subList(from, Math.min(from + MAX_PAIRS_PER_JSON_OBJECT,
+                            pairs.size()))))
+                    .append(") || ");
+        }
+        sql.append("COALESCE(raw_row, '{}'::jsonb)");
+        return new RawRowColumns(header, keys, columns, sql.toString());
+    }
+
+    /**
+     * @return the columns of the row its contact does not hold as parsed, keyed like
+     * {@link RowFailure#rawRow}, or {@code null} if there are none
+     */
+    private static Map<String, String> unreproduced(CsvRow row, Contact contact, RawRowColumns reproduced) {
+        Map<String, String> raw = null;
+        int columns = Math.max(reproduced.keys().length, row.values().length);
+        for (int i = 0; i < columns; i++) {
+            ContactColumn column = i < reproduced.columns().length ? reproduced.columns()[i] : null;
+            String value = row.get(i);
+            if (column != null && Objects.equals(column.valueOf(contact), value)) {
+                continue;
+            }
+            if (raw == null) {
+                raw = new LinkedHashMap<>();
+            }
+            raw.put(i < reproduced.keys().length ? reproduced.keys()[i] : "#" + (i + 1),
+                    value == null ? null : value.replace("\0", ""));
+        }
+        return raw;
+    }
+
+    /**
+     * Renders the staged rows in COPY CSV format: unquoted empty field for {@code null}, every
+     * other value quoted. Rejected rows keep only their raw row; a row with a NUL character, which
+     * text columns cannot hold, is rejected as {@link ErrorCodes#INVALID_ENCODING}.
+     */
+    private String toCsv(List<CsvRow> rows, List<Contact> contacts, List<RuleViolation> violations, long[] ids,
+                         RawRowColumns reproduced) {
+        List<ContactColumn> columns = ContactColumns.all();
+        StringBuilder csv = new StringBuilder(rows.size() * columns.size() * 24);
+        int nextId = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            CsvRow row = rows.get(i);
+            Contact contact = contacts.get(i);
+            RuleViolation violation = violations.get(i);
+            if (contact != null && containsNul(contact, columns)) {
+                contact = null;
+                violation = new RuleViolation(ErrorCodes.INVALID_ENCODING, "Row contains a NUL character");
+            }
+            long id = contacts.get(i) != null ? ids[nextId++] : 0;
+            if (contact != null) {
+                csv.append(id);
+            }
+            csv.append(',').append(row.rowNumber()).append(',');
+            if (violation != null) {
+                appendQuoted(csv, violation.rule());
+                csv.append(',');
+                appendQuoted(csv, violation.message() == null ? null : violation.message().replace("\0", ""));
+            } else {
+                csv.append(',');
+            }
+            csv.append(',');
+            Map<String, String> rawRow = contact == null ? RowFailure.rawRow(row) : unreproduced(row, contact, reproduced);
+            if (rawRow != null) {
+                appendQuoted(csv, toJson(rawRow));
+            }
+            for (ContactColumn column : columns) {
+                csv.append(',');
+                appendQuoted(csv, contact == null ? null : column.valueOf(contact));
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static boolean containsNul(Contact contact, List<ContactColumn> columns) {
+        for (ContactColumn column : columns) {
+            String value = column.valueOf(contact);
+            if (value != null && value.indexOf('\0') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendQuoted(StringBuilder csv, String value) {
+        if (value != null) {
+            csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private String toJson(Map<String, String> rawRow) {
+        try {
+            return objectMapper.writeValueAsString(rawRow);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void copy(String table, String csv) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyManager.copyIn("COPY " + table + " (" + STAGING_COLUMNS + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv));
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY into " + table + " failed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.importservice.service.statistics;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.dto.ImportStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running totals of {@code contacts} and {@code unimported_contacts} rows in {@code import_counters},
+ * so the statistics query does not count both tables on every call.
+ * <p>
+ * The counters are incremented inside the transaction that inserts the rows, so they commit or
+ * roll back with them. Every counter is spread over {@code import.statistics.counter-shards}
+ * rows picked by thread, so concurrent chunk transactions do not queue on one row lock; a read
+ * sums the shards. Totals are cached for {@code import.statistics.cache-ttl}.
+ */
+@Slf4j
+@Component
+public class ImportCounters {
+
+    public static final String CACHE_NAME = "importStatistics";
+
+    private static final String CONTACTS = "contacts";
+
+    private static final String UNIMPORTED_CONTACTS = "unimported_contacts";
+
+    private static final String INCREMENT_SQL = "INSERT INTO import_counters (name, shard, value) VALUES (?, ?, ?) "
+            + "ON CONFLICT (name, shard) DO UPDATE SET value = import_counters.value + EXCLUDED.value";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int shards;
+
+    public ImportCounters(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          ImportProperties importProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = importProperties.getStatistics().getCounterShards();
+    }
+
+    /**
+     * Adds inserted rows to the totals. Must run inside the transaction inserting them.
+     */
+    public void add(long contacts, long unimportedContacts) {
+        int shard = (int) (Thread.currentThread().threadId() % shards);
+        if (contacts != 0) {
+            jdbcTemplate.update(INCREMENT_SQL, CONTACTS, shard, contacts);
+        }
+        if (unimportedContacts != 0) {
+            jdbcTemplate.update(INCREMENT_SQL, UNIMPORTED_CONTACTS, shard, unimportedContacts);
+        }
+    }
+
+    @Cacheable(CACHE_NAME)
+    public ImportStatistics totals() {
+        Map<String, Long> totals = totalsByName();
+        long imported = totals.getOrDefault(CONTACTS, 0L);
+        long failed = totals.getOrDefault(UNIMPORTED_CONTACTS, 0L);
+        // Duplicates and updates are only known per import job
+        return new ImportStatistics(imported, failed, imported + failed, null, null);
+    }
+
+    @Scheduled(fixedRateString = "${import.statistics.cache-ttl}")
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+    public void evictTotals() {
+        // Expires the cached totals
+    }
+
+    /**
+     * Corrects the totals against exact counts, e.g. after rows were deleted outside an import.
+     * Runs on {@code import.statistics.reconcile-cron}, disabled by default.
+     * <p>
+     * The counters table is locked first, which waits for every chunk transaction holding an
+     * increment and blocks new ones until the counts are done, so no increment is lost or
+     * counted twice. Both tables are scanned meanwhile; schedule it off-peak.
+     */
+    @Scheduled(cron = "${import.statistics.reconcile-cron}")
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE import_counters IN SHARE ROW EXCLUSIVE MODE");
+            Map<String, Long> totals = totalsByName();
+            reconcile(CONTACTS, totals.getOrDefault(CONTACTS, 0L),
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contacts", Long.class));
+            reconcile(UNIMPORTED_CONTACTS, totals.getOrDefault(UNIMPORTED_CONTACTS, 0L),
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM unimported_contacts", Long.class));
+        });
+    }
+
+    private void reconcile(String name, long counted, Long exact) {
+        long drift = (exact == null ? 0 : exact) - counted;
+        if (drift != 0) {
+            log.warn("Counter {} was off by {}, corrected to {}", name, drift, exact);
+            jdbcTemplate.update(INCREMENT_SQL, name, 0, drift);
+        }
+    }
+
+    private Map<String, Long> totalsByName() {
+        Map<String, Long> totals = new HashMap<>();
+        jdbcTemplate.query("SELECT name, SUM(value) FROM import_counters GROUP BY name",
+                resultSet -> {
+                    totals.put(resultSet.getString(1), resultSet.getLong(2));
+                });
+        return totals;
+    }
+
+}
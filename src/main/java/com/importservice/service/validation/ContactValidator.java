@@ -0,0 +1,229 @@
+package com.importservice.service.validation;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.writer.ContactColumns;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Checks mapped contacts before they are written, so a bad row is rejected on the worker instead
+ * of failing a statement and bisecting its chunk.
+ * <p>
+ * The rules are compiled once, on first use, into a flat list holding only the columns that have
+ * a rule: the maximum length of every {@code VARCHAR} column as migrated (read from
+ * {@code information_schema}, so the rules follow the Flyway schema), and the formats configured
+ * in {@code import.validation.formats}. Empty values pass every rule.
+ */
+@Slf4j
+@Component
+public class ContactValidator {
+
+    private static final String LENGTHS_SQL = "SELECT column_name, character_maximum_length "
+            + "FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = ?";
+
+    /**
+     * Valid as a Java and a PostgreSQL regular expression, for checks written in SQL.
+     */
+    public static final String EMAIL_REGEX = "^[^@\\s]+@[^@\\s]+\\.[^@\\s.]+$";
+
+    /**
+     * Digits with the usual separators, optionally followed by an extension; matched ignoring case.
+     * Valid as a Java and a PostgreSQL regular expression.
+     */
+    public static final String PHONE_REGEX = "^\\+?[0-9().\\-/ ]+?(\\s*(x|ext\\.?)\\s*[0-9]+)?$";
+
+    public static final int MIN_PHONE_DIGITS = 7;
+
+    public static final int MAX_PHONE_DIGITS = 15;
+
+    private static final Pattern EMAIL = Pattern.compile(EMAIL_REGEX);
+
+    private static final Pattern PHONE = Pattern.compile(PHONE_REGEX, Pattern.CASE_INSENSITIVE);
+
+    public enum Format { NONE, EMAIL, PHONE, DATE }
+
+    /**
+     * The rules of one column.
+     *
+     * @param maxLength the maximum number of characters, {@code 0} if unbounded
+     */
+    public record ColumnRule(ContactColumn column, int maxLength, Format format) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ImportProperties.Validation validation;
+
+    private final List<DateTimeFormatter> dateFormats;
+
+    private volatile List<ColumnRule> rules;
+
+    public ContactValidator(JdbcTemplate jdbcTemplate, ImportProperties importProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.validation = importProperties.getValidation();
+        this.dateFormats = validation.getDateFormats().stream()
+                .map(pattern -> DateTimeFormatter.ofPattern(pattern, Locale.US).withResolverStyle(ResolverStyle.STRICT))
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return validation.isEnabled();
+    }
+
+    /**
+     * @return the first rule the contact breaks, or {@code null} if it is valid
+     */
+    public RuleViolation validate(Contact contact) {
+        if (!validation.isEnabled()) {
+            return null;
+        }
+        for (ColumnRule rule : rules()) {
+            RuleViolation violation = check(rule, rule.column().valueOf(contact));
+            if (violation != null) {
+                return violation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the rule the value breaks, or {@code null} if it is valid
+     */
+    public RuleViolation check(ColumnRule rule, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        String name = rule.column().name();
+        // VARCHAR(n) counts characters, not UTF-16 units
+        if (rule.maxLength() > 0 && value.length() > rule.maxLength()
+                && value.codePointCount(0, value.length()) > rule.maxLength()) {
+            return new RuleViolation(ErrorCodes.VALUE_TOO_LONG + ':' + name, "Value of " + name + " has "
+                    + value.codePointCount(0, value.length()) + " characters, at most " + rule.maxLength()
+                    + " fit");
+        }
+        switch (rule.format()) {
+            case EMAIL -> {
+                if (!EMAIL.matcher(value.trim()).matches()) {
+                    return invalid(ErrorCodes.INVALID_EMAIL, name, value, "an email address");
+                }
+            }
+            case PHONE -> {
+                if (!isPhone(value.trim())) {
+                    return invalid(ErrorCodes.INVALID_PHONE, name, value, "a phone number");
+                }
+            }
+            case DATE -> {
+                if (!isDate(value.trim())) {
+                    return invalid(ErrorCodes.INVALID_DATE, name, value, "a date");
+                }
+            }
+            case NONE -> {
+            }
+        }
+        return null;
+    }
+
+    private static RuleViolation invalid(String code, String column, String value, String expected) {
+        return new RuleViolation(code + ':' + column, "Value '" + abbreviate(value) + "' of " + column
+                + " is not " + expected);
+    }
+
+    private static boolean isPhone(String value) {
+        if (!PHONE.matcher(value).matches()) {
+            return false;
+        }
+        int end = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 'x' || c == 'X' || c == 'e' || c == 'E') {
+                end = i;
+                break;
+            }
+        }
+        int digits = 0;
+        for (int i = 0; i < end; i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                digits++;
+            }
+        }
+        return digits >= MIN_PHONE_DIGITS && digits <= MAX_PHONE_DIGITS;
+    }
+
+    private boolean isDate(String value) {
+        for (DateTimeFormatter format : dateFormats) {
+            try {
+                format.parse(value);
+                return true;
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the rules of every column that has one, compiled on first use
+     */
+    public List<ColumnRule> rules() {
+        List<ColumnRule> compiled = rules;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = rules;
+                if (compiled == null) {
+                    compiled = compile();
+                    rules = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private List<ColumnRule> compile() {
+        Map<String, Integer> maxLengths = new HashMap<>();
+        jdbcTemplate.query(LENGTHS_SQL, resultSet -> {
+            int maxLength = resultSet.getInt(2);
+            if (!resultSet.wasNull()) {
+                maxLengths.put(resultSet.getString(1), maxLength);
+            }
+        }, ContactColumns.TABLE);
+
+        Map<String, Format> formats = validation.getFormats();
+        List<String> columnNames = ContactColumns.all().stream().map(ContactColumn::name).toList();
+        for (String column : formats.keySet()) {
+            if (!columnNames.contains(column)) {
+                throw new IllegalStateException("import.validation.formats names " + column
+                        + ", which is not a column of " + ContactColumns.TABLE);
+            }
+        }
+
+        List<ColumnRule> compiled = new ArrayList<>();
+        for (ContactColumn column : ContactColumns.all()) {
+            int maxLength = maxLengths.getOrDefault(column.name(), 0);
+            Format format = formats.getOrDefault(column.name(), Format.NONE);
+            if (maxLength > 0 || format != Format.NONE) {
+                compiled.add(new ColumnRule(column, maxLength, format));
+            }
+        }
+        log.info("Compiled validation rules for {} of {} contact columns", compiled.size(), ContactColumns.all().size());
+        return List.copyOf(compiled);
+    }
+
+    private static String abbreviate(String value) {
+        return value.length() <= 64 ? value : value.substring(0, 61) + "...";
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.importservice.service.validation;
+
+/**
+ * The first rule a row breaks.
+ *
+ * @param rule    the rule, {@code <error code>:<column>}, e.g. {@code VALUE_TOO_LONG:mi}; stored as the
+ *                error code of the unimported row
+ * @param message what is wrong with the value
+ */
+public record RuleViolation(String rule, String message) {
+}
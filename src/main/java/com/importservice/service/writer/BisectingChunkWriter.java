@@ -0,0 +1,81 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import com.importservice.service.failure.ErrorCodes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Commits a chunk of contacts in one transaction. When the chunk fails it is split in half
+ * and each half is retried recursively, so clean sub-chunks are still committed in bulk and
+ * only the offending rows end up rejected.
+ * <p>
+ * A chunk with {@code k} bad rows costs at most {@code O(k log n)} extra transactions instead
+ * of one transaction per row. Only failures caused by the data are bisected, see
+ * {@link ErrorCodes#isDataFailure}; any other failure, e.g. a database outage, is rethrown, as
+ * it would fail every row alike.
+ */
+@Slf4j
+@Component
+public class BisectingChunkWriter {
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BisectingChunkWriter(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Writes the contacts with the given writer.
+     *
+     * @param contacts   the contacts to write
+     * @param sources    the source of each contact, at the same index
+     * @param writer     the chunk writer
+     * @param onRejected receives the source and cause of every row that could not be written
+     * @param onWritten  receives the sources and result of every written slice, inside the slice's
+     *                   transaction, so whatever it stores commits or rolls back with the slice
+     * @return the number of contacts committed, split into inserts and updates
+     * @throws RuntimeException the first failure not caused by the data of the rows written; the
+     *                          slices committed before stay committed
+     */
+    public <S> WriteResult write(List<Contact> contacts, List<S> sources, ContactWriter writer,
+                                 BiConsumer<S, Exception> onRejected, BiConsumer<List<S>, WriteResult> onWritten) {
+        if (contacts.size() != sources.size()) {
+            throw new IllegalArgumentException("Every contact needs a source");
+        }
+        if (contacts.isEmpty()) {
+            return WriteResult.EMPTY;
+        }
+        return write(contacts, sources, 0, contacts.size(), writer, onRejected, onWritten);
+    }
+
+    private <S> WriteResult write(List<Contact> contacts, List<S> sources, int from, int to, ContactWriter writer,
+                                  BiConsumer<S, Exception> onRejected, BiConsumer<List<S>, WriteResult> onWritten) {
+        List<Contact> slice = contacts.subList(from, to);
+        try {
+            return transactionTemplate.execute(status -> {
+                WriteResult result = writer.write(slice);
+                onWritten.accept(sources.subList(from, to), result);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            if (!ErrorCodes.isDataFailure(e)) {
+                throw e;
+            }
+            if (to - from == 1) {
+                log.error("Error importing record: {}", e.getMessage());
+                onRejected.accept(sources.get(from), e);
+                return WriteResult.EMPTY;
+            }
+            log.debug("Chunk of {} records failed, bisecting: {}", slice.size(), e.getMessage());
+            int middle = (from + to) >>> 1;
+            return write(contacts, sources, from, middle, writer, onRejected, onWritten)
+                    .plus(write(contacts, sources, middle, to, writer, onRejected, onWritten));
+        }
+    }
+
+}
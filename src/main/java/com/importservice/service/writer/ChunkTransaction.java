@@ -0,0 +1,60 @@
+package com.importservice.service.writer;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs the statements a JDBC level writer stores a chunk with on the connection of the
+ * Spring-managed transaction, or in a transaction of their own outside one, so the contacts of
+ * the chunk and their keys in {@value NaturalKey#TABLE} are committed or rolled back together.
+ */
+final class ChunkTransaction {
+
+    @FunctionalInterface
+    interface Work<T> {
+
+        T run(Connection connection) throws SQLException;
+    }
+
+    private ChunkTransaction() {
+    }
+
+    /**
+     * @param operation what the work does, for the message of a failure, e.g. {@code COPY into contacts}
+     * @throws IllegalStateException if a statement fails, with the {@link SQLException} as cause
+     */
+    static <T> T run(DataSource dataSource, String operation, Work<T> work) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean managed = DataSourceUtils.isConnectionTransactional(connection, dataSource);
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            if (!managed && autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                T result = work.run(connection);
+                if (!managed) {
+                    connection.commit();
+                }
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                if (!managed) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (!managed && autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(operation + " failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes a chunk of contacts with a single JDBC prepared-statement batch, bypassing the
+ * persistence context. With {@code reWriteBatchedInserts=true} on the PostgreSQL driver the
+ * batch is sent as multi-row {@code INSERT ... VALUES (...), (...)} statements.
+ * <p>
+ * Used where {@code COPY} is not allowed. The keys of the chunk are stored in {@value NaturalKey#TABLE}
+ * in the same transaction; outside a Spring-managed one the chunk is committed or rolled back as a whole.
+ */
+@Slf4j
+@Component
+public class ContactBatchWriter implements ContactWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO " + ContactColumns.TABLE + " ("
+            + ContactColumns.columnList() + ") VALUES ("
+            + String.join(", ", Collections.nCopies(ContactColumns.all().size() + 2, "?")) + ")";
+
+    private final DataSource dataSource;
+
+    private final IdRangeAllocator idRangeAllocator;
+
+    private final ContactKeys contactKeys;
+
+    public ContactBatchWriter(DataSource dataSource, IdRangeAllocator idRangeAllocator, ContactKeys contactKeys) {
+        this.dataSource = dataSource;
+        this.idRangeAllocator = idRangeAllocator;
+        this.contactKeys = contactKeys;
+    }
+
+    @Override
+    public WriteResult write(List<Contact> contacts) {
+        if (contacts.isEmpty()) {
+            return WriteResult.EMPTY;
+        }
+        idRangeAllocator.assign(contacts);
+        ChunkTransaction.run(dataSource, "Batch insert into " + ContactColumns.TABLE, connection -> {
+            insert(connection, contacts);
+            contactKeys.store(connection, contacts);
+            return null;
+        });
+        return WriteResult.inserted(contacts.size());
+    }
+
+    private void insert(Connection connection, List<Contact> contacts) throws SQLException {
+        List<ContactColumn> columns = ContactColumns.all();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (Contact contact : contacts) {
+                statement.setLong(1, contact.getId());
+                statement.setLong(2, contact.getImportId());
+                for (int i = 0; i < columns.size(); i++) {
+                    statement.setString(i + 3, columns.get(i).valueOf(contact));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        log.debug("Inserted {} contacts", contacts.size());
+    }
+
+}
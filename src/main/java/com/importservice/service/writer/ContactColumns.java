@@ -0,0 +1,93 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import jakarta.persistence.Column;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Column list of the {@code contacts} table, resolved once from the {@link Contact} mapping,
+ * with a getter and setter per column for the JDBC level writers.
+ * <p>
+ * The {@code id} column is not part of {@link #all()}; writers assign it explicitly.
+ */
+public final class ContactColumns {
+
+    public static final String TABLE = "contacts";
+
+    public static final String ID_COLUMN = "id";
+
+    public static final String IMPORT_ID_COLUMN = "import_id";
+
+    private static final List<ContactColumn> COLUMNS = resolve();
+
+    private ContactColumns() {
+    }
+
+    /**
+     * A non-id column of the {@code contacts} table.
+     *
+     * @param name   the column name
+     * @param getter a {@code (Contact) -> String} handle reading the mapped field
+     * @param setter a {@code (Contact, String) -> void} handle writing the mapped field
+     */
+    public record ContactColumn(String name, MethodHandle getter, MethodHandle setter) {
+
+        public String valueOf(Contact contact) {
+            try {
+                return (String) getter.invokeExact(contact);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot read column " + name, e);
+            }
+        }
+
+        public void setValue(Contact contact, String value) {
+            try {
+                setter.invokeExact(contact, value);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot write column " + name, e);
+            }
+        }
+    }
+
+    public static List<ContactColumn> all() {
+        return COLUMNS;
+    }
+
+    /**
+     * @return {@code id}, {@code import_id} and every other column name, comma separated
+     */
+    public static String columnList() {
+        return ID_COLUMN + ", " + IMPORT_ID_COLUMN + ", " + COLUMNS.stream().map(ContactColumn::name).collect(Collectors.joining(", "));
+    }
+
+    private static List<ContactColumn> resolve() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<ContactColumn> columns = new ArrayList<>();
+        for (Field field : Contact.class.getDeclaredFields()) {
+            Column column = field.getAnnotation(Column.class);
+            if (column == null || field.getType() != String.class) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                MethodHandle getter = lookup.unreflectGetter(field)
+                        .asType(MethodType.methodType(String.class, Contact.class));
+                MethodHandle setter = lookup.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Contact.class, String.class));
+                columns.add(new ContactColumn(column.name(), getter, setter));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access field " + field.getName(), e);
+            }
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+}
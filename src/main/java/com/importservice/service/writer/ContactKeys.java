@@ -0,0 +1,113 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores and looks up natural keys in {@value NaturalKey#TABLE}, the keys of every stored contact.
+ * The writers store the keys of a chunk right after its contacts, with one {@code INSERT ... SELECT}
+ * from the rows just written, so a key another contact has fails the chunk with a unique violation.
+ */
+@Component
+public class ContactKeys {
+
+    /**
+     * Keys per lookup, well below the 32767 bind parameters PostgreSQL accepts per statement.
+     */
+    private static final int MAX_KEYS_PER_QUERY = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NaturalKey naturalKey;
+
+    private final String lookupPrefix;
+
+    private final String keyPlaceholders;
+
+    private final String storeSql;
+
+    public ContactKeys(JdbcTemplate jdbcTemplate, NaturalKey naturalKey) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.naturalKey = naturalKey;
+        String keyColumns = naturalKey.columns().stream().map(ContactColumn::name).collect(Collectors.joining(", "));
+        this.lookupPrefix = "SELECT " + keyColumns + " FROM " + NaturalKey.TABLE + " WHERE "
+                + ContactColumns.IMPORT_ID_COLUMN + " = ? AND (" + keyColumns + ") IN (";
+        this.keyPlaceholders = "(" + String.join(", ", Collections.nCopies(naturalKey.columns().size(), "?")) + ")";
+        this.storeSql = "INSERT INTO " + NaturalKey.TABLE + " (" + keyColumns + ", " + NaturalKey.CONTACT_ID_COLUMN
+                + ", " + ContactColumns.IMPORT_ID_COLUMN + ") SELECT " + keyColumns + ", " + ContactColumns.ID_COLUMN
+                + ", " + ContactColumns.IMPORT_ID_COLUMN + " FROM " + ContactColumns.TABLE + " WHERE "
+                + ContactColumns.IMPORT_ID_COLUMN + " = ? AND " + ContactColumns.ID_COLUMN + " = ANY (?) AND ROW ("
+                + keyColumns + ") IS NOT NULL";
+    }
+
+    /**
+     * Stores the keys of contacts just inserted into {@code contacts}, in the transaction that
+     * inserted them; contacts without a key are skipped.
+     *
+     * @param connection the connection the contacts were inserted with
+     * @param contacts   the inserted contacts, with their ids
+     * @throws SQLException with state {@code 23505} if another contact has one of the keys
+     */
+    public void store(Connection connection, List<Contact> contacts) throws SQLException {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> idsByImport = new HashMap<>();
+        for (Contact contact : contacts) {
+            idsByImport.computeIfAbsent(contact.getImportId(), importId -> new ArrayList<>()).add(contact.getId());
+        }
+        try (PreparedStatement statement = connection.prepareStatement(storeSql)) {
+            for (Map.Entry<Long, List<Long>> entry : idsByImport.entrySet()) {
+                statement.setLong(1, entry.getKey());
+                statement.setArray(2, connection.createArrayOf("bigint", entry.getValue().toArray()));
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @param importId the import
+     * @param contacts the contacts to look up; those without a key are ignored
+     * @return the natural keys of the contacts that the import has stored, as {@link NaturalKey#keyOf} returns them
+     */
+    public Set<String> storedBy(long importId, Collection<Contact> contacts) {
+        List<ContactColumn> keyColumns = naturalKey.columns();
+        List<Contact> keyed = contacts.stream().filter(contact -> naturalKey.keyOf(contact) != null).toList();
+        Set<String> stored = new HashSet<>();
+        for (int from = 0; from < keyed.size(); from += MAX_KEYS_PER_QUERY) {
+            List<Contact> slice = keyed.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, keyed.size()));
+            List<Object> parameters = new ArrayList<>(1 + slice.size() * keyColumns.size());
+            parameters.add(importId);
+            for (Contact contact : slice) {
+                for (ContactColumn column : keyColumns) {
+                    parameters.add(column.valueOf(contact));
+                }
+            }
+            String sql = lookupPrefix + String.join(", ", Collections.nCopies(slice.size(), keyPlaceholders)) + ")";
+            jdbcTemplate.query(sql, resultSet -> {
+                String[] values = new String[keyColumns.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = resultSet.getString(i + 1);
+                }
+                stored.add(naturalKey.keyOf(values));
+            }, parameters.toArray());
+        }
+        return stored;
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a chunk of contacts, updating those whose natural key another import already stored instead
+ * of rejecting them. Keys are unique across imports in {@value NaturalKey#TABLE}, so {@code ON CONFLICT}
+ * on the partitioned {@code contacts} table cannot find them; the writer looks the keys of the
+ * chunk up there instead, locking them until the transaction ends:
+ * <ul>
+ *     <li>new keys are inserted with multi-row {@code INSERT} statements into the partition of the import,
+ *     and their keys stored in {@value NaturalKey#TABLE};</li>
+ *     <li>keys of another import update that contact in place, in the partition of the import that
+ *     stored it, so rolling back the updating import does not undo the update;</li>
+ *     <li>keys the import itself stored already fail the chunk with a unique violation, like the
+ *     other writers do.</li>
+ * </ul>
+ * A key inserted concurrently by another import fails the chunk with a unique violation as well.
+ * The chunk must not repeat a natural key; the import drops in-file duplicates before writing.
+ * Outside a Spring-managed transaction the chunk is committed or rolled back as a whole.
+ */
+@Slf4j
+@Component
+public class ContactUpsertWriter implements ContactWriter {
+
+    /**
+     * PostgreSQL accepts at most 32767 bind parameters per statement.
+     */
+    private static final int MAX_PARAMETERS = Short.MAX_VALUE;
+
+    private static final int COLUMN_COUNT = ContactColumns.all().size() + 2;
+
+    private static final int MAX_ROWS_PER_STATEMENT = MAX_PARAMETERS / COLUMN_COUNT;
+
+    private static final String ROW_PLACEHOLDERS = "(" + String.join(", ", Collections.nCopies(COLUMN_COUNT, "?")) + ")";
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final DataSource dataSource;
+
+    private final IdRangeAllocator idRangeAllocator;
+
+    private final NaturalKey naturalKey;
+
+    private final ContactKeys contactKeys;
+
+    private final String insertPrefix;
+
+    private final String lockKeysPrefix;
+
+    private final String keyPlaceholders;
+
+    private final List<ContactColumn> updatedColumns;
+
+    private final String updateSql;
+
+    public ContactUpsertWriter(DataSource dataSource, IdRangeAllocator idRangeAllocator, NaturalKey naturalKey,
+                               ContactKeys contactKeys) {
+        this.dataSource = dataSource;
+        this.idRangeAllocator = idRangeAllocator;
+        this.naturalKey = naturalKey;
+        this.contactKeys = contactKeys;
+        List<String> keyColumns = naturalKey.columns().stream().map(ContactColumn::name).toList();
+        this.insertPrefix = "INSERT INTO " + ContactColumns.TABLE + " (" + ContactColumns.columnList() + ") VALUES ";
+        this.lockKeysPrefix = "SELECT " + NaturalKey.CONTACT_ID_COLUMN + ", " + ContactColumns.IMPORT_ID_COLUMN
+                + ", " + String.join(", ", keyColumns) + " FROM " + NaturalKey.TABLE
+                + " WHERE (" + String.join(", ", keyColumns) + ") IN (";
+        this.keyPlaceholders = "(" + String.join(", ", Collections.nCopies(keyColumns.size(), "?")) + ")";
+        this.updatedColumns = ContactColumns.all().stream()
+                .filter(column -> !keyColumns.contains(column.name()))
+                .toList();
+        this.updateSql = "UPDATE " + ContactColumns.TABLE + " SET "
+                + updatedColumns.stream().map(column -> column.name() + " = ?").collect(Collectors.joining(", "))
+                + " WHERE " + ContactColumns.ID_COLUMN + " = ? AND " + ContactColumns.IMPORT_ID_COLUMN + " = ?";
+    }
+
+    @Override
+    public WriteResult write(List<Contact> contacts) {
+        if (contacts.isEmpty()) {
+            return WriteResult.EMPTY;
+        }
+        idRangeAllocator.assign(contacts);
+
+        WriteResult result = ChunkTransaction.run(dataSource, "Upsert into " + ContactColumns.TABLE, connection -> {
+            WriteResult written = WriteResult.EMPTY;
+            for (int from = 0; from < contacts.size(); from += MAX_ROWS_PER_STATEMENT) {
+                int to = Math.min(from + MAX_ROWS_PER_STATEMENT, contacts.size());
+                written = written.plus(upsert(connection, contacts.subList(from, to)));
+            }
+            return written;
+        });
+        log.debug("Upserted {} contacts: {}", contacts.size(), result);
+        return result;
+    }
+
+    private WriteResult upsert(Connection connection, List<Contact> contacts) throws SQLException {
+        Map<String, StoredKey> stored = lockStoredKeys(connection, contacts);
+        List<Contact> inserts = new ArrayList<>(contacts.size());
+        List<Contact> updates = new ArrayList<>();
+        List<StoredKey> updatedKeys = new ArrayList<>();
+        for (Contact contact : contacts) {
+            String key = naturalKey.keyOf(contact);
+            StoredKey storedKey = key == null ? null : stored.get(key);
+            if (storedKey == null) {
+                inserts.add(contact);
+            } else if (storedKey.importId() == contact.getImportId()) {
+                throw new SQLException("Natural key of contact " + contact.getId() + " is already stored by contact "
+                        + storedKey.contactId() + " of the same import", UNIQUE_VIOLATION);
+            } else {
+                updates.add(contact);
+                updatedKeys.add(storedKey);
+            }
+        }
+        insert(connection, inserts);
+        contactKeys.store(connection, inserts);
+        update(connection, updates, updatedKeys);
+        return new WriteResult(inserts.size(), updates.size());
+    }
+
+    /**
+     * @return the stored keys among those of the contacts, by natural key, locked until the transaction ends
+     */
+    private Map<String, StoredKey> lockStoredKeys(Connection connection, List<Contact> contacts) throws SQLException {
+        List<ContactColumn> keyColumns = naturalKey.columns();
+        List<Contact> keyed = contacts.stream().filter(contact -> naturalKey.keyOf(contact) != null).toList();
+        Map<String, StoredKey> stored = new HashMap<>();
+        if (keyed.isEmpty()) {
+            return stored;
+        }
+        String sql = lockKeysPrefix + String.join(", ", Collections.nCopies(keyed.size(), keyPlaceholders))
+                + ") FOR UPDATE";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (Contact contact : keyed) {
+                for (ContactColumn column : keyColumns) {
+                    statement.setString(parameter++, column.valueOf(contact));
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                String[] values = new String[keyColumns.size()];
+                while (resultSet.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = resultSet.getString(i + 3);
+                    }
+                    stored.put(naturalKey.keyOf(values), new StoredKey(resultSet.getLong(1), resultSet.getLong(2)));
+                }
+            }
+        }
+        return stored;
+    }
+
+    private void insert(Connection connection, List<Contact> contacts) throws SQLException {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        List<ContactColumn> columns = ContactColumns.all();
+        String sql = insertPrefix + String.join(", ", Collections.nCopies(contacts.size(), ROW_PLACEHOLDERS));
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (Contact contact : contacts) {
+                statement.setLong(parameter++, contact.getId());
+                statement.setLong(parameter++, contact.getImportId());
+                for (ContactColumn column : columns) {
+                    statement.setString(parameter++, column.valueOf(contact));
+                }
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Updates the stored contacts in place; their id, import and key stay as they are.
+     */
+    private void update(Connection connection, List<Contact> contacts, List<StoredKey> storedKeys)
+            throws SQLException {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            for (int i = 0; i < contacts.size(); i++) {
+                int parameter = 1;
+                for (ContactColumn column : updatedColumns) {
+                    statement.setString(parameter++, column.valueOf(contacts.get(i)));
+                }
+                statement.setLong(parameter++, storedKeys.get(i).contactId());
+                statement.setLong(parameter, storedKeys.get(i).importId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private record StoredKey(long contactId, long importId) {
+    }
+
+}
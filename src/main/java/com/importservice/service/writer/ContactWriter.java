@@ -0,0 +1,17 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+
+import java.util.List;
+
+/**
+ * Writes a chunk of mapped contacts to the {@code contacts} table.
+ * <p>
+ * Implementations must be all-or-nothing per call: either every contact of the chunk
+ * is stored, or an exception is thrown and none of them are.
+ */
+public interface ContactWriter {
+
+    WriteResult write(List<Contact> contacts);
+
+}
@@ -0,0 +1,94 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Pre-reserves ranges of {@code CI_UNIQUE_ID} values for the JDBC level writers.
+ * <p>
+ * The sequence increments by the block size and every {@code nextval} hands out the block
+ * {@code (value - blockSize, value]}, which is the same interpretation Hibernate's pooled
+ * optimizer uses for the entities. A whole chunk is therefore reserved with a single round trip,
+ * and ids left over from the last block are used by the next chunk.
+ */
+@Slf4j
+@Component
+public class IdRangeAllocator {
+
+    private static final String SEQUENCE_INCREMENT_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE sequencename = 'ci_unique_id'";
+
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval('CI_UNIQUE_ID') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long blockSize;
+
+    private long next;
+
+    private long last = -1;
+
+    public IdRangeAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reserves {@code count} unique ids.
+     *
+     * @return the reserved ids in ascending order
+     */
+    public synchronized long[] reserve(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count && next <= last) {
+            ids[filled++] = next++;
+        }
+        if (filled == count) {
+            return ids;
+        }
+
+        long size = blockSize();
+        int blocks = (int) ((count - filled + size - 1) / size);
+        List<Long> blockEnds = jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, blocks);
+        for (Long blockEnd : blockEnds) {
+            next = blockEnd - size + 1;
+            last = blockEnd;
+            while (filled < count && next <= last) {
+                ids[filled++] = next++;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Gives every contact without an id one from the reserved ranges.
+     */
+    public void assign(List<Contact> contacts) {
+        List<Contact> withoutId = contacts.stream().filter(contact -> contact.getId() == null).toList();
+        if (withoutId.isEmpty()) {
+            return;
+        }
+        long[] ids = reserve(withoutId.size());
+        for (int i = 0; i < withoutId.size(); i++) {
+            withoutId.get(i).setId(ids[i]);
+        }
+    }
+
+    /**
+     * The block size is read from the sequence itself rather than from configuration,
+     * so the reserved ranges always match what Hibernate allocates.
+     */
+    private long blockSize() {
+        if (blockSize == 0) {
+            Long increment = jdbcTemplate.queryForObject(SEQUENCE_INCREMENT_SQL, Long.class);
+            blockSize = increment == null ? 1 : increment;
+            log.info("CI_UNIQUE_ID block size is {}", blockSize);
+        }
+        return blockSize;
+    }
+
+}
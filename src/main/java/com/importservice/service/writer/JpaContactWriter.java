@@ -0,0 +1,44 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Persists a chunk of contacts through the JPA {@link EntityManager}, flushing once per chunk
+ * so Hibernate can batch the inserts, then stores the keys of the chunk in {@value NaturalKey#TABLE}
+ * on the connection of the session. Must be called inside a transaction.
+ */
+@Component
+public class JpaContactWriter implements ContactWriter {
+
+    private final EntityManager entityManager;
+
+    private final ContactKeys contactKeys;
+
+    public JpaContactWriter(EntityManager entityManager, ContactKeys contactKeys) {
+        this.entityManager = entityManager;
+        this.contactKeys = contactKeys;
+    }
+
+    @Override
+    public WriteResult write(List<Contact> contacts) {
+        try {
+            for (Contact contact : contacts) {
+                entityManager.persist(contact);
+            }
+            entityManager.flush();
+            entityManager.unwrap(Session.class).doWork(connection -> contactKeys.store(connection, contacts));
+            entityManager.clear();
+            return WriteResult.inserted(contacts.size());
+        } catch (RuntimeException e) {
+            // The transaction is rolled back, so the generated ids were never stored
+            contacts.forEach(contact -> contact.setId(null));
+            throw e;
+        }
+    }
+
+}
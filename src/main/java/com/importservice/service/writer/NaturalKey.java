@@ -0,0 +1,104 @@
+package com.importservice.service.writer;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import com.importservice.service.writer.ContactColumns.ContactColumn;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The columns identifying a contact across imports, from {@code import.natural-key}. A partitioned
+ * table only allows unique indexes including {@code import_id}, so the keys are kept unique in
+ * {@value #TABLE} instead: every writer stores the keys of a chunk there with {@link ContactKeys},
+ * and writing a key another contact has fails with a unique violation. {@link ContactUpsertWriter}
+ * looks keys up there to update the contact instead.
+ */
+@Component
+public class NaturalKey {
+
+    public static final String TABLE = "contact_keys";
+
+    public static final String CONTACT_ID_COLUMN = "contact_id";
+
+    private static final char SEPARATOR = '\u001F';
+
+    private final List<ContactColumn> columns;
+
+    public NaturalKey(ImportProperties importProperties) {
+        Map<String, ContactColumn> byName = ContactColumns.all().stream()
+                .collect(Collectors.toMap(ContactColumn::name, Function.identity()));
+        List<ContactColumn> keyColumns = new ArrayList<>();
+        for (String name : importProperties.getNaturalKey()) {
+            ContactColumn column = byName.get(name.trim());
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown natural key column: " + name);
+            }
+            keyColumns.add(column);
+        }
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("import.natural-key must name at least one column");
+        }
+        this.columns = Collections.unmodifiableList(keyColumns);
+    }
+
+    public List<ContactColumn> columns() {
+        return columns;
+    }
+
+    /**
+     * Stores empty key columns of the contact as {@code null}: the unique index treats NULLs as
+     * distinct, while every empty string would be the same key. Call it on every mapped contact
+     * before it is written.
+     */
+    public void normalize(Contact contact) {
+        for (ContactColumn column : columns) {
+            String value = column.valueOf(contact);
+            if (value != null && value.isEmpty()) {
+                column.setValue(contact, null);
+            }
+        }
+    }
+
+    /**
+     * @return the natural key of the contact, or {@code null} if any key column is null or empty;
+     * such contacts never conflict, in the file or in the table. The contact is not changed.
+     */
+    public String keyOf(Contact contact) {
+        if (columns.size() == 1) {
+            return keyOf(columns.get(0).valueOf(contact));
+        }
+        String[] values = new String[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns.get(i).valueOf(contact);
+        }
+        return keyOf(values);
+    }
+
+    /**
+     * @param values the values of the key columns, in the order of {@link #columns()}
+     * @return the natural key made of the values, as {@link #keyOf(Contact)} returns it
+     */
+    public String keyOf(String... values) {
+        if (values.length == 1) {
+            return values[0] == null || values[0].isEmpty() ? null : values[0];
+        }
+        StringBuilder key = new StringBuilder();
+        for (String value : values) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            if (!key.isEmpty()) {
+                key.append(SEPARATOR);
+            }
+            key.append(value);
+        }
+        return key.toString();
+    }
+
+}
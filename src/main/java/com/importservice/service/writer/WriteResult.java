@@ -0,0 +1,28 @@
+package com.importservice.service.writer;
+
+/**
+ * Outcome of writing a chunk of contacts.
+ *
+ * @param inserted contacts stored as new rows
+ * @param updated  contacts that updated an existing row with the same natural key
+ */
+public record WriteResult(int inserted, int updated) {
+
+    public static final WriteResult EMPTY = new WriteResult(0, 0);
+
+    public static WriteResult inserted(int count) {
+        return new WriteResult(count, 0);
+    }
+
+    /**
+     * @return the number of contacts stored, inserted or updated
+     */
+    public int written() {
+        return inserted + updated;
+    }
+
+    public WriteResult plus(WriteResult other) {
+        return new WriteResult(inserted + other.inserted, updated + other.updated);
+    }
+
+}
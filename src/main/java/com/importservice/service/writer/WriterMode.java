@@ -0,0 +1,36 @@
+package com.importservice.service.writer;
+
+/**
+ * How mapped contacts are written to the {@code contacts} table.
+ */
+public enum WriterMode {
+
+    /**
+     * One {@code ContactRepository.save} per contact.
+     */
+    JPA,
+
+    /**
+     * One {@code COPY contacts FROM STDIN} per chunk through the PgJDBC {@code CopyManager}.
+     */
+    COPY,
+
+    /**
+     * One JDBC prepared-statement batch per chunk, rewritten by the driver into multi-row inserts.
+     */
+    JDBC_BATCH,
+
+    /**
+     * Multi-row {@code INSERT} per chunk, keyed by {@code import.natural-key}: contacts another import
+     * already stored are updated in place instead of rejected.
+     */
+    UPSERT,
+
+    /**
+     * One {@code COPY} per chunk into an {@code UNLOGGED} staging table of the import, then set-based
+     * validation and deduplication, merged with one {@code INSERT ... SELECT} per slice.
+     * Not shared out to the replicas of a cluster import.
+     */
+    STAGED
+
+}
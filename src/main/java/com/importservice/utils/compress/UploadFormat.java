@@ -0,0 +1,94 @@
+package com.importservice.utils.compress;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Container format of an uploaded file, detected from its magic bytes rather than its name.
+ * <p>
+ * Compressed formats are decompressed on the fly into the CSV parser, so an inflated copy
+ * of the file is never written to disk.
+ */
+public enum UploadFormat {
+
+    PLAIN(new byte[0]),
+
+    GZIP(new byte[]{0x1f, (byte) 0x8b}),
+
+    BZIP2(new byte[]{'B', 'Z', 'h'}),
+
+    XZ(new byte[]{(byte) 0xfd, '7', 'z', 'X', 'Z', 0x00}),
+
+    /**
+     * A zip archive; every CSV entry is imported on its own.
+     */
+    ZIP(new byte[]{'P', 'K', 0x03, 0x04});
+
+    private static final int MAGIC_LENGTH = 6;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] magic;
+
+    UploadFormat(byte[] magic) {
+        this.magic = magic;
+    }
+
+    /**
+     * Detects the format of a file from its first bytes; anything unrecognised is {@link #PLAIN}.
+     */
+    public static UploadFormat detect(Path file) throws IOException {
+        byte[] head = new byte[MAGIC_LENGTH];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, MAGIC_LENGTH);
+        }
+        return match(head, read);
+    }
+
+    /**
+     * Detects the format of a stream from its first bytes without consuming them.
+     */
+    public static UploadFormat detect(BufferedInputStream in) throws IOException {
+        byte[] head = new byte[MAGIC_LENGTH];
+        in.mark(MAGIC_LENGTH);
+        int read = in.readNBytes(head, 0, MAGIC_LENGTH);
+        in.reset();
+        return match(head, read);
+    }
+
+    private static UploadFormat match(byte[] head, int read) {
+        for (UploadFormat format : values()) {
+            if (format.magic.length > 0 && format.magic.length <= read
+                    && Arrays.equals(format.magic, Arrays.copyOf(head, format.magic.length))) {
+                return format;
+            }
+        }
+        return PLAIN;
+    }
+
+    /**
+     * Wraps the raw stream of a single-file upload with the matching decompressor.
+     *
+     * @throws IllegalStateException for {@link #ZIP}, whose entries are read individually
+     */
+    public InputStream decompress(InputStream raw) throws IOException {
+        InputStream in = new BufferedInputStream(raw, BUFFER_SIZE);
+        return switch (this) {
+            case PLAIN -> in;
+            case GZIP -> new GzipCompressorInputStream(in, true);
+            case BZIP2 -> new BZip2CompressorInputStream(in, true);
+            case XZ -> new XZCompressorInputStream(in, true);
+            case ZIP -> throw new IllegalStateException("Zip archives are imported entry by entry");
+        };
+    }
+
+}
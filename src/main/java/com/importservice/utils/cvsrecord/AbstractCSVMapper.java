@@ -1,13 +1,44 @@
 package com.importservice.utils.cvsrecord;
 
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 @Slf4j
 public abstract class AbstractCSVMapper<T> {
 
+    /**
+     * Upper bound of cached plans; imports rarely see more than a handful of distinct header rows.
+     */
+    private static final int MAX_CACHED_PLANS = 64;
+
+    private final ConcurrentMap<List<String>, MappingPlan<T>> plans = new ConcurrentHashMap<>();
+
+    private volatile Map<String, BiConsumer<T, String>> setters;
+
+    /**
+     * Plan of the most recently seen header; rows of one file share the header instance,
+     * so this turns the cache lookup into an identity check.
+     */
+    private volatile HeaderPlan<T> lastPlan;
+
+    private record HeaderPlan<T>(CsvHeader header, MappingPlan<T> plan) {
+    }
+
     /**
      * Maps a CSV record to the target entity.
      *
@@ -15,25 +46,107 @@ public abstract class AbstractCSVMapper<T> {
      * @return the mapped entity instance
      */
     public T map(CSVRecord csvRecord) {
-        T instance = createInstance();
-        Map<String, String> headerToFieldMap = getHeaderToFieldMap();
+        Map<String, String> values = csvRecord.getAll();
+        return planFor(List.copyOf(values.keySet())).map(values.values().toArray(String[]::new));
+    }
+
+    /**
+     * Maps a compact CSV row to the target entity.
+     *
+     * @param row the CSV row
+     * @return the mapped entity instance
+     */
+    public T map(CsvRow row) {
+        return planFor(row.header()).map(row.values());
+    }
+
+    /**
+     * Returns the mapping plan for a header row, compiling it on first use.
+     */
+    public MappingPlan<T> planFor(CsvHeader header) {
+        HeaderPlan<T> cached = lastPlan;
+        if (cached != null && cached.header() == header) {
+            return cached.plan();
+        }
+        MappingPlan<T> plan = planFor(header.names());
+        lastPlan = new HeaderPlan<>(header, plan);
+        return plan;
+    }
+
+    /**
+     * Returns the mapping plan for a header row, compiling it on first use.
+     * Plans are cached by header signature, so callers should look one up per file or per chunk,
+     * not per row.
+     *
+     * @param headers the header row, in column order
+     * @return the plan mapping rows with these headers
+     */
+    public MappingPlan<T> planFor(List<String> headers) {
+        MappingPlan<T> plan = plans.get(headers);
+        if (plan != null) {
+            return plan;
+        }
+        if (plans.size() >= MAX_CACHED_PLANS) {
+            plans.clear();
+        }
+        // Copied as the key may be a view of a mutable list; blank header cells are kept as null
+        return plans.computeIfAbsent(Collections.unmodifiableList(new ArrayList<>(headers)), this::compile);
+    }
 
-        for (Map.Entry<String, String> entry : headerToFieldMap.entrySet()) {
-            String csvHeader = entry.getKey();
-            String methodName = entry.getValue();
+    @SuppressWarnings("unchecked")
+    private MappingPlan<T> compile(List<String> headers) {
+        Map<String, BiConsumer<T, String>> compiledSetters = setters();
+        List<Integer> columnIndexes = new ArrayList<>();
+        List<BiConsumer<T, String>> columnSetters = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) {
+            String header = headers.get(i);
+            BiConsumer<T, String> setter = header == null ? null : compiledSetters.get(header);
+            if (setter != null) {
+                columnIndexes.add(i);
+                columnSetters.add(setter);
+            }
+        }
+        log.debug("Compiled mapping plan for {} of {} columns", columnIndexes.size(), headers.size());
+        return new MappingPlan<>(this::createInstance,
+                columnIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                columnSetters.toArray(new BiConsumer[0]));
+    }
 
-            if (csvRecord.isMapped(csvHeader)) {
-                String value = csvRecord.getValue(csvHeader);
+    /**
+     * Setters for every mapped header, generated once per mapper with {@link LambdaMetafactory}.
+     */
+    private Map<String, BiConsumer<T, String>> setters() {
+        Map<String, BiConsumer<T, String>> compiled = setters;
+        if (compiled == null) {
+            Class<?> type = createInstance().getClass();
+            Map<String, BiConsumer<T, String>> result = new ConcurrentHashMap<>();
+            for (Map.Entry<String, String> entry : getHeaderToFieldMap().entrySet()) {
+                String csvHeader = entry.getKey();
+                String methodName = entry.getValue();
                 try {
-                    Method method = instance.getClass().getMethod(methodName, String.class);
-                    method.invoke(instance, value);
-                } catch (Exception e) {
-                    log.info("Failed to map header '{}' with method '{}': {}\n",
+                    result.put(csvHeader, compileSetter(type, methodName));
+                } catch (Throwable e) {
+                    log.info("Failed to map header '{}' with method '{}': {}",
                             csvHeader, methodName, e.getMessage());
                 }
             }
+            compiled = Map.copyOf(result);
+            setters = compiled;
         }
-        return instance;
+        return compiled;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BiConsumer<T, String> compileSetter(Class<?> type, String methodName) throws Throwable {
+        Method method = type.getMethod(methodName, String.class);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle setter = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                setter,
+                MethodType.methodType(void.class, type, String.class));
+        return (BiConsumer<T, String>) site.getTarget().invokeExact();
     }
 
     /**
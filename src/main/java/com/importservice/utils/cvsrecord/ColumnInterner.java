@@ -0,0 +1,178 @@
+package com.importservice.utils.cvsrecord;
+
+import com.importservice.model.CsvHeader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replaces the values of low-cardinality columns (office, user, status, ...) with one shared
+ * instance per distinct value, so the rows of an import waiting in the chunk queues retain one
+ * {@code String} per distinct value instead of one per row. The parser's copy becomes garbage
+ * right away, while it is still young.
+ * <p>
+ * One interner serves one import and may be shared by its parser threads. Each designated column
+ * has its own dictionary of at most {@code maxValues} entries; a column with more distinct values
+ * is not worth interning, so its dictionary is dropped and its values are kept as parsed.
+ */
+public final class ColumnInterner {
+
+    private final Collection<String> columns;
+
+    private final int maxValues;
+
+    private final Statistics statistics;
+
+    private final Map<String, Dictionary> dictionaries = new ConcurrentHashMap<>();
+
+    private volatile Binding binding;
+
+    /**
+     * @param columns    the headers of the columns to intern
+     * @param maxValues  distinct values kept per column before it falls back to plain strings
+     * @param statistics where lookups are counted, e.g. shared by the runs of a job
+     */
+    public ColumnInterner(Collection<String> columns, int maxValues, Statistics statistics) {
+        this.columns = List.copyOf(columns);
+        this.maxValues = maxValues;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return an interner leaving every value as parsed
+     */
+    public static ColumnInterner disabled() {
+        return new ColumnInterner(List.of(), 0, new Statistics());
+    }
+
+    /**
+     * Interns the designated columns of one record in place.
+     *
+     * @param header the header of the file, which locates the designated columns
+     * @param values the values of the record
+     */
+    public void intern(CsvHeader header, String[] values) {
+        Binding bound = binding;
+        if (bound == null || bound.header() != header) {
+            bound = bind(header);
+            binding = bound;
+        }
+        int[] indexes = bound.indexes();
+        Dictionary[] boundDictionaries = bound.dictionaries();
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            if (index < values.length && values[index] != null) {
+                values[index] = boundDictionaries[i].intern(values[index]);
+            }
+        }
+    }
+
+    /**
+     * @return the headers of the columns whose dictionary overflowed
+     */
+    public List<String> overflowedColumns() {
+        List<String> overflowed = new ArrayList<>();
+        dictionaries.forEach((column, dictionary) -> {
+            if (dictionary.overflowed) {
+                overflowed.add(column);
+            }
+        });
+        return overflowed;
+    }
+
+    public Statistics statistics() {
+        return statistics;
+    }
+
+    private Binding bind(CsvHeader header) {
+        List<Integer> indexes = new ArrayList<>(columns.size());
+        List<Dictionary> bound = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            int index = header.indexOf(column);
+            if (index >= 0) {
+                indexes.add(index);
+                bound.add(dictionaries.computeIfAbsent(column, name -> new Dictionary(maxValues, statistics)));
+            }
+        }
+        return new Binding(header, indexes.stream().mapToInt(Integer::intValue).toArray(),
+                bound.toArray(new Dictionary[0]));
+    }
+
+    private record Binding(CsvHeader header, int[] indexes, Dictionary[] dictionaries) {
+    }
+
+    private static final class Dictionary {
+
+        private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+        private final int maxValues;
+
+        private final Statistics statistics;
+
+        private volatile boolean overflowed;
+
+        Dictionary(int maxValues, Statistics statistics) {
+            this.maxValues = maxValues;
+            this.statistics = statistics;
+        }
+
+        String intern(String value) {
+            if (overflowed) {
+                statistics.bypassed.increment();
+                return value;
+            }
+            String canonical = values.get(value);
+            if (canonical != null) {
+                statistics.hits.increment();
+                return canonical;
+            }
+            statistics.misses.increment();
+            if (values.size() >= maxValues) {
+                overflowed = true;
+                values.clear();
+                return value;
+            }
+            canonical = values.putIfAbsent(value, value);
+            return canonical != null ? canonical : value;
+        }
+    }
+
+    /**
+     * Lookups of interned columns: hits returned a shared instance, misses added a value to a
+     * dictionary (or overflowed it), bypassed values belong to an overflowed column.
+     */
+    public static final class Statistics {
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+
+        private final LongAdder bypassed = new LongAdder();
+
+        public long hits() {
+            return hits.sum();
+        }
+
+        public long misses() {
+            return misses.sum();
+        }
+
+        public long bypassed() {
+            return bypassed.sum();
+        }
+
+        /**
+         * @return the share of lookups that returned a shared instance, {@code 0} before any lookup
+         */
+        public double hitRatio() {
+            long hitCount = hits();
+            long total = hitCount + misses() + bypassed();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+
+}
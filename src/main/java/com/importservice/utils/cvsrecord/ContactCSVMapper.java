@@ -0,0 +1,141 @@
+package com.importservice.utils.cvsrecord;
+
+import com.importservice.entity.Contact;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps CSV export columns to {@link Contact} setters.
+ */
+@Component
+public class ContactCSVMapper extends AbstractCSVMapper<Contact> {
+
+    private static final Map<String, String> HEADER_TO_FIELD_MAP = createHeaderToFieldMap();
+
+    /**
+     * @return the columns of the contacts export, in export order
+     */
+    public static List<String> headers() {
+        return List.copyOf(HEADER_TO_FIELD_MAP.keySet());
+    }
+
+    @Override
+    protected Contact createInstance() {
+        return new Contact();
+    }
+
+    @Override
+    protected Map<String, String> getHeaderToFieldMap() {
+        return HEADER_TO_FIELD_MAP;
+    }
+
+    private static Map<String, String> createHeaderToFieldMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("Office Name", "setOfficeName");
+        map.put("User ID", "setUserId");
+        map.put("User Name", "setUserName");
+        map.put("Full Name", "setFullName");
+        map.put("Title", "setTitle");
+        map.put("Salutation", "setSalutation");
+        map.put("Envelope/Label Salutation", "setEnvelopeLabelSalutation");
+        map.put("Company", "setCompany");
+        map.put("First Name", "setFirstName");
+        map.put("MI", "setMi");
+        map.put("Last Name", "setLastName");
+        map.put("Spouse First Name", "setSpouseFirstName");
+        map.put("Spouse MI", "setSpouseMI");
+        map.put("Spouse Last Name", "setSpouseLastName");
+        map.put("Birthday", "setBirthday");
+        map.put("Spouse Birthday", "setSpouseBirthday");
+        map.put("Wedding Anniversary", "setWeddingAnniversary");
+        map.put("Expected Move Date", "setExpectedMoveDate");
+        map.put("Type of Service", "setTypeOfService");
+        map.put("Website", "setWebsite");
+        map.put("Office Phone", "setOfficePhone");
+        map.put("Fax", "setFax");
+        map.put("Interaction Notes", "setInteractionNotes");
+        map.put("Full Address", "setFullAddress");
+        map.put("Full Street Address", "setFullStreetAddress");
+        map.put("Street Number", "setStreetNumber");
+        map.put("Street Name", "setStreetName");
+        map.put("Unit", "setUnit");
+        map.put("Address 2", "setAddress2");
+        map.put("Address 3", "setAddress3");
+        map.put("City", "setCity");
+        map.put("State/Province", "setStateProvince");
+        map.put("ZIP Code/Postal Code", "setZipCodePostalCode");
+        map.put("Country", "setCountry");
+        map.put("Alternate Address Street/House Number", "setAlternateAddressStreetHouseNumber");
+        map.put("Alternate Address Street Name", "setAlternateAddressStreetName");
+        map.put("Alternate Address Unit", "setAlternateAddressUnit");
+        map.put("Alternate Address City", "setAlternateAddressCity");
+        map.put("Alternate Address State / Province / Territory", "setAlternateAddressStateProvinceTerritory");
+        map.put("Alternate Address ZIP / Postal Code", "setAlternateAddressZipPostalCode");
+        map.put("Alternate Address 2", "setAlternateAddress2");
+        map.put("Alternate Address 3", "setAlternateAddress3");
+        map.put("Alternate Full Street Address", "setAlternateFullStreetAddress");
+        map.put("Preferred Phone", "setPreferredPhone");
+        map.put("Work Phone", "setWorkPhone");
+        map.put("Home Phone", "setHomePhone");
+        map.put("Cell Phone", "setCellPhone");
+        map.put("Spouse Cell Phone", "setSpouseCellPhone");
+        map.put("Spouse Work Phone", "setSpouseWorkPhone");
+        map.put("Best Time to Contact", "setBestTimeToContact");
+        map.put("Alternate Fax", "setFaxAlt");
+        map.put("Email", "setEmail");
+        map.put("Secondary Email", "setSecondaryEmail");
+        map.put("Partner Email Address", "setPartnerEmailAddress");
+        map.put("Do Not Mail", "setDoNotMail");
+        map.put("Other Phone", "setOtherPhone");
+        map.put("Position", "setPosition");
+        map.put("Employer", "setEmployer");
+        map.put("Spouse Employer", "setSpouseEmployer");
+        map.put("Spouse Position", "setSpousePosition");
+        map.put("Interest", "setInterest");
+        map.put("Lead Source", "setLeadSource");
+        map.put("Priority", "setPriority");
+        map.put("Sales Pipeline Stage", "setSalesPipelineStage");
+        map.put("Secondary Source", "setSecondarySource");
+        map.put("Status", "setStatus");
+        map.put("Time Frame", "setTimeFrame");
+        map.put("Price Range", "setPriceRange");
+        map.put("Locations", "setLocations");
+        map.put("Contact Groups", "setContactGroups");
+        map.put("Dead Lead Date", "setDeadLeadDate");
+        map.put("Dead Lead Reason", "setDeadLeadReason");
+        map.put("Current Bedrooms", "setCurrentBedrooms");
+        map.put("Current Baths", "setCurrentBaths");
+        map.put("Current Sq. Feet", "setCurrentSqFeet");
+        map.put("Current Garage Spaces", "setCurrentGarageSpaces");
+        map.put("Current Pool", "setCurrentPool");
+        map.put("Current Property Type", "setCurrentPropertyType");
+        map.put("Current Home Type", "setCurrentHomeType");
+        map.put("Current Home Style", "setCurrentHomeStyle");
+        map.put("Current Construction", "setCurrentConstruction");
+        map.put("Current Special Requirements", "setCurrentSpecialRequirements");
+        map.put("Desired Bedrooms", "setDesiredBedrooms");
+        map.put("Desired Baths", "setDesiredBaths");
+        map.put("Desired Sq. Feet", "setDesiredSqFeet");
+        map.put("Desired Garage Spaces", "setDesiredGarageSpaces");
+        map.put("Desired Pool", "setDesiredPool");
+        map.put("Desired Property Type", "setDesiredPropertyType");
+        map.put("Desired Home Type", "setDesiredHomeType");
+        map.put("Desired Home Style", "setDesiredHomeStyle");
+        map.put("Desired Construction", "setDesiredConstruction");
+        map.put("View / Amenities", "setViewAmenities");
+        map.put("Desired Special Requirements", "setDesiredSpecialRequirements");
+        map.put("Owns Current Residence", "setOwnsCurrentResidence");
+        map.put("Date Purchased Current Home", "setDatePurchasedCurrentHome");
+        map.put("Prequalified", "setPrequalified");
+        map.put("Prequalified Amount", "setPrequalifiedAmount");
+        map.put("Notes", "setNotes");
+        map.put("Created Date", "setCreatedDate");
+        map.put("Modified Date", "setModifiedDate");
+        return Collections.unmodifiableMap(map);
+    }
+
+}
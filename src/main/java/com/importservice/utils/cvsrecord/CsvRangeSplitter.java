@@ -0,0 +1,198 @@
+package com.importservice.utils.cvsrecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Splits a memory-mapped CSV file into byte ranges that each start at a record boundary,
+ * so the ranges can be parsed independently and in parallel.
+ * <p>
+ * A newline only ends a record when it is outside a quoted field, and whether a position is
+ * inside quotes depends on every quote before it. The file is therefore scanned in two
+ * parallel passes over fixed-size blocks:
+ * <ol>
+ *     <li>each block counts its quote characters, and its newlines at even and at odd local
+ *     quote parity; a prefix sum over the blocks then gives the quote state at the start of
+ *     every block and the number of records ended before it;</li>
+ *     <li>each block, starting from its known quote state, looks for its first newline outside
+ *     quotes; that newline is the split point.</li>
+ * </ol>
+ * A quoted newline is thus never a split point, and the exact record number at the start of
+ * every range is known, so original row numbers survive parallel parsing. Escaped quotes
+ * ({@code ""}) toggle the state twice and need no special handling; {@code "} and {@code \n}
+ * never occur inside multi-byte UTF-8 sequences.
+ */
+public final class CsvRangeSplitter {
+
+    /**
+     * Upper bound of a block, well below the 2GB limit of a single mapping.
+     */
+    private static final long MAX_BLOCK_SIZE = 1L << 30;
+
+    private CsvRangeSplitter() {
+    }
+
+    /**
+     * A byte range holding whole records.
+     *
+     * @param start          offset of the first byte of the range
+     * @param end            offset just past the last byte of the range
+     * @param firstRowNumber 1-based data row number of the first record in the range, header excluded
+     */
+    public record Range(long start, long end, long firstRowNumber) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * @param header the bytes of the header record, without its line separator
+     * @param ranges the data ranges, in file order
+     */
+    public record Split(byte[] header, List<Range> ranges) {
+    }
+
+    private record BlockStats(long quotes, long newlinesAtEvenParity, long newlinesAtOddParity) {
+    }
+
+    /**
+     * Splits the file into roughly {@code targetRanges} ranges of at least {@code minRangeSize} bytes.
+     */
+    public static Split split(FileChannel channel, int targetRanges, long minRangeSize, ForkJoinPool pool)
+            throws IOException {
+        long size = channel.size();
+        long headerEnd = findHeaderEnd(channel, size);
+        byte[] header = readHeader(channel, headerEnd);
+        long dataStart = Math.min(size, headerEnd + 1);
+        if (dataStart >= size) {
+            return new Split(header, List.of());
+        }
+
+        long blockSize = Math.min(MAX_BLOCK_SIZE,
+                Math.max(minRangeSize, (size + targetRanges - 1) / Math.max(1, targetRanges)));
+        int blocks = (int) ((size + blockSize - 1) / blockSize);
+        if (blocks == 1) {
+            return new Split(header, List.of(new Range(dataStart, size, 1)));
+        }
+
+        // Pass 1: per-block quote and newline counts
+        List<BlockStats> stats = pool.submit(() -> IntStream.range(0, blocks).parallel()
+                .mapToObj(block -> scan(channel, block * blockSize, Math.min(size, (block + 1) * blockSize)))
+                .toList()).join();
+
+        boolean[] startsInQuotes = new boolean[blocks];
+        long[] recordsBefore = new long[blocks];
+        long quotes = 0;
+        long records = 0;
+        for (int block = 0; block < blocks; block++) {
+            startsInQuotes[block] = (quotes & 1) == 1;
+            recordsBefore[block] = records;
+            BlockStats blockStats = stats.get(block);
+            quotes += blockStats.quotes();
+            records += startsInQuotes[block] ? blockStats.newlinesAtOddParity() : blockStats.newlinesAtEvenParity();
+        }
+
+        // Pass 2: first newline outside quotes in every block but the first
+        List<Long> splitPoints = pool.submit(() -> IntStream.range(1, blocks).parallel()
+                .mapToObj(block -> firstRecordEnd(channel, block * blockSize,
+                        Math.min(size, (block + 1) * blockSize), startsInQuotes[block]))
+                .toList()).join();
+
+        List<Range> ranges = new ArrayList<>();
+        long start = dataStart;
+        long firstRowNumber = 1;
+        for (int block = 1; block < blocks; block++) {
+            long newline = splitPoints.get(block - 1);
+            if (newline < 0 || newline + 1 <= start || newline + 1 >= size) {
+                // No record ends in this block (e.g. inside a huge quoted field): merge it
+                continue;
+            }
+            ranges.add(new Range(start, newline + 1, firstRowNumber));
+            start = newline + 1;
+            // Records ended up to and including this newline, minus the header record
+            firstRowNumber = recordsBefore[block] + 1;
+        }
+        ranges.add(new Range(start, size, firstRowNumber));
+        return new Split(header, ranges);
+    }
+
+    private static long findHeaderEnd(FileChannel channel, long size) throws IOException {
+        long position = 0;
+        boolean inQuotes = false;
+        while (position < size) {
+            long end = Math.min(size, position + MAX_BLOCK_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+            for (int i = 0; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return position + i;
+                }
+            }
+            position = end;
+        }
+        return size;
+    }
+
+    private static byte[] readHeader(FileChannel channel, long headerEnd) throws IOException {
+        int length = (int) Math.min(headerEnd, Integer.MAX_VALUE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        if (length > 0 && buffer.get(length - 1) == '\r') {
+            length--;
+        }
+        byte[] header = new byte[length];
+        buffer.get(0, header);
+        return header;
+    }
+
+    private static BlockStats scan(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer = map(channel, start, end);
+        long quotes = 0;
+        long even = 0;
+        long odd = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                quotes++;
+            } else if (b == '\n') {
+                if ((quotes & 1) == 0) {
+                    even++;
+                } else {
+                    odd++;
+                }
+            }
+        }
+        return new BlockStats(quotes, even, odd);
+    }
+
+    private static long firstRecordEnd(FileChannel channel, long start, long end, boolean inQuotes) {
+        MappedByteBuffer buffer = map(channel, start, end);
+        boolean quoted = inQuotes;
+        for (int i = 0; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return start + i;
+            }
+        }
+        return -1;
+    }
+
+    static MappedByteBuffer map(FileChannel channel, long start, long end) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
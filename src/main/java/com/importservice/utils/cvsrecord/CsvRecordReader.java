@@ -1,9 +1,9 @@
 package com.importservice.utils.cvsrecord;
 
 import java.util.Iterator;
-import java.util.List;
 
-import com.importservice.model.CsvRecord;
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 
@@ -11,62 +11,105 @@ import java.io.Reader;
 import java.util.NoSuchElementException;
 
 /**
- * A streaming reader for CSV data that converts each record into a CsvRecord instance.
- * Designed for high-performance and low-memory usage using uniVocity.
+ * A streaming reader for CSV data that converts each record into a {@link CsvRow} instance.
+ * Designed for high-performance and low-memory usage using uniVocity: every row shares one
+ * {@link CsvHeader} and only carries the values array produced by the parser. Empty lines are
+ * skipped but keep their row number; see {@link #isEmptyLine}.
  */
 
-public class CsvRecordReader implements Iterator<CsvRecord> {
+public class CsvRecordReader implements Iterator<CsvRow>, AutoCloseable {
 
     private final CsvParser parser;
-    private final List<String> headers;
-    private final Iterator<String[]> rowIterator;
+    private final CsvHeader header;
+    private String[] nextValues;
+    private long nextRowNumber;
+    private boolean reuseRows;
+    private ColumnInterner interner;
+    private CsvRow reusableRow;
 
     public CsvRecordReader(Reader reader) {
         CsvParserSettings settings = new CsvParserSettings();
         settings.setHeaderExtractionEnabled(true);
+        // Empty lines are skipped here, after they have been counted
+        settings.setSkipEmptyLines(false);
         settings.setMaxCharsPerColumn(10000);
         settings.setInputBufferSize(4096);
         settings.setLineSeparatorDetectionEnabled(true);
 
         this.parser = new CsvParser(settings);
         this.parser.beginParsing(reader);
-        this.headers = List.of(parser.getContext().headers());
-
-        this.rowIterator = new Iterator<>() {
-            String[] nextRow = parser.parseNext();
-
-            @Override
-            public boolean hasNext() {
-                return nextRow != null;
-            }
-
-            @Override
-            public String[] next() {
-                if (nextRow == null) throw new NoSuchElementException();
-                String[] current = nextRow;
-                nextRow = parser.parseNext();
-                return current;
-            }
-        };
+        // Headers are only guaranteed to be available once the first row has been parsed
+        this.nextValues = parser.parseNext();
+        this.header = CsvHeader.of(parser.getContext().headers());
+        this.nextRowNumber = 1;
+        skipEmptyLines();
+    }
+
+    /**
+     * Whether the parsed values are those of an empty line. Empty lines are not imported, but
+     * they are counted: in every import mode a row number is the position of the record after
+     * the header, empty lines included, as {@code CsvRangeSplitter} counts them.
+     */
+    public static boolean isEmptyLine(String[] values) {
+        return values.length == 0 || (values.length == 1 && (values[0] == null || values[0].isEmpty()));
+    }
+
+    /**
+     * When enabled, {@link #next()} returns the same {@link CsvRow} instance every time,
+     * valid only until the following call. Use it when each row is consumed before the next
+     * one is read; rows that are collected into chunks must not be reused.
+     */
+    public void setReuseRows(boolean reuseRows) {
+        this.reuseRows = reuseRows;
+    }
+
+    /**
+     * Interns the designated columns of every row read; see {@link ColumnInterner}.
+     */
+    public void setInterner(ColumnInterner interner) {
+        this.interner = interner;
+    }
+
+    public CsvHeader getHeader() {
+        return header;
     }
 
     @Override
     public boolean hasNext() {
-        return rowIterator.hasNext();
+        return nextValues != null;
     }
 
     @Override
-    public CsvRecord next() {
-        String[] row = rowIterator.next();
-        CsvRecord cvsRecord = new CsvRecord();
-        for (int i = 0; i < headers.size(); i++) {
-            String header = headers.get(i);
-            String value = (i < row.length) ? row[i] : null;
-            cvsRecord.put(header, value);
+    public CsvRow next() {
+        if (nextValues == null) {
+            throw new NoSuchElementException();
         }
-        return cvsRecord;
+        String[] values = nextValues;
+        long rowNumber = nextRowNumber;
+        nextValues = parser.parseNext();
+        nextRowNumber++;
+        skipEmptyLines();
+        if (interner != null) {
+            interner.intern(header, values);
+        }
+        if (!reuseRows) {
+            return new CsvRow(header, values, rowNumber);
+        }
+        if (reusableRow == null) {
+            reusableRow = new CsvRow(header, values, rowNumber);
+            return reusableRow;
+        }
+        return reusableRow.reset(values, rowNumber);
     }
 
+    private void skipEmptyLines() {
+        while (nextValues != null && isEmptyLine(nextValues)) {
+            nextValues = parser.parseNext();
+            nextRowNumber++;
+        }
+    }
+
+    @Override
     public void close() {
         parser.stopParsing();
     }
@@ -0,0 +1,50 @@
+package com.importservice.utils.cvsrecord;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A mapping from one CSV header row to a target type, compiled once by
+ * {@link AbstractCSVMapper#planFor(List)}.
+ * <p>
+ * Every mapped column is bound to its index in the row and to a setter generated with
+ * {@code LambdaMetafactory}, so mapping a row is a plain loop over arrays with no
+ * header lookups and no reflection.
+ */
+public final class MappingPlan<T> {
+
+    private final Supplier<T> factory;
+
+    private final int[] columnIndexes;
+
+    private final BiConsumer<T, String>[] setters;
+
+    MappingPlan(Supplier<T> factory, int[] columnIndexes, BiConsumer<T, String>[] setters) {
+        this.factory = factory;
+        this.columnIndexes = columnIndexes;
+        this.setters = setters;
+    }
+
+    /**
+     * Maps the values of one row, in header order, to a new instance.
+     */
+    public T map(String[] values) {
+        T instance = factory.get();
+        for (int i = 0; i < columnIndexes.length; i++) {
+            int column = columnIndexes[i];
+            if (column < values.length) {
+                setters[i].accept(instance, values[column]);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return the number of columns of the header row this plan maps
+     */
+    public int mappedColumns() {
+        return columnIndexes.length;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.importservice.utils.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Reports the number of bytes read through it, e.g. to follow the progress of an import.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final LongConsumer bytesRead;
+
+    public CountingInputStream(InputStream in, LongConsumer bytesRead) {
+        super(in);
+        this.bytesRead = bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read >= 0) {
+            bytesRead.accept(1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read = super.read(bytes, offset, length);
+        if (read > 0) {
+            bytesRead.accept(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        if (skipped > 0) {
+            bytesRead.accept(skipped);
+        }
+        return skipped;
+    }
+
+}
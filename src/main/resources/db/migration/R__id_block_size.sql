@@ -0,0 +1,5 @@
+-- Keep the CI_UNIQUE_ID increment at import.id-block-size. Flyway reruns this migration whenever
+-- its checksum, which includes the placeholder value, changes, so the property also takes effect
+-- on databases migrated with another block size. Blocks handed out after the change start above
+-- the last value, so they never overlap blocks reserved with the old increment.
+ALTER SEQUENCE CI_UNIQUE_ID INCREMENT BY ${id-block-size} CACHE 1;
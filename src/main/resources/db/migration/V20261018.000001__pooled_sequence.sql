@@ -0,0 +1,9 @@
+-- Switch CI_UNIQUE_ID to pooled block allocation: every nextval reserves the block
+-- (value - increment, value], so Hibernate and the JDBC writers fetch one value per block.
+-- Advance past every id already in use first, so no block can overlap an existing row.
+SELECT setval('CI_UNIQUE_ID', GREATEST(
+        (SELECT COALESCE(MAX(id), 0) FROM contacts),
+        (SELECT COALESCE(MAX(id), 0) FROM unimported_contacts),
+        (SELECT last_value FROM CI_UNIQUE_ID)), true);
+
+ALTER SEQUENCE CI_UNIQUE_ID INCREMENT BY ${id-block-size} CACHE 1;
@@ -0,0 +1,17 @@
+CREATE TABLE import_jobs
+(
+    id               BIGINT      NOT NULL PRIMARY KEY,
+    file_name        VARCHAR(255),
+    state            VARCHAR(20) NOT NULL,
+    import_mode      VARCHAR(20),
+    writer_mode      VARCHAR(20),
+    total_records    BIGINT      NOT NULL DEFAULT 0,
+    imported_records BIGINT      NOT NULL DEFAULT 0,
+    failed_records   BIGINT      NOT NULL DEFAULT 0,
+    error_message    TEXT,
+    created_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+    started_at       TIMESTAMP WITH TIME ZONE,
+    finished_at      TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_import_jobs_state ON import_jobs (state);
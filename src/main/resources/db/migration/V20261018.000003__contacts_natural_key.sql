@@ -0,0 +1,58 @@
+-- Contacts are identified across imports by the import.natural-key columns.
+-- Empty key columns become NULL, as NULLs are distinct in a unique index and never conflict;
+-- the importer stores every empty key column as NULL as well.
+DO
+$$
+    DECLARE
+        key_column TEXT;
+        normalized BIGINT;
+    BEGIN
+        FOREACH key_column IN ARRAY string_to_array('${natural-key-columns}', ',')
+            LOOP
+                EXECUTE format('UPDATE contacts SET %1$I = NULL WHERE %1$I = ''''', trim(key_column));
+                GET DIAGNOSTICS normalized = ROW_COUNT;
+                RAISE NOTICE 'Stored % empty values of natural key column % as NULL', normalized, trim(key_column);
+            END LOOP;
+    END
+$$;
+
+-- Contacts already stored with the same key cannot be told apart here, so every row of such a
+-- key is moved to contacts_natural_key_conflicts for review instead of keeping one of them.
+-- Resolve a conflict by inserting the right row back into contacts.
+CREATE TABLE contacts_natural_key_conflicts
+(
+    LIKE contacts,
+    quarantined_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+WITH conflicting AS (
+    DELETE FROM contacts
+        WHERE (${natural-key-columns}) IN (SELECT ${natural-key-columns}
+                                           FROM contacts
+                                           WHERE ROW (${natural-key-columns}) IS NOT NULL
+                                           GROUP BY ${natural-key-columns}
+                                           HAVING count(*) > 1)
+        RETURNING *)
+INSERT
+INTO contacts_natural_key_conflicts
+SELECT *
+FROM conflicting;
+
+DO
+$$
+    DECLARE
+        quarantined BIGINT;
+    BEGIN
+        SELECT count(*) INTO quarantined FROM contacts_natural_key_conflicts;
+        IF quarantined > 0 THEN
+            RAISE WARNING '% contacts share their natural key (%) with another contact and were moved to contacts_natural_key_conflicts',
+                quarantined, '${natural-key-columns}';
+        END IF;
+    END
+$$;
+
+CREATE UNIQUE INDEX ux_contacts_natural_key ON contacts (${natural-key-columns});
+
+ALTER TABLE import_jobs
+    ADD COLUMN duplicate_records BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_records   BIGINT NOT NULL DEFAULT 0;
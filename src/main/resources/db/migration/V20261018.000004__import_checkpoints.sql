@@ -0,0 +1,22 @@
+-- Rows committed by a running import, as runs of consecutive row numbers, written in the
+-- transaction that stores them. The counters of a transaction are kept on its first run only.
+CREATE TABLE import_checkpoints
+(
+    job_id            BIGINT NOT NULL,
+    first_row         BIGINT NOT NULL,
+    last_row          BIGINT NOT NULL,
+    total_records     BIGINT NOT NULL DEFAULT 0,
+    imported_records  BIGINT NOT NULL DEFAULT 0,
+    failed_records    BIGINT NOT NULL DEFAULT 0,
+    duplicate_records BIGINT NOT NULL DEFAULT 0,
+    updated_records   BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_import_checkpoints_job ON import_checkpoints (job_id, first_row);
+
+ALTER TABLE import_jobs
+    ADD COLUMN source_path   VARCHAR(1024),
+    ADD COLUMN source_format VARCHAR(20),
+    ADD COLUMN source_entry  VARCHAR(1024);
+
+CREATE INDEX idx_import_jobs_source_path ON import_jobs (source_path);
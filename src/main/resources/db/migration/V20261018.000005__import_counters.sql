@@ -0,0 +1,15 @@
+-- Running row totals of contacts and unimported_contacts, sharded so concurrent imports
+-- do not contend on a single row. A total is the sum of its shards.
+CREATE TABLE import_counters
+(
+    name  VARCHAR(50) NOT NULL,
+    shard INT         NOT NULL,
+    value BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (name, shard)
+);
+
+INSERT INTO import_counters (name, shard, value)
+SELECT 'contacts', 0, COUNT(*) FROM contacts;
+
+INSERT INTO import_counters (name, shard, value)
+SELECT 'unimported_contacts', 0, COUNT(*) FROM unimported_contacts;
@@ -0,0 +1,228 @@
+-- Unimported rows keep the original CSV row in one JSONB column, keyed by header, with the
+-- import job, row number and an error code, instead of a copy of every contacts column.
+-- Existing rows are converted to the same shape; their job and row number are unknown.
+ALTER TABLE unimported_contacts
+    ADD COLUMN job_id     BIGINT,
+    ADD COLUMN row_number BIGINT,
+    ADD COLUMN error_code VARCHAR(50),
+    ADD COLUMN raw_row    JSONB,
+    ADD COLUMN created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+-- jsonb_build_object takes at most 100 arguments, so the row is built in parts
+UPDATE unimported_contacts
+SET error_code = 'LEGACY',
+    raw_row    = jsonb_strip_nulls(
+        jsonb_build_object(
+            'Office ID',                 office_id,
+            'Office Name',               office_name,
+            'User ID',                   user_id,
+            'User Name',                 user_name,
+            'Full Name',                 full_name,
+            'Title',                     title,
+            'Salutation',                salutation,
+            'Envelope/Label Salutation', envelope_label_salutation,
+            'Company',                   company,
+            'First Name',                first_name,
+            'MI',                        mi,
+            'Last Name',                 last_name,
+            'Spouse First Name',         spouse_first_name,
+            'Spouse MI',                 spouse_mi,
+            'Spouse Last Name',          spouse_last_name,
+            'Birthday',                  birthday,
+            'Spouse Birthday',           spouse_birthday,
+            'Wedding Anniversary',       wedding_anniversary,
+            'Expected Move Date',        expected_move_date,
+            'Type of Service',           type_of_service,
+            'Website',                   website,
+            'Office Phone',              office_phone,
+            'Fax',                       fax,
+            'Interaction Notes',         interaction_notes,
+            'Full Address',              full_address,
+            'Full Street Address',       full_street_address,
+            'Street Number',             street_number,
+            'Street Name',               street_name,
+            'Unit',                      unit,
+            'Address 2',                 address2,
+            'Address 3',                 address3,
+            'City',                      city,
+            'State/Province',            state_province,
+            'ZIP Code/Postal Code',      zip_code_postal_code) ||
+        jsonb_build_object(
+            'Country',                                        country,
+            'Alternate Address Street/House Number',          alternate_address_street_house_number,
+            'Alternate Address Street Name',                  alternate_address_street_name,
+            'Alternate Address Unit',                         alternate_address_unit,
+            'Alternate Address City',                         alternate_address_city,
+            'Alternate Address State / Province / Territory', alternate_address_state_province_territory,
+            'Alternate Address ZIP / Postal Code',            alternate_address_zip_postal_code,
+            'Alternate Address 2',                            alternate_address2,
+            'Alternate Address 3',                            alternate_address3,
+            'Alternate Full Street Address',                  alternate_full_street_address,
+            'Preferred Phone',                                preferred_phone,
+            'Work Phone',                                     work_phone,
+            'Home Phone',                                     home_phone,
+            'Cell Phone',                                     cell_phone,
+            'Spouse Cell Phone',                              spouse_cell_phone,
+            'Spouse Work Phone',                              spouse_work_phone,
+            'Best Time to Contact',                           best_time_to_contact,
+            'Alternate Fax',                                  fax_alt,
+            'Email',                                          email,
+            'Secondary Email',                                secondary_email,
+            'Partner Email Address',                          partner_email_address,
+            'Do Not Mail',                                    do_not_mail,
+            'Other Phone',                                    other_phone,
+            'Position',                                       position,
+            'Employer',                                       employer,
+            'Spouse Employer',                                spouse_employer,
+            'Spouse Position',                                spouse_position,
+            'Interest',                                       interest,
+            'Lead Source',                                    lead_source,
+            'Priority',                                       priority,
+            'Sales Pipeline Stage',                           sales_pipeline_stage,
+            'Secondary Source',                               secondary_source,
+            'Status',                                         status,
+            'Time Frame',                                     time_frame) ||
+        jsonb_build_object(
+            'Price Range',                  price_range,
+            'Locations',                    locations,
+            'Contact Groups',               contact_groups,
+            'Dead Lead Date',               dead_lead_date,
+            'Dead Lead Reason',             dead_lead_reason,
+            'Current Bedrooms',             current_bedrooms,
+            'Current Baths',                current_baths,
+            'Current Sq. Feet',             current_sq_feet,
+            'Current Garage Spaces',        current_garage_spaces,
+            'Current Pool',                 current_pool,
+            'Current Property Type',        current_property_type,
+            'Current Home Type',            current_home_type,
+            'Current Home Style',           current_home_style,
+            'Current Construction',         current_construction,
+            'Current Special Requirements', current_special_requirements,
+            'Desired Bedrooms',             desired_bedrooms,
+            'Desired Baths',                desired_baths,
+            'Desired Sq. Feet',             desired_sq_feet,
+            'Desired Garage Spaces',        desired_garage_spaces,
+            'Desired Pool',                 desired_pool,
+            'Desired Property Type',        desired_property_type,
+            'Desired Home Type',            desired_home_type,
+            'Desired Home Style',           desired_home_style,
+            'Desired Construction',         desired_construction,
+            'View / Amenities',             view_amenities,
+            'Desired Special Requirements', desired_special_requirements,
+            'Owns Current Residence',       owns_current_residence,
+            'Date Purchased Current Home',  date_purchased_current_home,
+            'Prequalified',                 prequalified,
+            'Prequalified Amount',          prequalified_amount,
+            'Notes',                        notes,
+            'Created Date',                 created_date,
+            'Modified Date',                modified_date));
+
+ALTER TABLE unimported_contacts
+    ALTER COLUMN raw_row SET NOT NULL,
+    DROP COLUMN office_id,
+    DROP COLUMN office_name,
+    DROP COLUMN user_id,
+    DROP COLUMN user_name,
+    DROP COLUMN full_name,
+    DROP COLUMN title,
+    DROP COLUMN salutation,
+    DROP COLUMN envelope_label_salutation,
+    DROP COLUMN company,
+    DROP COLUMN first_name,
+    DROP COLUMN mi,
+    DROP COLUMN last_name,
+    DROP COLUMN spouse_first_name,
+    DROP COLUMN spouse_mi,
+    DROP COLUMN spouse_last_name,
+    DROP COLUMN birthday,
+    DROP COLUMN spouse_birthday,
+    DROP COLUMN wedding_anniversary,
+    DROP COLUMN expected_move_date,
+    DROP COLUMN type_of_service,
+    DROP COLUMN website,
+    DROP COLUMN office_phone,
+    DROP COLUMN fax,
+    DROP COLUMN interaction_notes,
+    DROP COLUMN full_address,
+    DROP COLUMN full_street_address,
+    DROP COLUMN street_number,
+    DROP COLUMN street_name,
+    DROP COLUMN unit,
+    DROP COLUMN address2,
+    DROP COLUMN address3,
+    DROP COLUMN city,
+    DROP COLUMN state_province,
+    DROP COLUMN zip_code_postal_code,
+    DROP COLUMN country,
+    DROP COLUMN alternate_address_street_house_number,
+    DROP COLUMN alternate_address_street_name,
+    DROP COLUMN alternate_address_unit,
+    DROP COLUMN alternate_address_city,
+    DROP COLUMN alternate_address_state_province_territory,
+    DROP COLUMN alternate_address_zip_postal_code,
+    DROP COLUMN alternate_address2,
+    DROP COLUMN alternate_address3,
+    DROP COLUMN alternate_full_street_address,
+    DROP COLUMN preferred_phone,
+    DROP COLUMN work_phone,
+    DROP COLUMN home_phone,
+    DROP COLUMN cell_phone,
+    DROP COLUMN spouse_cell_phone,
+    DROP COLUMN spouse_work_phone,
+    DROP COLUMN best_time_to_contact,
+    DROP COLUMN fax_alt,
+    DROP COLUMN email,
+    DROP COLUMN secondary_email,
+    DROP COLUMN partner_email_address,
+    DROP COLUMN do_not_mail,
+    DROP COLUMN other_phone,
+    DROP COLUMN position,
+    DROP COLUMN employer,
+    DROP COLUMN spouse_employer,
+    DROP COLUMN spouse_position,
+    DROP COLUMN interest,
+    DROP COLUMN lead_source,
+    DROP COLUMN priority,
+    DROP COLUMN sales_pipeline_stage,
+    DROP COLUMN secondary_source,
+    DROP COLUMN status,
+    DROP COLUMN time_frame,
+    DROP COLUMN price_range,
+    DROP COLUMN locations,
+    DROP COLUMN contact_groups,
+    DROP COLUMN dead_lead_date,
+    DROP COLUMN dead_lead_reason,
+    DROP COLUMN current_bedrooms,
+    DROP COLUMN current_baths,
+    DROP COLUMN current_sq_feet,
+    DROP COLUMN current_garage_spaces,
+    DROP COLUMN current_pool,
+    DROP COLUMN current_property_type,
+    DROP COLUMN current_home_type,
+    DROP COLUMN current_home_style,
+    DROP COLUMN current_construction,
+    DROP COLUMN current_special_requirements,
+    DROP COLUMN desired_bedrooms,
+    DROP COLUMN desired_baths,
+    DROP COLUMN desired_sq_feet,
+    DROP COLUMN desired_garage_spaces,
+    DROP COLUMN desired_pool,
+    DROP COLUMN desired_property_type,
+    DROP COLUMN desired_home_type,
+    DROP COLUMN desired_home_style,
+    DROP COLUMN desired_construction,
+    DROP COLUMN view_amenities,
+    DROP COLUMN desired_special_requirements,
+    DROP COLUMN owns_current_residence,
+    DROP COLUMN date_purchased_current_home,
+    DROP COLUMN prequalified,
+    DROP COLUMN prequalified_amount,
+    DROP COLUMN notes,
+    DROP COLUMN created_date,
+    DROP COLUMN modified_date;
+
+-- Rows are now inserted with the id column's own sequence instead of CI_UNIQUE_ID
+SELECT setval(pg_get_serial_sequence('unimported_contacts', 'id'),
+              (SELECT COALESCE(MAX(id), 0) + 1 FROM unimported_contacts), false);
+
+CREATE INDEX idx_unimported_contacts_job ON unimported_contacts (job_id, row_number);
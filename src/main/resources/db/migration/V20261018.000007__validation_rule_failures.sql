@@ -0,0 +1,5 @@
+-- Rule-level error codes name the column, e.g. VALUE_TOO_LONG:alternate_address_state_province_territory
+ALTER TABLE unimported_contacts ALTER COLUMN error_code TYPE VARCHAR(100);
+
+-- Failed rows of a finished job by rule or error code, e.g. {"INVALID_EMAIL:email": 12}
+ALTER TABLE import_jobs ADD COLUMN rule_failures JSONB;
@@ -0,0 +1,66 @@
+-- Contacts are partitioned by the import that stored them, one LIST partition per import job,
+-- so an import is rolled back by detaching and dropping its partition instead of deleting rows.
+-- Contacts stored before imports were tracked become the partition of import 0.
+ALTER TABLE contacts
+    ADD COLUMN import_id BIGINT NOT NULL DEFAULT 0;
+
+-- Unique indexes of a partitioned table must include the partition key, so the id is unique per
+-- import; the natural key moves to contact_keys below to stay unique across imports.
+ALTER TABLE contacts
+    DROP CONSTRAINT contacts_pkey;
+DROP INDEX ux_contacts_natural_key;
+
+ALTER TABLE contacts
+    RENAME TO contacts_import_0;
+
+-- No column defaults: ids come from CI_UNIQUE_ID and every writer sets the import.
+CREATE TABLE contacts
+(
+    LIKE contacts_import_0
+) PARTITION BY LIST (import_id);
+
+ALTER TABLE contacts
+    ADD PRIMARY KEY (id, import_id);
+
+ALTER TABLE contacts
+    ATTACH PARTITION contacts_import_0 FOR VALUES IN (0);
+
+-- The natural key of every contact with all key columns set, in a plain table whose unique index
+-- spans all imports. A trigger keeps it in step with contacts, so any write storing a key that
+-- another contact already has fails with a unique violation (23505), whatever the import.
+-- Dropping a partition fires no trigger: a rollback deletes the keys of its import itself.
+CREATE TABLE contact_keys AS
+SELECT ${natural-key-columns}, id AS contact_id, import_id
+FROM contacts
+WHERE ROW (${natural-key-columns}) IS NOT NULL;
+
+ALTER TABLE contact_keys
+    ADD PRIMARY KEY (contact_id),
+    ALTER COLUMN import_id SET NOT NULL;
+
+CREATE UNIQUE INDEX ux_contact_keys_natural_key ON contact_keys (${natural-key-columns});
+CREATE INDEX ix_contact_keys_import_id ON contact_keys (import_id);
+
+CREATE FUNCTION contact_keys_sync() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        DELETE FROM contact_keys WHERE contact_id = OLD.id;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        INSERT INTO contact_keys (${natural-key-columns}, contact_id, import_id)
+        SELECT ${natural-key-columns}, id, import_id
+        FROM (SELECT NEW.*) AS stored
+        WHERE ROW (${natural-key-columns}) IS NOT NULL;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+-- Updates leaving the key columns alone, like those of the UPSERT writer, do not fire it
+CREATE TRIGGER contact_keys_sync
+    AFTER INSERT OR DELETE OR UPDATE OF id, import_id, ${natural-key-columns}
+    ON contacts
+    FOR EACH ROW
+EXECUTE FUNCTION contact_keys_sync();
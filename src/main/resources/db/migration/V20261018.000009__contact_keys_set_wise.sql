@@ -0,0 +1,5 @@
+-- The writers and the staged merge store the keys of a chunk in contact_keys themselves, with one
+-- INSERT ... SELECT from the rows just written in the transaction of the chunk. The row trigger
+-- cost a PL/pgSQL call per contact on every COPY and batch insert.
+DROP TRIGGER contact_keys_sync ON contacts;
+DROP FUNCTION contact_keys_sync();
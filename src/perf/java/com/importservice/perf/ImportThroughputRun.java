@@ -0,0 +1,349 @@
+package com.importservice.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.importservice.ImportServiceApplication;
+import com.importservice.benchmark.ContactCsvGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput run: generates a contacts export, starts the whole application against
+ * an embedded PostgreSQL, uploads the file to {@code POST /api/import} and polls the job until
+ * it finishes. Writes rows/s, per-stage chunk latency percentiles and peak memory to a JSON
+ * report and exits with status 1 when the report regresses against the baseline by more than
+ * the threshold, or when there is no baseline for the workload to compare against.
+ * <p>
+ * Run by the {@code importThroughput} Gradle task; every setting is a {@code perf.*} system
+ * property, see {@link Settings}.
+ */
+public final class ImportThroughputRun {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final List<String> STAGES = List.of("parse", "map", "validate", "write", "failure-persist", "merge");
+
+    /**
+     * Scheduling jitter a p99 chunk latency may show over the baseline whatever the threshold.
+     */
+    private static final double LATENCY_SLACK_MILLIS = 50;
+
+    /**
+     * Report fields describing the run rather than measuring it; a baseline only applies to a run with the same.
+     */
+    private static final List<String> WORKLOAD = List.of("rows", "errorRatio", "multilineRatio", "wideTextLength",
+            "mode", "writer");
+
+    private ImportThroughputRun() {
+    }
+
+    /**
+     * @param rows             data rows generated
+     * @param errorRatio       share of rows failing on insert
+     * @param multilineRatio   share of rows with quoted multi-line notes
+     * @param wideTextLength   length of the TEXT column values; {@code 0} for short notes
+     * @param mode             import mode of the upload
+     * @param writer           writer of the upload
+     * @param workDirectory    where the export and the spool go
+     * @param report           where the report is written
+     * @param baseline         report of an accepted run to compare against
+     * @param threshold        tolerated regression of throughput and RSS, e.g. {@code 0.2} for 20%
+     * @param latencyThreshold tolerated regression of the p99 chunk latencies, looser since a p99 over a few
+     *                         hundred chunks is a noisy tail
+     * @param updateBaseline   store this run as the new baseline instead of comparing
+     * @param timeout          longest the import may take
+     */
+    record Settings(long rows, double errorRatio, double multilineRatio, int wideTextLength, String mode,
+                    String writer, Path workDirectory, Path report, Path baseline, double threshold,
+                    double latencyThreshold, boolean updateBaseline, Duration timeout) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Long.getLong("perf.rows", 20_000),
+                    Double.parseDouble(System.getProperty("perf.errorRatio", "0.01")),
+                    Double.parseDouble(System.getProperty("perf.multilineRatio", "0.05")),
+                    Integer.getInteger("perf.wideTextLength", 2_000),
+                    System.getProperty("perf.mode", "STREAMING"),
+                    System.getProperty("perf.writer", "COPY"),
+                    Path.of(System.getProperty("perf.workDirectory", "build/perf")),
+                    Path.of(System.getProperty("perf.report", "build/reports/import-throughput/report.json")),
+                    Path.of(System.getProperty("perf.baseline", "src/perf/baseline.json")),
+                    Double.parseDouble(System.getProperty("perf.threshold", "0.2")),
+                    Double.parseDouble(System.getProperty("perf.latencyThreshold", "1.0")),
+                    Boolean.getBoolean("perf.updateBaseline"),
+                    Duration.parse(System.getProperty("perf.timeout", "PT30M")));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        Files.createDirectories(settings.workDirectory());
+        Path export = settings.workDirectory().resolve("contacts-" + settings.rows() + ".csv");
+        ContactCsvGenerator generator = new ContactCsvGenerator(new ContactCsvGenerator.Options(settings.rows(), 42,
+                settings.errorRatio(), settings.multilineRatio(), settings.wideTextLength()));
+        try (Writer out = Files.newBufferedWriter(export, StandardCharsets.UTF_8)) {
+            generator.write(out);
+        }
+        System.out.printf("Generated %d rows, %d MB%n", settings.rows(), Files.size(export) >> 20);
+
+        Map<String, Object> report;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = start(postgres, settings)) {
+            report = run(context, export, settings);
+        }
+
+        Files.createDirectories(settings.report().toAbsolutePath().getParent());
+        JSON.writeValue(settings.report().toFile(), report);
+        System.out.println(JSON.writeValueAsString(report));
+
+        System.exit(check(settings, report) ? 0 : 1);
+    }
+
+    /**
+     * @return {@code false} if the report regresses against the baseline
+     */
+    private static boolean check(Settings settings, Map<String, Object> report) throws IOException {
+        if (settings.updateBaseline()) {
+            Files.createDirectories(settings.baseline().toAbsolutePath().getParent());
+            JSON.writeValue(settings.baseline().toFile(), report);
+            System.out.println("Baseline updated: " + settings.baseline());
+            return true;
+        }
+        if (!Files.exists(settings.baseline())) {
+            System.err.println("No baseline at " + settings.baseline() + "; run with -Pperf.updateBaseline=true "
+                    + "on the reference machine to record one");
+            return false;
+        }
+        JsonNode baseline = JSON.readTree(settings.baseline().toFile());
+        JsonNode current = JSON.valueToTree(report);
+        List<String> differences = WORKLOAD.stream()
+                .filter(field -> !baseline.path(field).asText().equals(current.path(field).asText()))
+                .map(field -> field + " " + current.path(field) + ", baseline " + baseline.path(field))
+                .toList();
+        if (!differences.isEmpty()) {
+            System.err.println("The baseline at " + settings.baseline() + " was recorded for another workload ("
+                    + String.join("; ", differences) + "); run with its perf.* settings or record a baseline "
+                    + "for these with -Pperf.updateBaseline=true");
+            return false;
+        }
+        List<String> regressions = compare(baseline, current, settings);
+        if (!regressions.isEmpty()) {
+            regressions.forEach(regression -> System.err.println("REGRESSION: " + regression));
+            return false;
+        }
+        System.out.println("No regression beyond " + Math.round(settings.threshold() * 100) + "% of the baseline, "
+                + Math.round(settings.latencyThreshold() * 100) + "% for chunk latencies");
+        return true;
+    }
+
+    private static ConfigurableApplicationContext start(EmbeddedPostgres postgres, Settings settings) {
+        // Command line arguments, so they override application.yml
+        return new SpringApplicationBuilder(ImportServiceApplication.class, PerfConfiguration.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.servlet.multipart.max-file-size=-1",
+                        "--spring.servlet.multipart.max-request-size=-1",
+                        "--spring.servlet.multipart.file-size-threshold=0",
+                        "--import.spool-directory=" + settings.workDirectory().resolve("spool").toAbsolutePath(),
+                        "--import.metrics.retention=1h",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.importservice=INFO",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.springframework.web=WARN");
+    }
+
+    private static Map<String, Object> run(ConfigurableApplicationContext context, Path export, Settings settings)
+            throws IOException, InterruptedException {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String baseUrl = "http://localhost:" + port + "/api/import";
+        HttpClient client = HttpClient.newHttpClient();
+
+        MemorySampler memory = new MemorySampler();
+        Instant started = Instant.now();
+        String boundary = UUID.randomUUID().toString();
+        HttpRequest upload = HttpRequest.newBuilder(URI.create(baseUrl + "?mode=" + settings.mode()
+                        + "&writer=" + settings.writer()))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofString("--" + boundary + "\r\n"
+                                + "Content-Disposition: form-data; name=\"file\"; filename=\""
+                                + export.getFileName() + "\"\r\nContent-Type: text/csv\r\n\r\n"),
+                        HttpRequest.BodyPublishers.ofFile(export),
+                        HttpRequest.BodyPublishers.ofString("\r\n--" + boundary + "--\r\n")))
+                .build();
+        HttpResponse<String> accepted = client.send(upload, HttpResponse.BodyHandlers.ofString());
+        if (accepted.statusCode() != 202) {
+            throw new IllegalStateException("Upload rejected with " + accepted.statusCode() + ": " + accepted.body());
+        }
+        long jobId = JSON.readTree(accepted.body()).path("jobs").path(0).path("jobId").asLong();
+
+        JsonNode job;
+        Instant deadline = started.plus(settings.timeout());
+        do {
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException("Import job " + jobId + " did not finish within " + settings.timeout());
+            }
+            Thread.sleep(250);
+            job = JSON.readTree(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + jobId)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body());
+        } while (job.get("state").asText().equals("QUEUED") || job.get("state").asText().equals("RUNNING"));
+        Duration elapsed = Duration.between(started, Instant.now());
+        memory.stop();
+
+        if (!job.get("state").asText().equals("COMPLETED")) {
+            throw new IllegalStateException("Import job " + jobId + " " + job.get("state").asText() + ": "
+                    + job.get("errorMessage").asText());
+        }
+        JsonNode statistics = job.get("statistics");
+        long records = statistics.get("totalRecords").asLong();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", Runtime.version().toString());
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("rows", settings.rows());
+        report.put("errorRatio", settings.errorRatio());
+        report.put("multilineRatio", settings.multilineRatio());
+        report.put("wideTextLength", settings.wideTextLength());
+        report.put("fileBytes", Files.size(export));
+        report.put("mode", settings.mode());
+        report.put("writer", settings.writer());
+        report.put("totalRecords", records);
+        report.put("imported", statistics.get("totalImported").asLong());
+        report.put("failed", statistics.get("totalFailed").asLong());
+        report.put("elapsedMillis", elapsed.toMillis());
+        report.put("rowsPerSecond", records * 1000.0 / Math.max(1, elapsed.toMillis()));
+        report.put("chunkLatencyMillis", stageLatencies(context.getBean(MeterRegistry.class), jobId));
+        report.put("maxRssBytes", memory.maxRssBytes());
+        report.put("peakHeapBytes", memory.peakHeapBytes());
+        return report;
+    }
+
+    private static Map<String, Map<String, Double>> stageLatencies(MeterRegistry registry, long jobId) {
+        Map<String, Map<String, Double>> latencies = new LinkedHashMap<>();
+        for (String stage : STAGES) {
+            Timer timer = registry.find("import.stage.duration")
+                    .tags("import", Long.toString(jobId), "stage", stage).timer();
+            if (timer == null || timer.count() == 0) {
+                continue;
+            }
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                percentiles.put("p" + Math.round(value.percentile() * 100), value.value(TimeUnit.MILLISECONDS));
+            }
+            percentiles.put("max", timer.max(TimeUnit.MILLISECONDS));
+            percentiles.put("count", (double) timer.count());
+            latencies.put(stage, percentiles);
+        }
+        return latencies;
+    }
+
+    /**
+     * @return the figures of the report worse than the baseline by more than the thresholds; latencies
+     * within {@value #LATENCY_SLACK_MILLIS} ms of the baseline never count
+     */
+    static List<String> compare(JsonNode baseline, JsonNode report, Settings settings) {
+        double threshold = settings.threshold();
+        List<String> regressions = new ArrayList<>();
+        double baseRate = baseline.path("rowsPerSecond").asDouble();
+        double rate = report.path("rowsPerSecond").asDouble();
+        if (baseRate > 0 && rate < baseRate * (1 - threshold)) {
+            regressions.add(String.format("throughput %.0f rows/s, baseline %.0f rows/s", rate, baseRate));
+        }
+        for (String stage : STAGES) {
+            double baseP99 = baseline.path("chunkLatencyMillis").path(stage).path("p99").asDouble();
+            double p99 = report.path("chunkLatencyMillis").path(stage).path("p99").asDouble();
+            if (baseP99 > 0 && p99 > baseP99 * (1 + settings.latencyThreshold())
+                    && p99 > baseP99 + LATENCY_SLACK_MILLIS) {
+                regressions.add(String.format("%s p99 %.1f ms per chunk, baseline %.1f ms", stage, p99, baseP99));
+            }
+        }
+        long baseRss = baseline.path("maxRssBytes").asLong();
+        long rss = report.path("maxRssBytes").asLong();
+        if (baseRss > 0 && rss > baseRss * (1 + threshold)) {
+            regressions.add(String.format("max RSS %d MB, baseline %d MB", rss >> 20, baseRss >> 20));
+        }
+        return regressions;
+    }
+
+    /**
+     * Peak resident set size of this JVM, which hosts the application, and peak heap use while
+     * the import runs. RSS is read from {@code /proc/self/status} and {@code -1} where unavailable.
+     */
+    private static final class MemorySampler {
+
+        private final AtomicLong maxRss = new AtomicLong(-1);
+
+        private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("perf-memory-sampler").daemon().factory());
+
+        MemorySampler() {
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            sampler.scheduleAtFixedRate(() -> maxRss.accumulateAndGet(currentRss(), Math::max),
+                    0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            sampler.shutdownNow();
+            maxRss.accumulateAndGet(currentRss(), Math::max);
+        }
+
+        long maxRssBytes() {
+            return maxRss.get();
+        }
+
+        long peakHeapBytes() {
+            return ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum();
+        }
+
+        private static long currentRss() {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Not Linux
+            }
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.importservice.migration;
+
+import com.importservice.support.TestPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Changing {@code import.id-block-size} on a database migrated already: the increment follows the
+ * property, and blocks reserved afterwards never overlap the ones handed out before.
+ */
+class IdBlockSizeMigrationTest {
+
+    private TestPostgres.Database database;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void createDatabase() {
+        database = TestPostgres.createDatabase().migrate(null);
+        jdbc = new JdbcTemplate(database.dataSource());
+    }
+
+    @Test
+    void appliesAChangedBlockSizeToTheSequence() {
+        long before = nextBlockEnd();
+
+        database.migrate(null, 200);
+
+        assertThat(increment()).isEqualTo(200);
+        assertThat(nextBlockEnd()).isEqualTo(before + 200);
+
+        database.migrate(null, 20);
+
+        assertThat(increment()).isEqualTo(20);
+        assertThat(nextBlockEnd()).isEqualTo(before + 200 + 20);
+    }
+
+    @Test
+    void leavesTheSequenceAloneWhileTheBlockSizeIsUnchanged() {
+        long before = nextBlockEnd();
+
+        database.migrate(null);
+
+        assertThat(increment()).isEqualTo(50);
+        assertThat(nextBlockEnd()).isEqualTo(before + 50);
+    }
+
+    private long increment() {
+        return jdbc.queryForObject("SELECT increment_by FROM pg_sequences WHERE sequencename = 'ci_unique_id'",
+                Long.class);
+    }
+
+    private long nextBlockEnd() {
+        return jdbc.queryForObject("SELECT nextval('CI_UNIQUE_ID')", Long.class);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.importservice.migration;
+
+import com.importservice.support.TestPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The natural key migration on contacts stored before keys were enforced: no contact may be lost.
+ */
+class NaturalKeyMigrationTest {
+
+    private TestPostgres.Database database;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void createDatabase() {
+        database = TestPostgres.createDatabase().migrate("20261018.000002");
+        jdbc = new JdbcTemplate(database.dataSource());
+    }
+
+    @Test
+    void movesEveryContactOfAConflictingKeyToQuarantine() {
+        insert("a@example.com", "First");
+        insert("a@example.com", "Second");
+        insert("b@example.com", "Unique");
+        insert("", "Empty 1");
+        insert("", "Empty 2");
+        insert(null, "Missing");
+
+        database.migrate("20261018.000003");
+
+        assertThat(jdbc.queryForList("SELECT first_name FROM contacts ORDER BY first_name", String.class))
+                .containsExactly("Empty 1", "Empty 2", "Missing", "Unique");
+        assertThat(jdbc.queryForList("SELECT first_name FROM contacts_natural_key_conflicts ORDER BY first_name",
+                String.class)).containsExactly("First", "Second");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts WHERE email IS NULL", Long.class))
+                .isEqualTo(3);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts_natural_key_conflicts"
+                + " WHERE quarantined_at IS NOT NULL AND email = 'a@example.com'", Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void leavesDistinctKeysAlone() {
+        insert("a@example.com", "First");
+        insert("b@example.com", "Second");
+
+        database.migrate("20261018.000003");
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts", Long.class)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts_natural_key_conflicts", Long.class))
+                .isZero();
+    }
+
+    private void insert(String email, String firstName) {
+        jdbc.update("INSERT INTO contacts (email, first_name) VALUES (?, ?)", email, firstName);
+    }
+
+}
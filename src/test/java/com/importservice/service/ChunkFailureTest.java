@@ -0,0 +1,127 @@
+package com.importservice.service;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.metrics.ImportMetrics;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * A chunk failing fails the whole pipeline, so the import ends failed and can be resumed instead
+ * of completing without the rows of the chunk.
+ */
+class ChunkFailureTest {
+
+    private static final int ROWS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private ImportExecutor importExecutor;
+
+    private ImportMeters meters;
+
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ImportProperties properties = new ImportProperties();
+        properties.getExecutor().setPoolSize(1);
+        properties.getExecutor().setQueueDepth(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        importExecutor = new ImportExecutor(properties, registry);
+        meters = new ImportMetrics(registry, properties).acquire(1);
+    }
+
+    @AfterEach
+    void shutDown() {
+        importExecutor.shutdown();
+    }
+
+    @Test
+    void streamingFailsWithTheFirstFailedChunkAndStopsReading() {
+        StreamingImportPipeline pipeline = new StreamingImportPipeline(10, importExecutor, meters,
+                ColumnInterner.disabled());
+
+        Throwable failure = catchThrowable(() -> pipeline.start(new StringReader(csv()), this::failSecondChunk)
+                .get(30, TimeUnit.SECONDS));
+
+        assertThat(failure).isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IllegalStateException.class).hasMessage("Connection lost");
+        // At most the chunks queued or running when the second one failed
+        assertThat(handled).hasValueLessThan(ROWS / 10);
+    }
+
+    @Test
+    void parallelFailsWithTheFirstFailedChunkAndStopsEveryRange() throws IOException {
+        ParallelImportPipeline pipeline = new ParallelImportPipeline(10, 4, 1, importExecutor.getParsePool(),
+                importExecutor, bytes -> { }, meters, ColumnInterner.disabled());
+
+        Throwable failure = catchThrowable(() -> pipeline.start(write(csv()), this::failSecondChunk)
+                .get(30, TimeUnit.SECONDS));
+
+        assertThat(failure).isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IllegalStateException.class).hasMessage("Connection lost");
+        assertThat(handled).hasValueLessThan(ROWS / 10);
+    }
+
+    @Test
+    void aRangeWithAFailedChunkIsNotReportedAsImported() throws IOException {
+        Path file = write(csv());
+        ParallelImportPipeline pipeline = new ParallelImportPipeline(10, 1, 1, importExecutor.getParsePool(),
+                importExecutor, bytes -> { }, meters, ColumnInterner.disabled());
+        CsvRangeSplitter.Split split;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            split = CsvRangeSplitter.split(channel, 1, 1, importExecutor.getParsePool());
+        }
+        CsvHeader header = ParallelImportPipeline.parseHeader(split.header());
+
+        Throwable failure = catchThrowable(() -> pipeline.parseRange(file, header, split.ranges().getFirst(),
+                this::failSecondChunk, () -> false));
+
+        assertThat(failure).isInstanceOf(CompletionException.class)
+                .cause().isInstanceOf(IllegalStateException.class).hasMessage("Connection lost");
+    }
+
+    private Path write(String csv) throws IOException {
+        return Files.writeString(directory.resolve("contacts.csv"), csv, StandardCharsets.UTF_8);
+    }
+
+    private void failSecondChunk(List<CsvRow> chunk) {
+        if (handled.incrementAndGet() == 2) {
+            throw new IllegalStateException("Connection lost");
+        }
+    }
+
+    private static String csv() {
+        StringBuilder csv = new StringBuilder("Email\r\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append("contact-").append(i).append("@example.com\r\n");
+        }
+        return csv.toString();
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.entity.ImportJobState;
+import com.importservice.model.CsvRow;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.support.PostgresIntegrationTest;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * A {@code BUFFERED} import interns the configured columns as the file is parsed, so the buffered
+ * rows share one instance per distinct value of such a column.
+ */
+class ColumnInterningIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 300;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private ContactCSVMapper contactMapper;
+
+    private final List<CsvRow> mapped = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void captureMappedRows() {
+        doAnswer(invocation -> {
+            mapped.add(invocation.getArgument(0));
+            return invocation.callRealMethod();
+        }).when(contactMapper).map(any(CsvRow.class));
+    }
+
+    @Test
+    void bufferedRowsShareOneInstancePerInternedValue() throws Exception {
+        StringBuilder csv = new StringBuilder("Email,First Name,Status\r\n");
+        for (int row = 0; row < ROWS; row++) {
+            csv.append(email(row)).append(",Same,").append(row % 2 == 0 ? "Active" : "Lead").append("\r\n");
+        }
+
+        long jobId = importJobService.submit(new MockMultipartFile("file", "contacts.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8)), ImportMode.BUFFERED, WriterMode.JDBC_BATCH)
+                .getFirst().jobId();
+        ImportJobStatus status = awaitFinished(jobId);
+
+        assertThat(status.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(mapped).hasSize(ROWS);
+        assertThat(instances("Status")).hasSize(2);
+        // Not interned: the parser's own copy of every value
+        assertThat(instances("First Name")).hasSize(ROWS);
+        assertThat(lookups(jobId, "hit")).isEqualTo(ROWS - 2);
+        assertThat(lookups(jobId, "miss")).isEqualTo(2);
+    }
+
+    private Set<String> instances(String column) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        mapped.forEach(row -> instances.add(row.get(column)));
+        return instances;
+    }
+
+    private double lookups(long jobId, String result) {
+        return meterRegistry.get("import.interner.lookups").tag("import", Long.toString(jobId))
+                .tag("result", result).functionCounter().count();
+    }
+
+    private ImportJobStatus awaitFinished(long jobId) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(60));
+        ImportJobStatus status = importJobService.find(jobId).orElseThrow();
+        while (status.state() == ImportJobState.QUEUED || status.state() == ImportJobState.RUNNING) {
+            assertThat(Instant.now()).isBefore(deadline);
+            Thread.sleep(50);
+            status = importJobService.find(jobId).orElseThrow();
+        }
+        return status;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.importservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateFilterTest {
+
+    @Test
+    void neverMissesAnAddedKey() {
+        DuplicateFilter filter = new DuplicateFilter(10_000);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("key" + i));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("key" + i));
+    }
+
+    @Test
+    void reportsFewKeysThatWereNeverAdded() {
+        DuplicateFilter filter = new DuplicateFilter(100_000);
+        IntStream.range(0, 100_000).forEach(i -> filter.add(i + "@example.com"));
+
+        long falsePositives = IntStream.range(100_000, 200_000)
+                .filter(i -> filter.mightContain(i + "@example.com"))
+                .count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void rowsWithoutKeyAreNeverDuplicates() {
+        DuplicateFilter filter = new DuplicateFilter(10);
+        filter.add(null);
+
+        assertThat(filter.mightContain(null)).isFalse();
+    }
+
+    @Test
+    void sizeIsCapped() {
+        assertThat(new DuplicateFilter(0).bits()).isEqualTo(1L << 13);
+        assertThat(new DuplicateFilter(1_000).bits()).isEqualTo(1L << 14);
+        assertThat(new DuplicateFilter(Long.MAX_VALUE / 100).bits()).isEqualTo(1L << 27);
+    }
+
+}
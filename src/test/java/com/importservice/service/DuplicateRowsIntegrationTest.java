@@ -0,0 +1,95 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.entity.ImportJobState;
+import com.importservice.service.ImportMode;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rows repeating a natural key: the first row the database stores wins, and a row that fails to
+ * write never costs a later row with its key its place.
+ */
+class DuplicateRowsIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void aRowFailingToWriteLeavesItsKeyToTheNextRow() throws Exception {
+        String csv = "Email,First Name\r\n"
+                + email("a") + ",Bro\u0000ken\r\n"
+                + email("a") + ",Second\r\n"
+                + email("a") + ",Third\r\n"
+                + email("b") + ",Only\r\n";
+
+        ImportJobStatus status = importCsv(csv, WriterMode.JDBC_BATCH);
+
+        assertThat(status.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(counts(status.statistics())).containsExactly(4L, 2L, 1L, 1L);
+        assertThat(jdbc.queryForObject("SELECT first_name FROM contacts WHERE email = ?", String.class, email("a")))
+                .isEqualTo("Second");
+        assertThat(jdbc.queryForObject("SELECT error_code FROM unimported_contacts WHERE job_id = ?", String.class,
+                status.jobId())).isEqualTo(ErrorCodes.INVALID_ENCODING);
+    }
+
+    @Test
+    void duplicatesAcrossChunksAreCountedOnce() throws Exception {
+        StringBuilder csv = new StringBuilder("Email,First Name\r\n");
+        // Chunks of 100 rows: every key appears in three chunks, written concurrently
+        for (int copy = 0; copy < 3; copy++) {
+            for (int key = 0; key < 150; key++) {
+                csv.append(email(key)).append(",Copy ").append(copy).append("\r\n");
+            }
+        }
+
+        ImportJobStatus status = importCsv(csv.toString(), WriterMode.COPY);
+
+        assertThat(counts(status.statistics())).containsExactly(450L, 150L, 0L, 300L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts WHERE import_id = ?", Long.class,
+                status.jobId())).isEqualTo(150);
+    }
+
+    @Test
+    void anotherImportOfTheSameKeysIsRejected() throws Exception {
+        String csv = "Email,First Name\r\n" + email("a") + ",First\r\n";
+        importCsv(csv, WriterMode.JDBC_BATCH);
+
+        ImportJobStatus again = importCsv(csv, WriterMode.JDBC_BATCH);
+        ImportJobStatus upserted = importCsv("Email,First Name\r\n" + email("a") + ",Updated\r\n", WriterMode.UPSERT);
+
+        assertThat(counts(again.statistics())).containsExactly(1L, 0L, 1L, 0L);
+        assertThat(again.statistics().ruleFailures()).containsEntry(ErrorCodes.DUPLICATE_KEY, 1L);
+        assertThat(upserted.statistics().totalUpdated()).isEqualTo(1);
+        assertThat(jdbc.queryForList("SELECT first_name FROM contacts WHERE email = ?", String.class, email("a")))
+                .containsExactly("Updated");
+    }
+
+    private ImportJobStatus importCsv(String csv, WriterMode writerMode) throws Exception {
+        return importJobService.submitStream(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                "contacts.csv", ImportMode.STREAMING, writerMode).get(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return records, imported, failed and duplicates
+     */
+    private static Long[] counts(ImportStatistics statistics) {
+        return new Long[]{statistics.totalRecords(), statistics.totalImported(), statistics.totalFailed(),
+                statistics.totalDuplicates()};
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.entity.ImportJob;
+import com.importservice.entity.ImportJobState;
+import com.importservice.repository.ImportJobRepository;
+import com.importservice.service.cluster.ClusterImportFinished;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Resume and rollback go by the state stored in {@code import_jobs}, not by what this instance runs.
+ */
+class ImportJobStateIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void refusesToRollBackAJobRunningOnAnotherInstance() {
+        ImportJob job = storedJob(ImportJobState.RUNNING);
+
+        assertThatThrownBy(() -> importJobService.rollback(job.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Import job " + job.getId() + " is running");
+        assertThat(stateOf(job)).isEqualTo(ImportJobState.RUNNING);
+    }
+
+    @Test
+    void refusesToResumeAJobRunningOnAnotherInstance() {
+        ImportJob job = storedJob(ImportJobState.RUNNING);
+
+        assertThatThrownBy(() -> importJobService.resume(job.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Import job " + job.getId() + " is running");
+    }
+
+    @Test
+    void rollsBackACompletedJobOnce() throws Exception {
+        ImportJobStatus imported = importJobService.submitStream(new ByteArrayInputStream(
+                        ("Email\r\n" + email("a") + "\r\n").getBytes(StandardCharsets.UTF_8)),
+                "contacts.csv", ImportMode.STREAMING, WriterMode.JDBC_BATCH).get(60, TimeUnit.SECONDS);
+
+        // Concurrent requests: exactly one of them rolls the job back
+        List<CompletableFuture<Optional<ImportJobStatus>>> rollbacks = IntStream.range(0, 4)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> importJobService.rollback(imported.jobId())))
+                .toList();
+        long succeeded = rollbacks.stream().filter(rollback -> !rollback.handle((status, ex) -> ex != null).join())
+                .count();
+
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(importJobService.find(imported.jobId()).orElseThrow().state()).isEqualTo(ImportJobState.ROLLED_BACK);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts WHERE email = ?", Long.class, email("a")))
+                .isZero();
+        assertThatThrownBy(() -> importJobService.rollback(imported.jobId()))
+                .hasMessage("Import job " + imported.jobId() + " is already rolled back");
+    }
+
+    @Test
+    void jobsInterruptedByARestartCanBeRolledBack() {
+        ImportJob job = storedJob(ImportJobState.RUNNING);
+
+        importJobService.failInterruptedJobs();
+
+        assertThat(stateOf(job)).isEqualTo(ImportJobState.FAILED);
+        assertThat(importJobService.rollback(job.getId()).orElseThrow().state()).isEqualTo(ImportJobState.ROLLED_BACK);
+    }
+
+    @Test
+    void aClusterImportIsFinishedOnceByWhicheverReplicaClaimsIt() {
+        ImportJob job = storedJob(ImportJobState.RUNNING);
+
+        importJobService.finish(new ClusterImportFinished(job.getId(), new ImportStatistics(3L, 0L, 3L, 0L, 0L), null));
+        importJobService.finish(new ClusterImportFinished(job.getId(), new ImportStatistics(0L, 0L, 0L, 0L, 0L),
+                "Range 0 failed 3 times"));
+
+        ImportJobStatus status = importJobService.find(job.getId()).orElseThrow();
+        assertThat(status.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(status.statistics().totalImported()).isEqualTo(3);
+        assertThat(status.errorMessage()).isNull();
+    }
+
+    private ImportJob storedJob(ImportJobState state) {
+        ImportJob job = new ImportJob();
+        job.setFileName("contacts.csv");
+        job.setState(state);
+        job.setImportMode(ImportMode.STREAMING);
+        job.setWriterMode(WriterMode.JDBC_BATCH);
+        job.setCreatedAt(Instant.now());
+        return importJobRepository.save(job);
+    }
+
+    private ImportJobState stateOf(ImportJob job) {
+        return importJobRepository.findById(job.getId()).orElseThrow().getState();
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.importservice.service;
+
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.entity.ImportJobState;
+import com.importservice.service.failure.FailureSink;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * An import killed half way and resumed ends up with exactly the rows, rejections and counts of
+ * an uninterrupted one. The kill is the worker pool refusing chunks, as it does while the instance
+ * shuts down: chunks already handed out finish, the rest of the file is never read.
+ */
+@TestPropertySource(properties = {
+        "import.batch-size=10",
+        "import.parallel.parallelism=4",
+        "import.parallel.min-range-size=1KB"
+})
+class ImportResumeIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 300;
+
+    private static final int CHUNKS_BEFORE_KILL = 12;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @MockitoSpyBean
+    private ImportExecutor importExecutor;
+
+    @MockitoSpyBean
+    private FailureSink failureSink;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final AtomicInteger chunksLeft = new AtomicInteger(Integer.MAX_VALUE);
+
+    @BeforeEach
+    void killAfterSomeChunks() throws Exception {
+        chunksLeft.set(CHUNKS_BEFORE_KILL);
+        doAnswer(invocation -> {
+            if (chunksLeft.getAndDecrement() <= 0) {
+                throw new RejectedExecutionException("Killed");
+            }
+            return invocation.callRealMethod();
+        }).when(importExecutor).submit(any());
+        doCallRealMethod().when(failureSink).write(anyLong(), anyList());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"STREAMING, COPY", "BUFFERED, JPA", "PARALLEL, COPY", "PARALLEL, JDBC_BATCH"})
+    void resumesAKilledImportWithoutSkippingOrRepeatingRows(ImportMode mode, WriterMode writer) throws Exception {
+        Expected expected = new Expected();
+        StringBuilder csv = new StringBuilder("Email,First Name,MI\r\n");
+        for (int row = 1; row <= ROWS; row++) {
+            // Every 25th row is rejected; every 40th repeats the key of the row 30 before it, which for
+            // rows 80, 180 and 280 is a rejected row
+            String email = email(row % 40 == 0 ? row - 30 : row);
+            String mi = row % 25 == 0 ? "TOO LONG FOR MI" : "";
+            csv.append(email).append(",Row ").append(row).append(',').append(mi).append("\r\n");
+            expected.add(row, email, !mi.isEmpty());
+        }
+
+        long jobId = importJobService.submit(new MockMultipartFile("file", "contacts.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8)), mode, writer).getFirst().jobId();
+        ImportJobStatus killed = awaitFinished(jobId);
+
+        assertThat(killed.state()).isEqualTo(ImportJobState.FAILED);
+        assertThat(killed.errorMessage()).contains("Killed");
+        assertThat(killed.statistics().totalRecords()).isBetween(1L, ROWS - 1L);
+        assertThat(storedEmails(jobId)).hasSize(Math.toIntExact(killed.statistics().totalImported()));
+
+        chunksLeft.set(Integer.MAX_VALUE);
+        importJobService.resume(jobId);
+        ImportJobStatus resumed = awaitFinished(jobId);
+
+        assertThat(resumed.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(resumed.statistics().totalRecords()).isEqualTo(ROWS);
+        assertThat(resumed.statistics().totalImported()).isEqualTo(expected.stored.size());
+        assertThat(resumed.statistics().totalFailed()).isEqualTo(expected.rejected.size());
+        assertThat(resumed.statistics().totalDuplicates()).isEqualTo(expected.duplicates);
+        assertThat(storedEmails(jobId)).containsExactlyInAnyOrderElementsOf(expected.stored);
+        assertThat(jdbc.queryForList("SELECT row_number FROM unimported_contacts WHERE job_id = ?", Long.class,
+                jobId)).containsExactlyInAnyOrderElementsOf(expected.rejected);
+    }
+
+    @Test
+    void rejectedRowsThatCannotBeStoredFailTheImportAndAreRejectedAgainOnResume() throws Exception {
+        chunksLeft.set(Integer.MAX_VALUE);
+        doThrow(new DataAccessResourceFailureException("Connection lost"))
+                .doCallRealMethod()
+                .when(failureSink).write(anyLong(), anyList());
+        String csv = "Email,MI\r\n" + email("a") + ",\r\n" + email("b") + ",TOO LONG FOR MI\r\n";
+
+        long jobId = importJobService.submit(new MockMultipartFile("file", "contacts.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8)), ImportMode.STREAMING, WriterMode.COPY).getFirst().jobId();
+        ImportJobStatus failed = awaitFinished(jobId);
+
+        assertThat(failed.state()).isEqualTo(ImportJobState.FAILED);
+        assertThat(failed.errorMessage()).isEqualTo("Connection lost");
+
+        importJobService.resume(jobId);
+        ImportJobStatus resumed = awaitFinished(jobId);
+
+        assertThat(resumed.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(resumed.statistics().totalImported()).isEqualTo(1);
+        assertThat(resumed.statistics().totalFailed()).isEqualTo(1);
+        assertThat(jdbc.queryForList("SELECT row_number FROM unimported_contacts WHERE job_id = ?", Long.class,
+                jobId)).containsExactly(2L);
+    }
+
+    private ImportJobStatus awaitFinished(long jobId) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(60));
+        ImportJobStatus status = importJobService.find(jobId).orElseThrow();
+        while (status.state() == ImportJobState.QUEUED || status.state() == ImportJobState.RUNNING) {
+            assertThat(Instant.now()).isBefore(deadline);
+            Thread.sleep(50);
+            status = importJobService.find(jobId).orElseThrow();
+        }
+        return status;
+    }
+
+    private List<String> storedEmails(long jobId) {
+        return jdbc.queryForList("SELECT email FROM contacts WHERE import_id = ?", String.class, jobId);
+    }
+
+    /**
+     * The outcome of an uninterrupted import: the first valid row of a key is stored, later ones are duplicates.
+     */
+    private static final class Expected {
+
+        private final Set<String> stored = new HashSet<>();
+
+        private final List<Long> rejected = new ArrayList<>();
+
+        private long duplicates;
+
+        void add(long row, String email, boolean invalid) {
+            if (invalid) {
+                rejected.add(row);
+            } else if (!stored.add(email)) {
+                duplicates++;
+            }
+        }
+    }
+
+}
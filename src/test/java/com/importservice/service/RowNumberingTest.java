@@ -0,0 +1,105 @@
+package com.importservice.service;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.metrics.ImportMetrics;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Both pipelines number a row by its position after the header, empty lines included, so row
+ * numbers recorded by one mode (failures, checkpoints) mean the same in the other.
+ */
+class RowNumberingTest {
+
+    private static final String CSV = "Email,Notes\r\n"
+            + "a@example.com,one\r\n"
+            + "\r\n"
+            + "b@example.com,\"two\r\nlines\"\r\n"
+            + "c@example.com,three\r\n"
+            + "\r\n"
+            + "\r\n"
+            + "d@example.com,four\r\n"
+            + "e@example.com,five\r\n"
+            + "\r\n";
+
+    private static final Map<Long, String> EXPECTED = Map.of(
+            1L, "a@example.com", 3L, "b@example.com", 4L, "c@example.com", 7L, "d@example.com", 8L, "e@example.com");
+
+    @TempDir
+    Path directory;
+
+    private ImportProperties properties;
+
+    private ImportExecutor importExecutor;
+
+    private ImportMeters meters;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImportProperties();
+        properties.getExecutor().setPoolSize(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        importExecutor = new ImportExecutor(properties, registry);
+        meters = new ImportMetrics(registry, properties).acquire(1);
+    }
+
+    @AfterEach
+    void shutDown() {
+        importExecutor.shutdown();
+    }
+
+    @Test
+    void streamingCountsEmptyLines() throws Exception {
+        Map<Long, String> rows = new ConcurrentSkipListMap<>();
+        StreamingImportPipeline pipeline = new StreamingImportPipeline(2, importExecutor, meters,
+                ColumnInterner.disabled());
+
+        long parsed = pipeline.start(new StringReader(CSV), chunk -> collect(chunk, rows))
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(parsed).isEqualTo(EXPECTED.size());
+        assertThat(rows).isEqualTo(new TreeMap<>(EXPECTED));
+    }
+
+    @Test
+    void parallelNumbersRowsLikeStreaming() throws Exception {
+        Path file = write(CSV);
+        Map<Long, String> rows = new ConcurrentSkipListMap<>();
+        // Ranges of a few bytes, so they start after empty and multi-line records
+        ParallelImportPipeline pipeline = new ParallelImportPipeline(2, 4, 1, importExecutor.getParsePool(),
+                importExecutor, bytes -> { }, meters, ColumnInterner.disabled());
+
+        long parsed = pipeline.start(file, chunk -> collect(chunk, rows)).get(30, TimeUnit.SECONDS);
+
+        assertThat(parsed).isEqualTo(EXPECTED.size());
+        assertThat(rows).isEqualTo(new TreeMap<>(EXPECTED));
+    }
+
+    private static void collect(List<CsvRow> chunk, Map<Long, String> rows) {
+        chunk.forEach(row -> rows.put(row.rowNumber(), row.get(0)));
+    }
+
+    private Path write(String csv) throws IOException {
+        return Files.writeString(directory.resolve("contacts.csv"), csv, StandardCharsets.UTF_8);
+    }
+
+}
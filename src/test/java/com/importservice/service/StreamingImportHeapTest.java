@@ -0,0 +1,110 @@
+package com.importservice.service;
+
+import com.importservice.benchmark.ContactCsvGenerator;
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import com.importservice.model.CsvRow;
+import com.importservice.service.metrics.ImportMeters;
+import com.importservice.service.metrics.ImportMetrics;
+import com.importservice.utils.cvsrecord.ColumnInterner;
+import com.importservice.utils.cvsrecord.ContactCSVMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams a generated export of several million rows through the parse and map path under the
+ * small fixed heap of the {@code heapBoundTest} task. The file is generated while it is read, so
+ * neither side ever holds more than the pipeline's bounded queue of chunks; a pipeline that kept
+ * rows alive would fail with an {@link OutOfMemoryError} long before the end.
+ * <p>
+ * Run with {@code ./gradlew heapBoundTest}, sized with {@code -Pheap.rows}.
+ */
+@Tag("heap")
+class StreamingImportHeapTest {
+
+    private static final long ROWS = Long.getLong("heap.rows", 2_000_000);
+
+    private static final long MAX_HEAP = 128L * 1024 * 1024;
+
+    private ImportExecutor importExecutor;
+
+    @AfterEach
+    void shutDown() {
+        if (importExecutor != null) {
+            importExecutor.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.MINUTES)
+    void importsMillionsOfRowsInFixedHeap() throws Exception {
+        assertThat(Runtime.getRuntime().maxMemory())
+                .as("heapBoundTest must run with a small -Xmx")
+                .isLessThanOrEqualTo(MAX_HEAP);
+
+        ImportProperties properties = new ImportProperties();
+        properties.getExecutor().setPoolSize(2);
+        properties.getExecutor().setQueueDepth(4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        importExecutor = new ImportExecutor(properties, registry);
+        ImportMeters meters = new ImportMetrics(registry, properties).acquire(1);
+        ColumnInterner interner = new ColumnInterner(properties.getInterning().getColumns(),
+                properties.getInterning().getMaxValuesPerColumn(), meters.getInternerStatistics());
+
+        ContactCSVMapper mapper = new ContactCSVMapper();
+        AtomicLong mapped = new AtomicLong();
+        AtomicLong lastRowNumber = new AtomicLong();
+        StreamingImportPipeline pipeline = new StreamingImportPipeline(500, importExecutor, meters, interner);
+
+        CompletableFuture<Long> parsed = pipeline.start(generate(ROWS), chunk -> {
+            for (CsvRow row : chunk) {
+                Contact contact = mapper.map(row);
+                if (contact.getEmail() != null) {
+                    mapped.incrementAndGet();
+                }
+                lastRowNumber.accumulateAndGet(row.rowNumber(), Math::max);
+            }
+        });
+
+        assertThat(parsed.get(15, TimeUnit.MINUTES)).isEqualTo(ROWS);
+        assertThat(mapped.get()).isEqualTo(ROWS);
+        assertThat(lastRowNumber.get()).isEqualTo(ROWS);
+    }
+
+    /**
+     * @return a reader of a generated export, written by a separate thread as it is consumed
+     */
+    private static Reader generate(long rows) throws IOException {
+        PipedInputStream in = new PipedInputStream(1 << 16);
+        PipedOutputStream out = new PipedOutputStream(in);
+        Thread writer = new Thread(() -> {
+            try (Writer csv = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                new ContactCsvGenerator(ContactCsvGenerator.Options.rows(rows)).write(csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "csv-generator");
+        writer.setDaemon(true);
+        writer.start();
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+}
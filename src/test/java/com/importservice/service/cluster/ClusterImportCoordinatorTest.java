@@ -0,0 +1,228 @@
+package com.importservice.service.cluster;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.dto.ImportStatistics;
+import com.importservice.service.CSVImportService;
+import com.importservice.service.ImportExecutor;
+import com.importservice.service.ImportProgress;
+import com.importservice.service.checkpoint.CheckpointStore;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.utils.cvsrecord.CsvRangeSplitter.Range;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.unit.DataSize;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replicas sharing an embedded Redis: claiming ranges, losing leases and finishing jobs.
+ * The ranges are not imported; {@link CSVImportService#importRange} is stubbed per replica.
+ */
+class ClusterImportCoordinatorTest {
+
+    private static final Duration LEASE = Duration.ofMillis(600);
+
+    private static final long JOB_ID = 42;
+
+    @TempDir
+    private Path directory;
+
+    private RedisServer redis;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RangeLeaseStore leaseStore;
+
+    private final List<ClusterImportCoordinator> nodes = new ArrayList<>();
+
+    private final List<ImportExecutor> executors = new ArrayList<>();
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        leaseStore = new RangeLeaseStore(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        released.countDown();
+        nodes.forEach(ClusterImportCoordinator::shutdown);
+        executors.forEach(ImportExecutor::shutdown);
+        connectionFactory.destroy();
+        if (redis.isActive()) {
+            redis.stop();
+        }
+    }
+
+    @Test
+    void leaseExpiresUnlessExtended() throws Exception {
+        assertThat(leaseStore.claim(JOB_ID, 0, "a", LEASE)).isTrue();
+        assertThat(leaseStore.claim(JOB_ID, 0, "b", LEASE)).isFalse();
+        assertThat(leaseStore.heartbeat(JOB_ID, 0, "a", LEASE)).isTrue();
+
+        Thread.sleep(LEASE.toMillis() * 2);
+
+        assertThat(leaseStore.claim(JOB_ID, 0, "b", LEASE)).isTrue();
+        assertThat(leaseStore.heartbeat(JOB_ID, 0, "a", LEASE)).isFalse();
+        assertThat(leaseStore.complete(JOB_ID, 0, "a", statistics(1))).isEqualTo(-1);
+        assertThat(leaseStore.complete(JOB_ID, 0, "b", statistics(1))).isEqualTo(1);
+    }
+
+    @Test
+    void finishingIsLeasedToOneReplica() {
+        assertThat(leaseStore.claimFinish(JOB_ID, "a", LEASE)).isTrue();
+        assertThat(leaseStore.claimFinish(JOB_ID, "b", LEASE)).isFalse();
+    }
+
+    @Test
+    void anotherReplicaFinishesTheJobOfADeadOrigin() throws Exception {
+        Path file = csv();
+        CountDownLatch originImporting = new CountDownLatch(1);
+        BlockingQueue<ClusterImportFinished> finished = new LinkedBlockingQueue<>();
+        ClusterImportCoordinator origin = node(event -> {
+        }, (range, cancelled) -> {
+            originImporting.countDown();
+            released.await();
+            return statistics(1);
+        });
+        Set<Long> importedBySurvivor = ConcurrentHashMap.newKeySet();
+        ClusterImportCoordinator survivor = node(event -> finished.add((ClusterImportFinished) event),
+                (range, cancelled) -> {
+                    importedBySurvivor.add(range);
+                    return statistics(1);
+                });
+
+        origin.start();
+        origin.importFile(JOB_ID, file, WriterMode.JDBC_BATCH, new ImportProgress(JOB_ID));
+        assertThat(originImporting.await(10, TimeUnit.SECONDS)).isTrue();
+        origin.shutdown();
+        survivor.start();
+
+        ClusterImportFinished event = finished.poll(20, TimeUnit.SECONDS);
+        int ranges = leaseStore.load(JOB_ID).ranges().size();
+        assertThat(ranges).isGreaterThan(1);
+        assertThat(event).isEqualTo(new ClusterImportFinished(JOB_ID, new ImportStatistics((long) ranges,
+                0L, (long) ranges, 0L, 0L), null));
+        assertThat(importedBySurvivor).hasSize(ranges);
+        // The job is withdrawn once the event was handled, and finished only once
+        assertThat(finished.poll(1, TimeUnit.SECONDS)).isNull();
+        assertThat(leaseStore.isActive(JOB_ID)).isFalse();
+    }
+
+    @Test
+    void theOriginCompletesOnceAnyReplicaFinishedTheJob() throws Exception {
+        ClusterImportCoordinator origin = node(event -> {
+        }, (range, cancelled) -> statistics(1));
+        origin.start();
+
+        ImportStatistics statistics = origin.importFile(JOB_ID, csv(), WriterMode.JDBC_BATCH,
+                new ImportProgress(JOB_ID)).get(20, TimeUnit.SECONDS);
+
+        assertThat(statistics.totalRecords()).isEqualTo(leaseStore.load(JOB_ID).ranges().size());
+    }
+
+    @Test
+    void unreachableRedisStopsTheRangeOnceTheLeaseExpired() throws Exception {
+        CountDownLatch importing = new CountDownLatch(1);
+        BlockingQueue<Long> cancelledAfter = new LinkedBlockingQueue<>();
+        ClusterImportCoordinator node = node(event -> {
+        }, (range, cancelled) -> {
+            importing.countDown();
+            long started = System.nanoTime();
+            while (!cancelled.getAsBoolean()) {
+                Thread.sleep(20);
+            }
+            cancelledAfter.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return statistics(0);
+        });
+        node.start();
+        node.importFile(JOB_ID, csv(), WriterMode.JDBC_BATCH, new ImportProgress(JOB_ID));
+        assertThat(importing.await(10, TimeUnit.SECONDS)).isTrue();
+
+        redis.stop();
+
+        assertThat(cancelledAfter.poll(20, TimeUnit.SECONDS)).isNotNull().isGreaterThanOrEqualTo(LEASE.toMillis() / 2);
+    }
+
+    private interface RangeImport {
+
+        ImportStatistics importRange(long firstRowNumber, BooleanSupplier cancelled) throws Exception;
+    }
+
+    private ClusterImportCoordinator node(ApplicationEventPublisher events,
+                                          RangeImport rangeImport) {
+        ImportProperties properties = new ImportProperties();
+        properties.getParallel().setMinRangeSize(DataSize.ofBytes(1));
+        ImportProperties.Cluster cluster = properties.getCluster();
+        cluster.setTargetRanges(4);
+        cluster.setMaxClaimedRanges(1);
+        cluster.setLeaseDuration(LEASE);
+        cluster.setHeartbeatInterval(Duration.ofMillis(100));
+        cluster.setPollInterval(Duration.ofMillis(50));
+        ImportExecutor executor = new ImportExecutor(properties, new SimpleMeterRegistry());
+        executors.add(executor);
+        CSVImportService csvImportService = mock(CSVImportService.class);
+        when(csvImportService.importRange(any(), any(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Range range = invocation.getArgument(2);
+            return rangeImport.importRange(range.firstRowNumber(), invocation.getArgument(6));
+        });
+        CheckpointStore checkpointStore = mock(CheckpointStore.class);
+        when(checkpointStore.load(eq(JOB_ID), anyLong(), anyLong())).thenReturn(CheckpointStore.Resume.NONE);
+        ClusterImportCoordinator node = new ClusterImportCoordinator(leaseStore, csvImportService, executor,
+                properties, checkpointStore, events);
+        nodes.add(node);
+        return node;
+    }
+
+    private Path csv() throws IOException {
+        StringBuilder csv = new StringBuilder("Email,First Name\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append("contact").append(i).append("@example.com,Name ").append(i).append('\n');
+        }
+        return Files.writeString(directory.resolve("contacts.csv"), csv);
+    }
+
+    private static ImportStatistics statistics(long records) {
+        return new ImportStatistics(records, 0L, records, 0L, 0L);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.importservice.service.failure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.importservice.model.CsvHeader;
+import com.importservice.model.CsvRow;
+import com.importservice.support.TestPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rejected rows are stored whole in the {@code raw_row} JSONB column, a batch at a time, whatever
+ * their headers and values.
+ */
+class FailureSinkIntegrationTest {
+
+    private static final long JOB_ID = 42;
+
+    private JdbcTemplate jdbc;
+
+    private FailureSink failureSink;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(TestPostgres.createDatabase().migrate(null).dataSource());
+        failureSink = new FailureSink(jdbc, new ObjectMapper());
+    }
+
+    @Test
+    void storesEveryRowOfTheBatchWithItsRawValues() {
+        CsvHeader header = CsvHeader.of("Email", "MI");
+        List<RowFailure> failures = new ArrayList<>();
+        for (int row = 1; row <= 250; row++) {
+            failures.add(RowFailure.of(new CsvRow(header, new String[]{"contact-" + row + "@example.com",
+                    "TOO LONG"}, row), ErrorCodes.VALUE_TOO_LONG, "value too long for type character varying(1)"));
+        }
+
+        failureSink.write(JOB_ID, failures);
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM unimported_contacts WHERE job_id = ?", Long.class,
+                JOB_ID)).isEqualTo(250);
+        assertThat(jdbc.queryForMap("SELECT error_code, error_message, raw_row ->> 'Email' AS email,"
+                + " raw_row ->> 'MI' AS mi FROM unimported_contacts WHERE job_id = ? AND row_number = 250", JOB_ID))
+                .containsEntry("error_code", ErrorCodes.VALUE_TOO_LONG)
+                .containsEntry("error_message", "value too long for type character varying(1)")
+                .containsEntry("email", "contact-250@example.com")
+                .containsEntry("mi", "TOO LONG");
+    }
+
+    @Test
+    void keepsColumnsWithoutAUsableHeaderAndDropsNulCharacters() throws Exception {
+        CsvHeader header = CsvHeader.of("Email", null, "Email", "Favourite \"Colour\"");
+        CsvRow row = new CsvRow(header, new String[]{"a@example.com", "blank", "repeated", "Bl\u0000ue", "extra"}, 7);
+
+        failureSink.write(JOB_ID, List.of(RowFailure.of(row, ErrorCodes.INVALID_ENCODING, "Bro\u0000ken")));
+
+        Map<String, Object> stored = jdbc.queryForMap("SELECT row_number, error_message, raw_row::text AS raw_row"
+                + " FROM unimported_contacts WHERE job_id = ?", JOB_ID);
+        assertThat(stored).containsEntry("row_number", 7L).containsEntry("error_message", "Broken");
+        assertThat(new ObjectMapper().readValue((String) stored.get("raw_row"), Map.class))
+                .containsExactlyInAnyOrderEntriesOf(Map.of(
+                        "Email", "a@example.com",
+                        "#2", "blank",
+                        "#3", "repeated",
+                        "Favourite \"Colour\"", "Blue",
+                        "#5", "extra"));
+    }
+
+    @Test
+    void writesNothingForAnEmptyBatch() {
+        failureSink.write(JOB_ID, List.of());
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM unimported_contacts", Long.class)).isZero();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.importservice.service.metrics;
+
+import com.importservice.config.ImportProperties;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-import meters: tagged with their import, shared by the runs of a job and removed from the
+ * registry once the job has been released for {@code import.metrics.retention}.
+ */
+class ImportMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void tagsEveryMeterWithItsImport() {
+        ImportMetrics metrics = metrics(Duration.ofHours(1));
+        ImportMeters first = metrics.acquire(7);
+        ImportMeters second = metrics.acquire(8);
+
+        first.addRows(10, 7, 0, 2, 1);
+        first.recordWrite(TimeUnit.MILLISECONDS.toNanos(5));
+        first.failure(ImportMeters.STAGE_WRITE, new IllegalStateException());
+        second.addRows(3, 3, 0, 0, 0);
+
+        assertThat(imports()).containsOnly("7", "8");
+        assertThat(registry.get("import.rows").tag("import", "7").tag("outcome", "imported").counter().count())
+                .isEqualTo(7);
+        assertThat(registry.get("import.rows").tag("import", "8").tag("outcome", "imported").counter().count())
+                .isEqualTo(3);
+        assertThat(registry.get("import.stage.duration").tag("import", "7").tag("stage", "write").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("import.failures").tag("import", "7").tag("stage", "write")
+                .tag("error", "IllegalStateException").counter().count()).isEqualTo(1);
+        assertThat(registry.find("import.failures").tag("import", "8").counters()).isEmpty();
+    }
+
+    @Test
+    void removesTheMetersOfAJobOnceEveryRunReleasedThem() {
+        ImportMetrics metrics = metrics(Duration.ZERO);
+        ImportMeters range = metrics.acquire(7);
+        ImportMeters otherRange = metrics.acquire(7);
+        metrics.acquire(8);
+        assertThat(otherRange).isSameAs(range);
+
+        metrics.release(range);
+        metrics.removeFinished();
+
+        assertThat(imports()).containsOnly("7", "8");
+
+        metrics.release(otherRange);
+        metrics.removeFinished();
+
+        assertThat(imports()).containsOnly("8");
+        assertThat(metrics.acquire(7)).isNotSameAs(range);
+        assertThat(imports()).containsOnly("7", "8");
+    }
+
+    @Test
+    void keepsTheMetersOfAReleasedJobDuringTheRetention() {
+        ImportMetrics metrics = metrics(Duration.ofHours(1));
+        ImportMeters meters = metrics.acquire(7);
+        int registered = registry.getMeters().size();
+
+        metrics.release(meters);
+        metrics.removeFinished();
+
+        assertThat(registry.getMeters()).hasSize(registered);
+    }
+
+    private ImportMetrics metrics(Duration retention) {
+        ImportProperties properties = new ImportProperties();
+        properties.getMetrics().setRetention(retention);
+        return new ImportMetrics(registry, properties);
+    }
+
+    private List<String> imports() {
+        return registry.getMeters().stream().map(Meter::getId).map(id -> id.getTag("import")).distinct().toList();
+    }
+
+}
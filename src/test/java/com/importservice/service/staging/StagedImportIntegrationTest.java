@@ -0,0 +1,151 @@
+package com.importservice.service.staging;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.importservice.dto.ImportJobStatus;
+import com.importservice.entity.ImportJobState;
+import com.importservice.service.ImportJobService;
+import com.importservice.service.ImportMode;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.writer.WriterMode;
+import com.importservice.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * {@code writer=STAGED}: the set-based validation and merge, and the staging tables left behind.
+ */
+class StagedImportIntegrationTest extends PostgresIntegrationTest {
+
+    private static final long CRASHED_JOB_ID = 987_654_321;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @MockitoSpyBean
+    private StagedContactImport stagedContactImport;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void loadChunks() {
+        doCallRealMethod().when(stagedContactImport).load(anyList(), any());
+    }
+
+    @Test
+    void validatesAndMergesTheStagedRows() throws Exception {
+        importCsv("Email,First Name\r\n" + email("taken") + ",Earlier\r\n");
+        String csv = "Email,First Name,MI,Extra\r\n"
+                + email("a") + ",Ann,,x\r\n"
+                + email("b") + ",Bob,TOO LONG FOR MI,y\r\n"
+                + email("a") + ",Again,,z\r\n"
+                + email("taken") + ",Later,,\r\n"
+                + ",No Email,M\r\n";
+
+        ImportJobStatus status = importCsv(csv);
+
+        assertThat(status.state()).isEqualTo(ImportJobState.COMPLETED);
+        assertThat(status.statistics().totalRecords()).isEqualTo(5);
+        assertThat(status.statistics().totalImported()).isEqualTo(2);
+        assertThat(status.statistics().totalFailed()).isEqualTo(2);
+        assertThat(status.statistics().totalDuplicates()).isEqualTo(1);
+        assertThat(status.statistics().ruleFailures())
+                .containsOnly(Map.entry("VALUE_TOO_LONG:mi", 1L), Map.entry(ErrorCodes.DUPLICATE_KEY, 1L));
+        assertThat(jdbc.queryForList("SELECT first_name FROM contacts WHERE import_id = ? ORDER BY first_name",
+                String.class, status.jobId())).containsExactly("Ann", "No Email");
+        // Rebuilt from the staged columns, unmapped and empty columns included
+        assertThat(rawRow(status.jobId(), 2)).isEqualTo(row(email("b"), "Bob", "TOO LONG FOR MI", "y"));
+        assertThat(rawRow(status.jobId(), 4)).isEqualTo(row(email("taken"), "Later", null, null));
+        assertThat(stagingTableExists(status.jobId())).isFalse();
+    }
+
+    @Test
+    void rowsRejectedWhileMappingKeepTheirWholeRawRow() throws Exception {
+        ImportJobStatus status = importCsv("Email,First Name\r\n" + email("a") + ",Bro\u0000ken,extra\r\n");
+
+        assertThat(status.statistics().ruleFailures()).containsOnly(Map.entry(ErrorCodes.INVALID_ENCODING, 1L));
+        Map<String, String> expected = new HashMap<>();
+        expected.put("Email", email("a"));
+        expected.put("First Name", "Broken");
+        expected.put("#3", "extra");
+        assertThat(rawRow(status.jobId(), 1)).isEqualTo(expected);
+    }
+
+    @Test
+    void aChunkFailingToLoadFailsTheImport() throws Exception {
+        doCallRealMethod()
+                .doThrow(new DataAccessResourceFailureException("COPY into staging failed"))
+                .doCallRealMethod()
+                .when(stagedContactImport).load(anyList(), any());
+        StringBuilder csv = new StringBuilder("Email\r\n");
+        for (int row = 1; row <= 500; row++) {
+            csv.append(email(row)).append("\r\n");
+        }
+
+        ImportJobStatus status = importCsv(csv.toString());
+
+        assertThat(status.state()).isEqualTo(ImportJobState.FAILED);
+        assertThat(status.errorMessage()).isEqualTo("COPY into staging failed");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM contacts WHERE import_id = ?", Long.class,
+                status.jobId())).isZero();
+        assertThat(stagingTableExists(status.jobId())).isFalse();
+    }
+
+    @Test
+    void dropsStagingTablesLeftByACrash() {
+        stagedContactImport.create(CRASHED_JOB_ID);
+
+        stagedContactImport.dropLeftovers();
+
+        assertThat(stagingTableExists(CRASHED_JOB_ID)).isFalse();
+    }
+
+    private ImportJobStatus importCsv(String csv) throws Exception {
+        return importJobService.submitStream(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                "contacts.csv", ImportMode.STREAMING, WriterMode.STAGED).get(60, TimeUnit.SECONDS);
+    }
+
+    private Map<String, String> rawRow(long jobId, long rowNumber) throws Exception {
+        List<String> rawRows = jdbc.queryForList("SELECT raw_row::text FROM unimported_contacts "
+                + "WHERE job_id = ? AND row_number = ?", String.class, jobId, rowNumber);
+        assertThat(rawRows).hasSize(1);
+        return objectMapper.readValue(rawRows.getFirst(), new TypeReference<>() {
+        });
+    }
+
+    private static Map<String, String> row(String email, String firstName, String mi, String extra) {
+        Map<String, String> row = new HashMap<>();
+        row.put("Email", email);
+        row.put("First Name", firstName);
+        row.put("MI", mi);
+        row.put("Extra", extra);
+        return row;
+    }
+
+    private boolean stagingTableExists(long jobId) {
+        return jdbc.queryForObject("SELECT count(*) FROM pg_tables WHERE tablename = ?", Long.class,
+                StagedContactImport.nameOf(jobId)) > 0;
+    }
+
+}
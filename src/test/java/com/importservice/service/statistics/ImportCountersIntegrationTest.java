@@ -0,0 +1,97 @@
+package com.importservice.service.statistics;
+
+import com.importservice.dto.ImportStatistics;
+import com.importservice.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The running totals: summed over the shards the chunk transactions incremented, served from
+ * cache until evicted, and corrected against exact counts by a reconcile.
+ */
+@TestPropertySource(properties = "import.statistics.cache-ttl=1h")
+class ImportCountersIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int SHARDS = 16;
+
+    @Autowired
+    private ImportCounters importCounters;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void reconcile() {
+        importCounters.reconcile();
+    }
+
+    @Test
+    void sumsTheShardsOfConcurrentTransactionsOnceTheCacheIsEvicted() throws InterruptedException {
+        ImportStatistics before = importCounters.totals();
+        Set<Long> shards = new TreeSet<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = Thread.ofPlatform().start(() ->
+                    transactionTemplate.executeWithoutResult(status -> importCounters.add(3, 1)));
+            shards.add(thread.threadId() % SHARDS);
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(importCounters.totals()).isEqualTo(before);
+
+        importCounters.evictTotals();
+
+        ImportStatistics after = importCounters.totals();
+        assertThat(after.totalImported()).isEqualTo(before.totalImported() + 12);
+        assertThat(after.totalFailed()).isEqualTo(before.totalFailed() + 4);
+        assertThat(after.totalRecords()).isEqualTo(before.totalRecords() + 16);
+        assertThat(jdbc.queryForList("SELECT shard::bigint FROM import_counters WHERE name = 'contacts'",
+                Long.class)).containsAll(shards);
+    }
+
+    @Test
+    void incrementsRollBackWithTheirTransaction() {
+        ImportStatistics before = importCounters.totals();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            importCounters.add(5, 5);
+            status.setRollbackOnly();
+        });
+        importCounters.evictTotals();
+
+        assertThat(importCounters.totals()).isEqualTo(before);
+    }
+
+    @Test
+    void reconcileCorrectsTheTotalsToExactCounts() {
+        transactionTemplate.executeWithoutResult(status -> importCounters.add(7, 2));
+
+        importCounters.reconcile();
+
+        ImportStatistics totals = importCounters.totals();
+        assertThat(totals.totalImported()).isEqualTo(count("contacts"));
+        assertThat(totals.totalFailed()).isEqualTo(count("unimported_contacts"));
+    }
+
+    private long count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.importservice.service.validation;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import com.importservice.service.validation.ContactValidator.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Format rules apply to the configured columns only; the column lengths, read from the database,
+ * are not looked up here.
+ */
+class ContactValidatorTest {
+
+    @Test
+    void checksNoFormatUnlessConfigured() {
+        ContactValidator validator = validator(Map.of());
+
+        assertThat(validator.validate(contact("not an email", "call me", "someday"))).isNull();
+        assertThat(validator.rules()).isEmpty();
+    }
+
+    @Test
+    void checksTheConfiguredColumns() {
+        ContactValidator validator = validator(Map.of("email", Format.EMAIL, "cell_phone", Format.PHONE,
+                "spouse_birthday", Format.DATE));
+
+        assertThat(validator.validate(contact("a@example.com", "+1 (555) 010-0000 x12", "2/29/2024"))).isNull();
+        assertThat(validator.validate(contact("not an email", null, null)).rule()).isEqualTo("INVALID_EMAIL:email");
+        assertThat(validator.validate(contact(null, "call me", null)).rule()).isEqualTo("INVALID_PHONE:cell_phone");
+        assertThat(validator.validate(contact(null, null, "2/30/2024")).rule())
+                .isEqualTo("INVALID_DATE:spouse_birthday");
+    }
+
+    @Test
+    void rejectsAnUnknownColumn() {
+        ContactValidator validator = validator(Map.of("e_mail", Format.EMAIL));
+
+        assertThatThrownBy(validator::rules).hasMessageContaining("e_mail");
+    }
+
+    private static ContactValidator validator(Map<String, Format> formats) {
+        ImportProperties properties = new ImportProperties();
+        properties.getValidation().setFormats(formats);
+        return new ContactValidator(mock(JdbcTemplate.class), properties);
+    }
+
+    private static Contact contact(String email, String cellPhone, String spouseBirthday) {
+        Contact contact = new Contact();
+        contact.setEmail(email);
+        contact.setCellPhone(cellPhone);
+        contact.setSpouseBirthday(spouseBirthday);
+        return contact;
+    }
+
+}
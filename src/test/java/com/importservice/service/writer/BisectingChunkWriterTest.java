@@ -0,0 +1,86 @@
+package com.importservice.service.writer;
+
+import com.importservice.entity.Contact;
+import com.importservice.service.failure.ErrorCodes;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class BisectingChunkWriterTest {
+
+    private final BisectingChunkWriter chunkWriter =
+            new BisectingChunkWriter(new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+    private final List<Long> written = new ArrayList<>();
+
+    private final Map<Long, Exception> rejected = new HashMap<>();
+
+    private final AtomicInteger transactions = new AtomicInteger();
+
+    @Test
+    void isolatesTheRowsFailingOnTheirData() {
+        List<Contact> contacts = contacts(16);
+        contacts.get(5).setMi("TOO LONG");
+
+        WriteResult result = write(contacts, slice -> {
+            if (slice.stream().anyMatch(contact -> contact.getMi() != null)) {
+                throw new DataIntegrityViolationException("value too long",
+                        new SQLException("value too long for type character varying(1)", "22001"));
+            }
+        });
+
+        assertThat(result.written()).isEqualTo(15);
+        assertThat(rejected).containsOnlyKeys(5L);
+        assertThat(ErrorCodes.ofWriteFailure(rejected.get(5L))).isEqualTo(ErrorCodes.VALUE_TOO_LONG);
+        assertThat(written).hasSize(15).doesNotContain(5L);
+        // The whole chunk, then two slices per level down to the bad row
+        assertThat(transactions).hasValue(1 + 2 * 4);
+    }
+
+    @Test
+    void rethrowsFailuresNotCausedByTheRows() {
+        QueryTimeoutException timeout = new QueryTimeoutException("canceling statement due to statement timeout",
+                new SQLException("canceling statement due to statement timeout", "57014"));
+
+        assertThatThrownBy(() -> write(contacts(16), slice -> {
+            throw timeout;
+        })).isSameAs(timeout);
+        assertThat(transactions).hasValue(1);
+        assertThat(rejected).isEmpty();
+    }
+
+    private WriteResult write(List<Contact> contacts, Consumer<List<Contact>> check) {
+        List<Long> sources = IntStream.range(0, contacts.size()).mapToObj(i -> (long) i).toList();
+        return chunkWriter.write(contacts, sources, slice -> {
+            transactions.incrementAndGet();
+            check.accept(slice);
+            return WriteResult.inserted(slice.size());
+        }, rejected::put, (slice, result) -> written.addAll(slice));
+    }
+
+    private static List<Contact> contacts(int count) {
+        List<Contact> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Contact contact = new Contact();
+            contact.setEmail("contact-" + i + "@example.com");
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.importservice.service.writer;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import com.importservice.service.failure.ErrorCodes;
+import com.importservice.service.partition.ContactPartitions;
+import com.importservice.support.TestPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Natural keys stay unique across the partitions of {@code contacts}, whichever writer stores them.
+ */
+class ContactKeysIntegrationTest {
+
+    private JdbcTemplate jdbc;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ContactPartitions partitions;
+
+    private ContactBatchWriter batchWriter;
+
+    private CopyContactWriter copyWriter;
+
+    private ContactUpsertWriter upsertWriter;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = TestPostgres.createDatabase().migrate(null).dataSource();
+        jdbc = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        ImportProperties properties = new ImportProperties();
+        partitions = new ContactPartitions(jdbc, transactionTemplate, properties);
+        IdRangeAllocator ids = new IdRangeAllocator(jdbc);
+        NaturalKey naturalKey = new NaturalKey(properties);
+        ContactKeys contactKeys = new ContactKeys(jdbc, naturalKey);
+        batchWriter = new ContactBatchWriter(dataSource, ids, contactKeys);
+        copyWriter = new CopyContactWriter(dataSource, ids, contactKeys);
+        upsertWriter = new ContactUpsertWriter(dataSource, ids, naturalKey, contactKeys);
+        partitions.create(1);
+        partitions.create(2);
+    }
+
+    @Test
+    void rejectsTheKeyOfAnotherImport() {
+        batchWriter.write(List.of(contact(1, "a@example.com", "First")));
+
+        Throwable batch = catchThrowable(() -> batchWriter.write(List.of(contact(2, "a@example.com", "Again"))));
+        Throwable copy = catchThrowable(() -> copyWriter.write(List.of(contact(2, "a@example.com", "Again"))));
+
+        assertThat(ErrorCodes.ofWriteFailure(batch)).isEqualTo(ErrorCodes.DUPLICATE_KEY);
+        assertThat(ErrorCodes.ofWriteFailure(copy)).isEqualTo(ErrorCodes.DUPLICATE_KEY);
+        assertThat(count("SELECT count(*) FROM contacts")).isEqualTo(1);
+    }
+
+    @Test
+    void storesTheKeysOfTheContactsEveryWriterStores() {
+        batchWriter.write(List.of(contact(1, "a@example.com", "Batch")));
+        copyWriter.write(List.of(contact(1, "b@example.com", "Copy")));
+        upsertWriter.write(List.of(contact(2, "c@example.com", "Upsert")));
+
+        assertThat(jdbc.queryForList("SELECT k.email FROM contact_keys k JOIN contacts c"
+                + " ON c.id = k.contact_id AND c.import_id = k.import_id AND c.email = k.email ORDER BY k.email",
+                String.class)).containsExactly("a@example.com", "b@example.com", "c@example.com");
+        Throwable copy = catchThrowable(() -> copyWriter.write(List.of(contact(2, "b@example.com", "Again"))));
+        assertThat(ErrorCodes.ofWriteFailure(copy)).isEqualTo(ErrorCodes.DUPLICATE_KEY);
+    }
+
+    @Test
+    void contactsWithoutKeyNeverConflict() {
+        batchWriter.write(List.of(contact(1, null, "One"), contact(1, null, "Two")));
+        copyWriter.write(List.of(contact(2, null, "Three")));
+
+        assertThat(count("SELECT count(*) FROM contacts")).isEqualTo(3);
+        assertThat(count("SELECT count(*) FROM contact_keys")).isZero();
+    }
+
+    @Test
+    void upsertUpdatesTheContactOfAnotherImportInPlace() {
+        batchWriter.write(List.of(contact(1, "a@example.com", "First")));
+
+        WriteResult result = upsertWriter.write(List.of(contact(2, "a@example.com", "Updated"),
+                contact(2, "b@example.com", "New")));
+
+        assertThat(result).isEqualTo(new WriteResult(1, 1));
+        assertThat(jdbc.queryForList("SELECT import_id || ':' || first_name FROM contacts ORDER BY email",
+                String.class)).containsExactly("1:Updated", "2:New");
+        assertThat(count("SELECT count(*) FROM contact_keys")).isEqualTo(2);
+    }
+
+    @Test
+    void upsertRejectsAKeyTheImportStoredAlready() {
+        upsertWriter.write(List.of(contact(1, "a@example.com", "First")));
+
+        Throwable failure = catchThrowable(() -> upsertWriter.write(List.of(contact(1, "a@example.com", "Again"))));
+
+        assertThat(ErrorCodes.ofWriteFailure(failure)).isEqualTo(ErrorCodes.DUPLICATE_KEY);
+        assertThat(jdbc.queryForObject("SELECT first_name FROM contacts", String.class)).isEqualTo("First");
+    }
+
+    @Test
+    void rollbackReleasesTheKeysOfTheImport() {
+        batchWriter.write(List.of(contact(1, "a@example.com", "First")));
+
+        transactionTemplate.executeWithoutResult(status -> partitions.drop(1));
+        batchWriter.write(List.of(contact(2, "a@example.com", "Second")));
+
+        assertThat(jdbc.queryForList("SELECT import_id FROM contact_keys", Long.class)).containsExactly(2L);
+    }
+
+    private long count(String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    private static Contact contact(long importId, String email, String firstName) {
+        Contact contact = new Contact();
+        contact.setImportId(importId);
+        contact.setEmail(email);
+        contact.setFirstName(firstName);
+        return contact;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.importservice.service.writer;
+
+import com.importservice.config.ImportProperties;
+import com.importservice.entity.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class NaturalKeyTest {
+
+    @Test
+    void keyOfDoesNotChangeTheContact() {
+        NaturalKey naturalKey = naturalKey("email");
+        Contact contact = new Contact();
+        contact.setEmail("");
+
+        assertThat(naturalKey.keyOf(contact)).isNull();
+        assertThat(contact.getEmail()).isEmpty();
+    }
+
+    @Test
+    void normalizeStoresEmptyKeyColumnsAsNull() {
+        NaturalKey naturalKey = naturalKey("email", "last_name");
+        Contact contact = new Contact();
+        contact.setEmail("");
+        contact.setLastName("Smith");
+        contact.setFirstName("");
+
+        naturalKey.normalize(contact);
+
+        assertThat(contact.getEmail()).isNull();
+        assertThat(contact.getLastName()).isEqualTo("Smith");
+        assertThat(contact.getFirstName()).as("not a key column").isEmpty();
+    }
+
+    @Test
+    void compositeKeyNeedsEveryColumn() {
+        NaturalKey naturalKey = naturalKey("email", "last_name");
+        Contact contact = new Contact();
+        contact.setEmail("a@example.com");
+
+        assertThat(naturalKey.keyOf(contact)).isNull();
+        contact.setLastName("Smith");
+        assertThat(naturalKey.keyOf(contact)).isEqualTo("a@example.com\u001FSmith");
+    }
+
+    @Test
+    void rejectsUnknownColumns() {
+        assertThatIllegalArgumentException().isThrownBy(() -> naturalKey("no_such_column"));
+    }
+
+    private static NaturalKey naturalKey(String... columns) {
+        ImportProperties properties = new ImportProperties();
+        properties.setNaturalKey(List.of(columns));
+        return new NaturalKey(properties);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.importservice.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Base of the tests running the whole application against PostgreSQL, see {@link TestPostgres}.
+ * The subclasses share one database and, with the same properties, one application context;
+ * natural keys are unique across imports, so every test makes its keys unique with {@link #email}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.com.importservice=INFO"
+})
+public abstract class PostgresIntegrationTest {
+
+    private static final TestPostgres.Database DATABASE = TestPostgres.createDatabase();
+
+    private static final Path SPOOL = spoolDirectory();
+
+    private final String keyPrefix = UUID.randomUUID().toString().substring(0, 8);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", DATABASE::url);
+        registry.add("spring.datasource.username", DATABASE::username);
+        registry.add("spring.datasource.password", DATABASE::password);
+        registry.add("import.spool-directory", SPOOL::toString);
+    }
+
+    /**
+     * @return an email address unique to this test instance
+     */
+    protected String email(Object name) {
+        return name + "." + keyPrefix + "@example.com";
+    }
+
+    private static Path spoolDirectory() {
+        try {
+            return Files.createTempDirectory("import-spool");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.importservice.support;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PostgreSQL server of the integration tests, started once per test JVM: a Testcontainers
+ * container where Docker is available, an embedded server otherwise. Every caller gets a database
+ * of its own, so tests never see each other's contacts or migrations.
+ */
+public final class TestPostgres {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static Server server;
+
+    private TestPostgres() {
+    }
+
+    /**
+     * @param url      JDBC URL of the database
+     * @param username owner of the database
+     * @param password password of the owner
+     */
+    public record Database(String url, String username, String password) {
+
+        public DataSource dataSource() {
+            PGSimpleDataSource dataSource = new PGSimpleDataSource();
+            dataSource.setUrl(url);
+            dataSource.setUser(username);
+            dataSource.setPassword(password);
+            return dataSource;
+        }
+
+        /**
+         * Runs the migrations of the application, with its default placeholders.
+         *
+         * @param target the last version to apply, e.g. {@code 20261018.000002}; {@code null} for all
+         */
+        public Database migrate(String target) {
+            return migrate(target, 50);
+        }
+
+        /**
+         * Runs the migrations of the application with another {@code CI_UNIQUE_ID} block size.
+         *
+         * @param target      the last version to apply; {@code null} for all
+         * @param idBlockSize the {@code id-block-size} placeholder
+         */
+        public Database migrate(String target, int idBlockSize) {
+            FluentConfiguration configuration = Flyway.configure()
+                    .dataSource(url, username, password)
+                    .locations("classpath:db/migration")
+                    .placeholders(Map.of("natural-key-columns", "email", "id-block-size",
+                            String.valueOf(idBlockSize)));
+            if (target != null) {
+                configuration.target(target);
+            }
+            configuration.load().migrate();
+            return this;
+        }
+    }
+
+    /**
+     * @return a new, empty database
+     */
+    public static synchronized Database createDatabase() {
+        if (server == null) {
+            server = DockerClientFactory.instance().isDockerAvailable() ? container() : embedded();
+        }
+        String name = "import_test_" + DATABASES.incrementAndGet();
+        try (Connection connection = server.admin().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + name);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot create test database " + name, e);
+        }
+        return server.database(name);
+    }
+
+    private interface Server {
+
+        DataSource admin();
+
+        Database database(String name);
+    }
+
+    private static Server container() {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine");
+        container.start();
+        String base = "jdbc:postgresql://" + container.getHost() + ":"
+                + container.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/";
+        return new Server() {
+            @Override
+            public DataSource admin() {
+                return database(container.getDatabaseName()).dataSource();
+            }
+
+            @Override
+            public Database database(String name) {
+                return new Database(base + name, container.getUsername(), container.getPassword());
+            }
+        };
+    }
+
+    private static Server embedded() {
+        EmbeddedPostgres postgres;
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start an embedded PostgreSQL", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                postgres.close();
+            } catch (IOException ignored) {
+                // the JVM is exiting
+            }
+        }));
+        return new Server() {
+            @Override
+            public DataSource admin() {
+                return postgres.getPostgresDatabase();
+            }
+
+            @Override
+            public Database database(String name) {
+                return new Database(postgres.getJdbcUrl("postgres", name), "postgres", "");
+            }
+        };
+    }
+
+}